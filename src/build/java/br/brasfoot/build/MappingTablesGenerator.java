@@ -0,0 +1,195 @@
+package br.brasfoot.build;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Gera br.brasfoot.compiler.MappingTables a partir do mapping.json (fase
+ * generate-sources do Maven; ver exec-maven-plugin no pom.xml).
+ *
+ * Roda como programa de arquivo único (java -cp gson.jar MappingTablesGenerator.java
+ * <mapping.json> <outDir>), então não pode depender das classes do projeto: a
+ * normalização de chaves abaixo espelha Mappings.norm + TextUtil.deaccent e a
+ * precedência do CountryIndex.Builder. MappingsTest garante que as tabelas
+ * geradas batem com o carregamento do JSON em runtime.
+ */
+public final class MappingTablesGenerator {
+
+  private MappingTablesGenerator() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("uso: MappingTablesGenerator <mapping.json> <outDir>");
+      System.exit(2);
+    }
+    Path json = Path.of(args[0]);
+    Path outDir = Path.of(args[1]);
+
+    JsonObject root = JsonParser.parseString(Files.readString(json, StandardCharsets.UTF_8)).getAsJsonObject();
+
+    StringBuilder src = new StringBuilder();
+    src.append("// GERADO por src/build/java/br/brasfoot/build/MappingTablesGenerator.java\n");
+    src.append("// a partir de src/main/resources/mapping.json. Não editar.\n");
+    src.append("package br.brasfoot.compiler;\n\n");
+    src.append("final class MappingTables {\n\n");
+    src.append("  private MappingTables() {}\n\n");
+
+    emit(src, "POSITION", aliasGroup(root, "posicoes"));
+    emit(src, "SIDE", aliasGroup(root, "lados"));
+    emit(src, "CHARACTERISTIC", aliasGroup(root, "caracteristicas"));
+    emit(src, "COUNTRY", countries(root));
+
+    src.append("}\n");
+
+    Path out = outDir.resolve("br/brasfoot/compiler/MappingTables.java");
+    Files.createDirectories(out.getParent());
+    String code = src.toString();
+    // Não reescreve se nada mudou (evita recompilação incremental à toa).
+    if (Files.exists(out) && Files.readString(out, StandardCharsets.UTF_8).equals(code)) return;
+    Files.writeString(out, code, StandardCharsets.UTF_8);
+    System.out.println("[mapping] gerado " + out);
+  }
+
+  // -------------------------
+  // Grupos
+  // -------------------------
+
+  /** posicoes/lados/caracteristicas: só aliases, chaves norm + sem acento. */
+  private static Map<String, Integer> aliasGroup(JsonObject root, String key) {
+    Map<String, Integer> out = new LinkedHashMap<>();
+    for (JsonObject o : objects(root, key)) {
+      Integer id = optInt(o, "id");
+      if (id == null) continue;
+      for (String alias : strings(o, "aliases")) {
+        if (alias.isBlank()) continue;
+        String k1 = norm(alias);
+        if (!k1.isEmpty()) out.putIfAbsent(k1, id);
+        String k2 = deaccent(k1);
+        if (!k2.isEmpty()) out.putIfAbsent(k2, id);
+      }
+    }
+    return out;
+  }
+
+  /** paises: nome + aliases, com a chave como escrita além das normalizadas. */
+  private static Map<String, Integer> countries(JsonObject root) {
+    Map<String, Integer> out = new LinkedHashMap<>();
+    for (JsonObject o : objects(root, "paises")) {
+      Integer id = optInt(o, "id");
+      String nome = optString(o.get("nome"));
+      if (id == null || nome == null || nome.isBlank()) continue;
+
+      List<String> names = new ArrayList<>();
+      names.add(nome);
+      names.addAll(strings(o, "aliases"));
+      for (String n : names) {
+        if (n.isBlank()) continue;
+        String k1 = norm(n);
+        out.putIfAbsent(k1, id);
+        out.putIfAbsent(deaccent(k1), id);
+        out.putIfAbsent(n, id);
+      }
+    }
+    return out;
+  }
+
+  private static void emit(StringBuilder src, String name, Map<String, Integer> table) {
+    // Ordenado por String.compareTo: o runtime usa Arrays.binarySearch.
+    TreeMap<String, Integer> sorted = new TreeMap<>(table);
+
+    src.append("  static final String[] ").append(name).append("_KEYS = {\n");
+    for (String k : sorted.keySet()) {
+      src.append("    \"").append(escape(k)).append("\",\n");
+    }
+    src.append("  };\n\n");
+
+    src.append("  static final int[] ").append(name).append("_IDS = {\n");
+    int col = 0;
+    for (int id : sorted.values()) {
+      if (col == 0) src.append("   ");
+      src.append(' ').append(id).append(',');
+      if (++col == 16) { src.append('\n'); col = 0; }
+    }
+    if (col != 0) src.append('\n');
+    src.append("  };\n\n");
+  }
+
+  // -------------------------
+  // Normalização (espelha Mappings.norm + TextUtil.deaccent)
+  // -------------------------
+
+  private static String norm(String s) {
+    return s.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static String deaccent(String s) {
+    return Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+  }
+
+  /** Literal Java ASCII-only (não depende do encoding do compilador). */
+  private static String escape(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20 || c > 0x7E) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  // -------------------------
+  // JSON helpers
+  // -------------------------
+
+  private static List<JsonObject> objects(JsonObject root, String key) {
+    List<JsonObject> out = new ArrayList<>();
+    JsonElement el = root.get(key);
+    if (el == null || !el.isJsonArray()) return out;
+    for (JsonElement e : el.getAsJsonArray()) {
+      if (e.isJsonObject()) out.add(e.getAsJsonObject());
+    }
+    return out;
+  }
+
+  private static List<String> strings(JsonObject o, String key) {
+    List<String> out = new ArrayList<>();
+    JsonElement el = o.get(key);
+    if (el == null || !el.isJsonArray()) return out;
+    JsonArray arr = el.getAsJsonArray();
+    for (JsonElement e : arr) {
+      String s = optString(e);
+      if (s != null) out.add(s);
+    }
+    return out;
+  }
+
+  private static Integer optInt(JsonObject o, String key) {
+    JsonElement el = o.get(key);
+    if (el == null || el.isJsonNull()) return null;
+    try { return el.getAsInt(); } catch (Exception ignored) { return null; }
+  }
+
+  private static String optString(JsonElement el) {
+    if (el == null || el.isJsonNull()) return null;
+    try { return el.getAsString(); } catch (Exception ignored) { return null; }
+  }
+}
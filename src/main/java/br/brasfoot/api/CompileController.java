@@ -1,19 +1,42 @@
 package br.brasfoot.api;
 
+import br.brasfoot.compiler.AdmissionControl;
 import br.brasfoot.compiler.BanCompiler;
+import br.brasfoot.compiler.BanStreamReader;
+import br.brasfoot.compiler.CompileCost;
+import br.brasfoot.compiler.CompileResultCache;
+import br.brasfoot.compiler.JsonUtil;
+import br.brasfoot.compiler.Mappings;
+import br.brasfoot.compiler.TeamIdentity;
+import br.brasfoot.compiler.TransfermarktCache;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 @RestController
 public class CompileController {
 
+  /** Limite de variantes por chamada de /compile/variants. */
+  private static final int MAX_VARIANTS = 16;
+
   public CompileController() {
     br.brasfoot.compiler.SafeDeserialization.clearLastRejected();
   }
@@ -39,52 +62,312 @@ public class CompileController {
         return ResponseEntity.badRequest().body("teamJson (.json) ausente".getBytes());
       }
 
-      Path tmpDir = Files.createTempDirectory("bf-compile-");
-      Path templatePath = tmpDir.resolve("template.ban");
-      Path inputJsonPath = tmpDir.resolve("team.json");
-      Path outBanPath = tmpDir.resolve("out.ban");
+      // Validação streaming do template: rejeita classes/descritores inesperados
+      // antes de qualquer objeto ser criado pelo ObjectInputStream.
+      byte[] templateBytes = templateBan.getBytes();
+      BanStreamReader.validateTemplate(templateBytes);
+
+      // Snapshot do mapping capturado uma vez: a chave do cache e o put usam o mesmo.
+      byte[] teamBytes = teamJson.getBytes();
+      Mappings snapshot = Mappings.get();
+      String cacheKey = CompileResultCache.key(
+          templateBytes, teamBytes, teamIdOverride, countryIdOverride, competitive, snapshot);
+      CompileResultCache.Entry cached = CompileResultCache.get(cacheKey);
+      if (cached != null) {
+        return banResponse(cached.ban(), "HIT", snapshot);
+      }
 
-      Files.write(templatePath, templateBan.getBytes());
-      Files.write(inputJsonPath, teamJson.getBytes());
+      AdmissionControl.Permit permit = AdmissionControl.admit(AdmissionControl.estimate(
+          teamBytes.length, AdmissionControl.countPlayers(teamBytes), 1));
+      if (permit == null) return overloaded();
+      try (permit) {
+        Path tmpDir = Files.createTempDirectory("bf-compile-");
+        Path templatePath = tmpDir.resolve("template.ban");
+        Path inputJsonPath = tmpDir.resolve("team.json");
+        Path outBanPath = tmpDir.resolve("out.ban");
 
-      BanCompiler.compileTeamJsonToBan(
-          inputJsonPath,
-          templatePath,
-          outBanPath,
-          teamIdOverride,
-          countryIdOverride,
-          competitive          // ← novo parâmetro
-      );
+        Files.write(templatePath, templateBytes);
+        Files.write(inputJsonPath, teamBytes);
 
-      byte[] outBytes = Files.readAllBytes(outBanPath);
+        CompileCost.Probe probe = CompileCost.start();
+        BanCompiler.CompileResult result = BanCompiler.compileTeamJsonToBan(
+            inputJsonPath,
+            templatePath,
+            outBanPath,
+            teamIdOverride,
+            countryIdOverride,
+            competitive          // ← novo parâmetro
+        );
+        CompileCost.stop(probe, result.rosterSize());
 
-      // limpeza best-effort
-      try { Files.deleteIfExists(templatePath); } catch (Exception ignored) {}
-      try { Files.deleteIfExists(inputJsonPath); } catch (Exception ignored) {}
-      try { Files.deleteIfExists(outBanPath); } catch (Exception ignored) {}
-      try { Files.deleteIfExists(tmpDir); } catch (Exception ignored) {}
+        byte[] outBytes = Files.readAllBytes(outBanPath);
+        CompileResultCache.put(cacheKey, outBytes, result, snapshot);
 
-      return ResponseEntity.ok()
-          .contentType(MediaType.APPLICATION_OCTET_STREAM)
-          .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"time.ban\"")
-          .body(outBytes);
+        // limpeza best-effort
+        try { Files.deleteIfExists(templatePath); } catch (Exception ignored) {}
+        try { Files.deleteIfExists(inputJsonPath); } catch (Exception ignored) {}
+        try { Files.deleteIfExists(outBanPath); } catch (Exception ignored) {}
+        try { Files.deleteIfExists(tmpDir); } catch (Exception ignored) {}
+
+        return banResponse(outBytes, "MISS", snapshot);
+      }
+
+    } catch (Exception e) {
+      return errorResponse(e);
+    }
+  }
 
+  /**
+   * Compila direto do TransfermarktCache do servidor (-Dbrasfoot.tmCache.dir),
+   * sem upload do JSON: o time vem por {@code teamUrl} ou por
+   * country/teamId/season. {@code template} é opcional (sem ele o time é criado
+   * do zero). O resultado é memorizado pela identidade do time, com a versão da
+   * entrada do cache dentro: uma nova escrita do elenco invalida a saída antiga
+   * e a próxima compilação a substitui.
+   */
+  @PostMapping("/compile/cached")
+  public ResponseEntity<byte[]> compileCached(
+      @RequestParam(value = "teamUrl", required = false) String teamUrl,
+      @RequestParam(value = "country", required = false) String country,
+      @RequestParam(value = "teamId", required = false) Integer teamId,
+      @RequestParam(value = "season", required = false) Integer season,
+      @RequestParam(value = "template", required = false) MultipartFile templateBan,
+      @RequestParam(value = "teamIdOverride", required = false) Integer teamIdOverride,
+      @RequestParam(value = "countryIdOverride", required = false) Integer countryIdOverride,
+      @RequestParam(value = "competitive", required = false, defaultValue = "false") String competitiveStr
+  ) {
+    boolean competitive = "true".equalsIgnoreCase(competitiveStr);
+
+    TransfermarktCache cache = TransfermarktCache.shared();
+    if (cache == null) {
+      return textResponse(HttpStatus.SERVICE_UNAVAILABLE, "cache de elencos não configurado (-Dbrasfoot.tmCache.dir)");
+    }
+
+    TeamIdentity team;
+    try {
+      team = (teamUrl != null && !teamUrl.isBlank())
+          ? TeamIdentity.fromTeamUrl(teamUrl)
+          : new TeamIdentity(country == null ? "" : country.trim(),
+              teamId == null ? 0 : teamId, season == null ? 0 : season, "team");
     } catch (IllegalArgumentException e) {
-      return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-          .contentType(MediaType.TEXT_PLAIN)
-          .body(("Template inválido/incompatível: " + e.getMessage()).getBytes());
-    } catch (InvalidClassException e) {
+      return textResponse(HttpStatus.BAD_REQUEST, "Time inválido: " + e.getMessage());
+    }
+
+    try {
+      byte[] templateBytes = null;
+      if (templateBan != null && !templateBan.isEmpty()) {
+        templateBytes = templateBan.getBytes();
+        BanStreamReader.validateTemplate(templateBytes);
+      }
+
+      Mappings snapshot = Mappings.get();
+      long version = cache.version(team);
+      if (version != -1) {
+        CompileResultCache.Entry cached = CompileResultCache.get(CompileResultCache.key(
+            templateBytes, team, teamIdOverride, countryIdOverride, competitive, snapshot), version);
+        if (cached != null) {
+          cache.refreshIfStale(team);
+          return banResponse(cached.ban(), "HIT", snapshot);
+        }
+      }
+
+      // admitido antes de ler: a decodificação (e uma carga lenta do loader) já conta no orçamento
+      AdmissionControl.Permit permit = AdmissionControl.admit(
+          AdmissionControl.estimateStored(cache.estimatedPlayers(team), 1));
+      if (permit == null) return overloaded();
+      try (permit) {
+        JsonArray players;
+        try {
+          players = cache.hasLoader() ? cache.getOrLoad(team) : cache.read(team);
+        } catch (NoSuchFileException e) {
+          return textResponse(HttpStatus.NOT_FOUND, "Time não encontrado no cache: " + team);
+        }
+        // versão relida depois do elenco: se uma escrita entrou no meio, não memoriza
+        long readVersion = cache.version(team);
+
+        Path tmpDir = Files.createTempDirectory("bf-compile-");
+        Path templatePath = null;
+        if (templateBytes != null) {
+          templatePath = tmpDir.resolve("template.ban");
+          Files.write(templatePath, templateBytes);
+        }
+        Path outBanPath = tmpDir.resolve("out.ban");
+
+        CompileCost.Probe probe = CompileCost.start();
+        BanCompiler.CompileResult result = BanCompiler.compileTeamJsonToBan(
+            players,
+            team.slug() + "-" + team.season(),
+            templatePath,
+            outBanPath,
+            teamIdOverride,
+            countryIdOverride,
+            competitive
+        );
+        CompileCost.stop(probe, result.rosterSize());
+
+        byte[] outBytes = Files.readAllBytes(outBanPath);
+        if (readVersion != -1 && (version == -1 || readVersion == version)) {
+          CompileResultCache.put(CompileResultCache.key(
+              templateBytes, team, teamIdOverride, countryIdOverride, competitive, snapshot),
+              outBytes, result, snapshot, readVersion);
+        }
+
+        // limpeza best-effort
+        if (templatePath != null) {
+          try { Files.deleteIfExists(templatePath); } catch (Exception ignored) {}
+        }
+        try { Files.deleteIfExists(outBanPath); } catch (Exception ignored) {}
+        try { Files.deleteIfExists(tmpDir); } catch (Exception ignored) {}
+
+        return banResponse(outBytes, "MISS", snapshot);
+      }
+
+    } catch (Exception e) {
+      return errorResponse(e);
+    }
+  }
+
+  /**
+   * Várias saídas do mesmo elenco numa chamada: {@code variants} é um array JSON
+   * de {@code {"name", "teamIdOverride", "countryIdOverride", "competitive"}}
+   * (todos opcionais). O elenco é lido e as características calculadas uma vez;
+   * a resposta é um .zip com um {@code <name>.ban} por variante, na ordem pedida.
+   */
+  @PostMapping(value = "/compile/variants", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<byte[]> compileVariants(
+      @RequestPart("template") MultipartFile templateBan,
+      @RequestPart("teamJson") MultipartFile teamJson,
+      @RequestPart("variants") String variantsJson
+  ) {
+    try {
+      if (templateBan == null || templateBan.isEmpty()) {
+        return ResponseEntity.badRequest().body("template (.ban) ausente".getBytes());
+      }
+      if (teamJson == null || teamJson.isEmpty()) {
+        return ResponseEntity.badRequest().body("teamJson (.json) ausente".getBytes());
+      }
+
+      byte[] templateBytes = templateBan.getBytes();
+      BanStreamReader.validateTemplate(templateBytes);
+
+      byte[] teamBytes = teamJson.getBytes();
+      List<String> names = new ArrayList<>();
+      List<JsonObject> specs = new ArrayList<>();
+      try {
+        JsonElement parsed = JsonParser.parseString(variantsJson == null ? "" : variantsJson);
+        if (!parsed.isJsonArray() || parsed.getAsJsonArray().isEmpty()) {
+          return textResponse(HttpStatus.BAD_REQUEST, "variants: esperado array JSON não vazio");
+        }
+        if (parsed.getAsJsonArray().size() > MAX_VARIANTS) {
+          return textResponse(HttpStatus.BAD_REQUEST, "variants: máximo " + MAX_VARIANTS);
+        }
+        for (JsonElement el : parsed.getAsJsonArray()) {
+          JsonObject spec = el.isJsonObject() ? el.getAsJsonObject() : new JsonObject();
+          String name = JsonUtil.getString(spec, "name");
+          if (name == null || !name.matches("[A-Za-z0-9._-]{1,64}")) name = "variant-" + (specs.size() + 1);
+          if (names.contains(name)) name = name + "-" + (specs.size() + 1);
+          names.add(name);
+          specs.add(spec);
+        }
+      } catch (JsonParseException e) {
+        return textResponse(HttpStatus.BAD_REQUEST, "JSON inválido: " + e.getMessage());
+      }
+
+      AdmissionControl.Permit permit = AdmissionControl.admit(AdmissionControl.estimate(
+          teamBytes.length, AdmissionControl.countPlayers(teamBytes), specs.size()));
+      if (permit == null) return overloaded();
+      try (permit) {
+        // o elenco só é decodificado depois de admitido: é a parte que pesa em memória
+        JsonElement root;
+        try {
+          root = JsonParser.parseString(new String(teamBytes, StandardCharsets.UTF_8));
+        } catch (JsonParseException e) {
+          return textResponse(HttpStatus.BAD_REQUEST, "JSON inválido: " + e.getMessage());
+        }
+
+        Path tmpDir = Files.createTempDirectory("bf-compile-");
+        Path templatePath = tmpDir.resolve("template.ban");
+        Files.write(templatePath, templateBytes);
+
+        List<BanCompiler.Variant> variants = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+          JsonObject spec = specs.get(i);
+          JsonElement comp = spec.get("competitive");
+          variants.add(new BanCompiler.Variant(
+              tmpDir.resolve(i + ".ban"),
+              JsonUtil.getInt(spec, "teamIdOverride"),
+              JsonUtil.getInt(spec, "countryIdOverride"),
+              comp != null && comp.isJsonPrimitive() && "true".equalsIgnoreCase(comp.getAsString())));
+        }
+
+        Mappings snapshot = Mappings.get();
+        CompileCost.Probe probe = CompileCost.start();
+        List<BanCompiler.CompileResult> results = BanCompiler.compileVariants(
+            root, teamJson.getOriginalFilename() == null ? "variants" : teamJson.getOriginalFilename(), templatePath, variants);
+        CompileCost.stop(probe, results.get(0).rosterSize());
+
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes)) {
+          for (int i = 0; i < variants.size(); i++) {
+            zip.putNextEntry(new ZipEntry(names.get(i) + ".ban"));
+            zip.write(Files.readAllBytes(variants.get(i).outBan()));
+            zip.closeEntry();
+          }
+        }
+
+        // limpeza best-effort
+        for (BanCompiler.Variant v : variants) {
+          try { Files.deleteIfExists(v.outBan()); } catch (Exception ignored) {}
+        }
+        try { Files.deleteIfExists(templatePath); } catch (Exception ignored) {}
+        try { Files.deleteIfExists(tmpDir); } catch (Exception ignored) {}
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/zip"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"times.zip\"")
+            .header("X-Mapping-Version", String.valueOf(snapshot.version()))
+            .body(zipBytes.toByteArray());
+      }
+
+    } catch (Exception e) {
+      return errorResponse(e);
+    }
+  }
+
+  /** 503 + Retry-After: sem orçamento de CPU/memória dentro do prazo (AdmissionControl). */
+  static ResponseEntity<byte[]> overloaded() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .contentType(MediaType.TEXT_PLAIN)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(AdmissionControl.retryAfterSeconds()))
+        .body("Servidor ocupado: tente novamente em instantes".getBytes());
+  }
+
+  private static ResponseEntity<byte[]> errorResponse(Exception e) {
+    if (e instanceof IllegalArgumentException || e instanceof StreamCorruptedException) {
+      return textResponse(HttpStatus.BAD_REQUEST, "Template inválido/incompatível: " + e.getMessage());
+    }
+    if (e instanceof InvalidClassException) {
       String rejected = br.brasfoot.compiler.SafeDeserialization.getLastRejected();
       String extra = (rejected != null)
           ? " [classe rejeitada: " + rejected + "]"
           : "";
-      return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-          .contentType(MediaType.TEXT_PLAIN)
-          .body(("Template incompatível com esta versão do Brasfoot" + extra).getBytes());
-    } catch (Exception e) {
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-          .contentType(MediaType.TEXT_PLAIN)
-          .body(("Erro interno: " + e.getMessage()).getBytes());
+      return textResponse(HttpStatus.BAD_REQUEST, "Template incompatível com esta versão do Brasfoot" + extra);
     }
+    return textResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Erro interno: " + e.getMessage());
+  }
+
+  private static ResponseEntity<byte[]> textResponse(HttpStatus status, String message) {
+    return ResponseEntity.status(status)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(message.getBytes());
+  }
+
+  private static ResponseEntity<byte[]> banResponse(byte[] ban, String cacheStatus, Mappings snapshot) {
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"time.ban\"")
+        .header("X-Compile-Cache", cacheStatus)
+        .header("X-Mapping-Version", String.valueOf(snapshot.version()))
+        .body(ban);
   }
 }
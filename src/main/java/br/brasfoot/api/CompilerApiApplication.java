@@ -1,11 +1,13 @@
 package br.brasfoot.api;
 
+import br.brasfoot.compiler.MappingWatcher;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication(scanBasePackages = "br.brasfoot")
 public class CompilerApiApplication {
   public static void main(String[] args) {
+    MappingWatcher.startIfConfigured();
     SpringApplication.run(CompilerApiApplication.class, args);
   }
 }
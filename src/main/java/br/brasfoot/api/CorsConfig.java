@@ -10,6 +10,6 @@ public class CorsConfig implements WebMvcConfigurer {
     registry.addMapping("/**")
         .allowedOrigins("*")
         .allowedHeaders("*")
-        .allowedMethods("POST", "OPTIONS");
+        .allowedMethods("GET", "POST", "PATCH", "DELETE", "OPTIONS");
   }
 }
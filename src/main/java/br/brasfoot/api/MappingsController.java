@@ -0,0 +1,43 @@
+package br.brasfoot.api;
+
+import br.brasfoot.compiler.CompileResultCache;
+import br.brasfoot.compiler.Mappings;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/mappings")
+public class MappingsController {
+
+  /** Versão, origem e digests por seção do snapshot de mapping atual. */
+  @GetMapping
+  public Map<String, Object> current() {
+    return Mappings.get().describe();
+  }
+
+  /**
+   * Relê o -Dbrasfoot.mappingFile e troca o snapshot sem reiniciar. Não aceita
+   * caminho: o endpoint não tem autenticação, e só o arquivo configurado no
+   * servidor pode ser lido. Em erro, o snapshot atual continua valendo.
+   */
+  @PostMapping("/reload")
+  public ResponseEntity<Map<String, Object>> reload() {
+    long before = Mappings.get().version();
+    try {
+      Mappings m = Mappings.reload();
+
+      Map<String, Object> out = new LinkedHashMap<>(m.describe());
+      out.put("changed", m.version() != before);
+      out.put("compileCache", CompileResultCache.snapshot());
+      return ResponseEntity.ok(out);
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", String.valueOf(e.getMessage())));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package br.brasfoot.api;
+
+import br.brasfoot.compiler.AdmissionControl;
+import br.brasfoot.compiler.CacheWarmup;
+import br.brasfoot.compiler.CompileCost;
+import br.brasfoot.compiler.CompileResultCache;
+import br.brasfoot.compiler.FuzzyMatcher;
+import br.brasfoot.compiler.HeuristicCounters;
+import br.brasfoot.compiler.RosterSessions;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+  /** Contadores de caminhos do HeuristicsEngine desde o último reset. */
+  @GetMapping("/heuristics")
+  public Map<String, Object> heuristics() {
+    return HeuristicCounters.snapshot();
+  }
+
+  /** Fecha o lote atual: devolve os contadores e zera para a próxima liga. */
+  @PostMapping("/heuristics/reset")
+  public Map<String, Object> resetHeuristics() {
+    return HeuristicCounters.snapshotAndReset();
+  }
+
+  /** CPU e bytes alocados por compilação, em histogramas por tamanho de elenco. */
+  @GetMapping("/compile")
+  public Map<String, Object> compile() {
+    return CompileCost.snapshot();
+  }
+
+  @PostMapping("/compile/reset")
+  public Map<String, Object> resetCompile() {
+    return CompileCost.snapshotAndReset();
+  }
+
+  /** Orçamento de CPU/memória em uso e requisições admitidas, enfileiradas e recusadas (503). */
+  @GetMapping("/admission")
+  public Map<String, Object> admission() {
+    return AdmissionControl.snapshot();
+  }
+
+  /** Acertos/falhas do cache de resultados do /compile e versão do mapping atual. */
+  @GetMapping("/compile-cache")
+  public Map<String, Object> compileCache() {
+    return CompileResultCache.snapshot();
+  }
+
+  /** Resultado do warmup da subida (times carregados, falhas, tempo). */
+  @GetMapping("/warmup")
+  public Map<String, Object> warmup() {
+    return CacheWarmup.snapshot();
+  }
+
+  /** Sessões de edição abertas, expiradas e jogadores recalculados. */
+  @GetMapping("/sessions")
+  public Map<String, Object> sessions() {
+    return RosterSessions.snapshot();
+  }
+
+  /** Países/posições resolvidos por aproximação e os que ficaram sem match. */
+  @GetMapping("/fuzzy")
+  public Map<String, Object> fuzzy() {
+    return FuzzyMatcher.snapshot();
+  }
+
+  @PostMapping("/fuzzy/reset")
+  public Map<String, Object> resetFuzzy() {
+    return FuzzyMatcher.snapshotAndReset();
+  }
+}
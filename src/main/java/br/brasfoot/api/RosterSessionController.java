@@ -0,0 +1,142 @@
+package br.brasfoot.api;
+
+import br.brasfoot.compiler.AdmissionControl;
+import br.brasfoot.compiler.BanStreamReader;
+import br.brasfoot.compiler.CompileCost;
+import br.brasfoot.compiler.Mappings;
+import br.brasfoot.compiler.RosterSessions;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Edição interativa de elenco (ver RosterSessions): o elenco sobe uma vez em
+ * {@code POST /sessions}, as mudanças chegam por {@code PATCH
+ * /sessions/{id}/roster} e {@code POST /sessions/{id}/compile} devolve o .ban
+ * recalculando só os jogadores alterados. Sessão expirada = 404.
+ */
+@RestController
+@RequestMapping("/sessions")
+public class RosterSessionController {
+
+  @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<Map<String, Object>> create(
+      @RequestPart("teamJson") MultipartFile teamJson,
+      @RequestPart(value = "template", required = false) MultipartFile templateBan
+  ) {
+    try {
+      if (teamJson == null || teamJson.isEmpty()) {
+        return error(HttpStatus.BAD_REQUEST, "teamJson (.json) ausente");
+      }
+      byte[] templateBytes = null;
+      if (templateBan != null && !templateBan.isEmpty()) {
+        templateBytes = templateBan.getBytes();
+        BanStreamReader.validateTemplate(templateBytes);
+      }
+      byte[] teamBytes = teamJson.getBytes();
+      String label = teamJson.getOriginalFilename() == null ? "session" : teamJson.getOriginalFilename();
+
+      // só a decodificação; cada compilação da sessão é admitida em compile()
+      AdmissionControl.Permit permit = AdmissionControl.admit(
+          AdmissionControl.estimate(teamBytes.length, AdmissionControl.countPlayers(teamBytes), 0));
+      if (permit == null) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(AdmissionControl.retryAfterSeconds()))
+            .body(Map.of("error", "Servidor ocupado: tente novamente em instantes"));
+      }
+      RosterSessions.Session s;
+      try (permit) {
+        s = RosterSessions.create(JsonParser.parseString(new String(teamBytes, StandardCharsets.UTF_8)), templateBytes, label);
+      }
+      Map<String, Object> out = new LinkedHashMap<>();
+      out.put("sessionId", s.id());
+      out.put("players", s.size());
+      return ResponseEntity.status(HttpStatus.CREATED).body(out);
+    } catch (JsonParseException e) {
+      return error(HttpStatus.BAD_REQUEST, "JSON inválido: " + e.getMessage());
+    } catch (IllegalArgumentException | StreamCorruptedException | InvalidClassException e) {
+      return error(HttpStatus.BAD_REQUEST, "Template/elenco inválido: " + e.getMessage());
+    } catch (Exception e) {
+      return error(HttpStatus.INTERNAL_SERVER_ERROR, "Erro interno: " + e.getMessage());
+    }
+  }
+
+  /** Corpo: array de operações add/remove/modify; tudo ou nada. */
+  @PatchMapping("/{id}/roster")
+  public ResponseEntity<Map<String, Object>> patch(@PathVariable("id") String id, @RequestBody String ops) {
+    RosterSessions.Session s = RosterSessions.get(id);
+    if (s == null) return error(HttpStatus.NOT_FOUND, "sessão inexistente ou expirada: " + id);
+    try {
+      JsonElement parsed = JsonParser.parseString(ops == null ? "" : ops);
+      if (!parsed.isJsonArray()) return error(HttpStatus.BAD_REQUEST, "esperado array JSON de operações");
+
+      RosterSessions.PatchResult r = s.patch(parsed.getAsJsonArray());
+      Map<String, Object> out = new LinkedHashMap<>();
+      out.put("sessionId", s.id());
+      out.put("players", r.players());
+      out.put("added", r.added());
+      out.put("removed", r.removed());
+      out.put("modified", r.modified());
+      return ResponseEntity.ok(out);
+    } catch (JsonParseException | IllegalArgumentException e) {
+      return error(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
+  @PostMapping("/{id}/compile")
+  public ResponseEntity<byte[]> compile(
+      @PathVariable("id") String id,
+      @RequestParam(value = "teamIdOverride", required = false) Integer teamIdOverride,
+      @RequestParam(value = "countryIdOverride", required = false) Integer countryIdOverride,
+      @RequestParam(value = "competitive", required = false, defaultValue = "false") String competitiveStr
+  ) {
+    RosterSessions.Session s = RosterSessions.get(id);
+    if (s == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND)
+          .contentType(MediaType.TEXT_PLAIN)
+          .body(("sessão inexistente ou expirada: " + id).getBytes());
+    }
+    // elenco já decodificado: só o custo da compilação
+    AdmissionControl.Permit permit = AdmissionControl.admit(AdmissionControl.estimate(0, s.size(), 1));
+    if (permit == null) return CompileController.overloaded();
+    try (permit) {
+      Mappings snapshot = Mappings.get();
+      CompileCost.Probe probe = CompileCost.start();
+      byte[] ban = s.compileBan(teamIdOverride, countryIdOverride, "true".equalsIgnoreCase(competitiveStr));
+      CompileCost.stop(probe, s.size());
+
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_OCTET_STREAM)
+          .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"time.ban\"")
+          .header("X-Mapping-Version", String.valueOf(snapshot.version()))
+          .body(ban);
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .contentType(MediaType.TEXT_PLAIN)
+          .body(("Erro interno: " + e.getMessage()).getBytes());
+    }
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> delete(@PathVariable("id") String id) {
+    return RosterSessions.remove(id)
+        ? ResponseEntity.noContent().build()
+        : ResponseEntity.notFound().build();
+  }
+
+  private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+    return ResponseEntity.status(status).body(Map.of("error", String.valueOf(message)));
+  }
+}
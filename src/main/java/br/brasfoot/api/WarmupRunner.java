@@ -0,0 +1,43 @@
+package br.brasfoot.api;
+
+import br.brasfoot.compiler.CacheWarmup;
+import br.brasfoot.compiler.TransfermarktCache;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warmup na subida (CacheWarmup, -Dbrasfoot.warmup.*). Roda na thread do
+ * SpringApplication.run: o Spring só publica ReadinessState.ACCEPTING_TRAFFIC
+ * depois que os ApplicationRunner terminam, então /actuator/health/readiness
+ * fica OUT_OF_SERVICE até o warmup acabar e o balanceador não manda usuário
+ * para um nó frio.
+ */
+@Component
+public class WarmupRunner implements ApplicationRunner {
+
+  private final ApplicationEventPublisher events;
+
+  public WarmupRunner(ApplicationEventPublisher events) {
+    this.events = events;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    CacheWarmup.Plan plan = CacheWarmup.planFromProperties();
+    TransfermarktCache cache = TransfermarktCache.shared();
+    if (plan.isEmpty()) return;
+    if (cache == null) {
+      System.err.println("[warmup] ignorado: -Dbrasfoot.tmCache.dir nao configurado");
+      return;
+    }
+
+    AvailabilityChangeEvent.publish(events, this, ReadinessState.REFUSING_TRAFFIC);
+    CacheWarmup.Summary s = CacheWarmup.run(cache, plan);
+    System.err.println("[warmup] times=" + s.teams() + " carregados=" + s.loaded() + " falhas=" + s.failed()
+        + " templates=" + s.templates() + " compilacoes=" + s.compiles() + " ms=" + s.millis());
+  }
+}
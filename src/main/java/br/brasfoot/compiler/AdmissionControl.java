@@ -0,0 +1,251 @@
+package br.brasfoot.compiler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Controle de admissão das compilações: cada requisição estima seu custo
+ * (tamanho do payload + jogadores no elenco) e segura permissões ponderadas de
+ * dois orçamentos — CPU (em unidades de ~40 jogadores compilados) e memória
+ * (MB estimados de árvore JSON + alocação por jogador). Sem orçamento livre a
+ * requisição espera até o prazo; passou do prazo, o chamador responde 503.
+ *
+ * Os dois orçamentos são reservados juntos, sob um lock (sem segurar CPU
+ * enquanto espera memória), e sem fila justa de propósito: a cada liberação
+ * todos os que esperam reavaliam, então um elenco pequeno que cabe no que
+ * sobrou entra na frente de um grande que ainda espera. E nenhuma requisição
+ * pesa mais que maxShare do orçamento: mesmo com um upload enorme rodando
+ * sobra espaço para as interativas — e um upload maior que o orçamento
+ * inteiro ainda pode rodar sozinho, em vez de nunca ser admitido.
+ *
+ * Configuração (properties do sistema):
+ * <pre>
+ * brasfoot.admission.cpuUnits   orçamento de CPU (padrão 4 × núcleos)
+ * brasfoot.admission.memoryMb   orçamento de memória (padrão 1/4 do -Xmx)
+ * brasfoot.admission.maxShare   fração máxima do orçamento por requisição (padrão 0.75)
+ * brasfoot.admission.queueMs    espera máxima por orçamento (padrão 2000)
+ * </pre>
+ * As requisições não passam aqui quando o resultado vem de cache.
+ */
+public final class AdmissionControl {
+
+  /** Jogadores por unidade de CPU. */
+  static final int PLAYERS_PER_CPU_UNIT = 40;
+  /** Árvore JsonElement em memória por byte de JSON (strings UTF-16, objetos, mapas). */
+  static final int JSON_TREE_FACTOR = 8;
+  /** JSON (indentado) por jogador, para elencos que não chegam como JSON. */
+  static final int JSON_BYTES_PER_PLAYER = 600;
+  /** Alocação por jogador numa compilação (objetos do jogador, stats, heurísticas, serialização). */
+  static final double MB_PER_PLAYER = 0.25;
+
+  private static final Budget DEFAULT = new Budget(
+      Integer.getInteger("brasfoot.admission.cpuUnits", 4 * Runtime.getRuntime().availableProcessors()),
+      Integer.getInteger("brasfoot.admission.memoryMb",
+          (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / (4L * 1024 * 1024))),
+      maxShare(System.getProperty("brasfoot.admission.maxShare", "0.75")),
+      Long.getLong("brasfoot.admission.queueMs", 2000));
+
+  /** Custo estimado, já limitado a maxShare de cada orçamento. */
+  public record Cost(int cpuUnits, int memoryMb) {}
+
+  /** Permissões em uso; close() devolve (uma vez só). */
+  public static final class Permit implements AutoCloseable {
+    private final Budget budget;
+    private final Cost cost;
+    private boolean released;
+
+    private Permit(Budget budget, Cost cost) {
+      this.budget = budget;
+      this.cost = cost;
+    }
+
+    public Cost cost() {
+      return cost;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (released) return;
+      released = true;
+      budget.release(cost);
+    }
+  }
+
+  private AdmissionControl() {}
+
+  /**
+   * {@code payloadBytes}: JSON que ainda vai ser decodificado (0 se já está em
+   * memória); {@code players}: tamanho do elenco; {@code outputs}: .ban gravados
+   * (compileVariants divide o resto do trabalho entre eles).
+   */
+  public static Cost estimate(long payloadBytes, int players, int outputs) {
+    return DEFAULT.estimate(payloadBytes, players, outputs);
+  }
+
+  /**
+   * Elenco lido de um cache do servidor ({@code players} estimado pelo que está
+   * gravado, ver TransfermarktCache.estimatedPlayers): a árvore decodificada
+   * pesa como o JSON equivalente, ~{@value #JSON_BYTES_PER_PLAYER} bytes por jogador.
+   */
+  public static Cost estimateStored(int players, int outputs) {
+    return estimate((long) Math.max(0, players) * JSON_BYTES_PER_PLAYER, players, outputs);
+  }
+
+  /**
+   * Jogadores no JSON sem decodificar: cada jogador tem um "position" (ver
+   * PositionUtil). Conta só a chave, então posições em outros formatos também
+   * valem; só serve para estimar custo.
+   */
+  public static int countPlayers(byte[] json) {
+    byte[] key = {'"', 'p', 'o', 's', 'i', 't', 'i', 'o', 'n', '"'};
+    int count = 0;
+    outer:
+    for (int i = 0; i <= json.length - key.length; i++) {
+      for (int k = 0; k < key.length; k++) {
+        if (json[i + k] != key[k]) continue outer;
+      }
+      count++;
+      i += key.length - 1;
+    }
+    return count;
+  }
+
+  /** Espera até brasfoot.admission.queueMs; null = sem orçamento, responder 503. */
+  public static Permit admit(Cost cost) {
+    return DEFAULT.admit(cost);
+  }
+
+  /** Segundos sugeridos no Retry-After de um 503. */
+  public static long retryAfterSeconds() {
+    return DEFAULT.retryAfterSeconds();
+  }
+
+  public static Map<String, Object> snapshot() {
+    return DEFAULT.snapshot();
+  }
+
+  /**
+   * Os dois orçamentos e quem está esperando por eles. O servidor usa um só,
+   * configurado pelas properties; os testes criam o seu.
+   */
+  static final class Budget {
+    private final int cpuUnits;
+    private final int memoryMb;
+    private final double maxShare;
+    private final long queueMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int cpuUsed;
+    private int memoryUsed;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    Budget(int cpuUnits, int memoryMb, double maxShare, long queueMs) {
+      this.cpuUnits = Math.max(1, cpuUnits);
+      this.memoryMb = Math.max(1, memoryMb);
+      this.maxShare = maxShare;
+      this.queueMs = Math.max(0, queueMs);
+    }
+
+    Cost estimate(long payloadBytes, int players, int outputs) {
+      int n = Math.max(0, players);
+      int outs = Math.max(1, outputs);
+      // leitura + heurísticas uma vez; seleção + gravação por saída (~1/4 do custo)
+      double cpu = Math.ceil(n * (1 + (outs - 1) / 4.0) / PLAYERS_PER_CPU_UNIT);
+      double mem = 1 + Math.max(0, payloadBytes) * (double) JSON_TREE_FACTOR / (1024 * 1024) + n * MB_PER_PLAYER;
+      return new Cost(
+          (int) Math.max(1, Math.min(cpu, cap(cpuUnits))),
+          (int) Math.max(1, Math.min(Math.ceil(mem), cap(memoryMb))));
+    }
+
+    Permit admit(Cost cost) {
+      long t0 = System.nanoTime();
+      long left = TimeUnit.MILLISECONDS.toNanos(queueMs);
+      lock.lock();
+      try {
+        while (cpuUsed + cost.cpuUnits() > cpuUnits || memoryUsed + cost.memoryMb() > memoryMb) {
+          if (left <= 0) {
+            rejected.increment();
+            return null;
+          }
+          left = released.awaitNanos(left);
+        }
+        cpuUsed += cost.cpuUnits();
+        memoryUsed += cost.memoryMb();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        rejected.increment();
+        return null;
+      } finally {
+        lock.unlock();
+      }
+
+      long waited = System.nanoTime() - t0;
+      if (waited > TimeUnit.MILLISECONDS.toNanos(1)) {
+        queued.increment();
+        waitNanos.add(waited);
+      }
+      admitted.increment();
+      return new Permit(this, cost);
+    }
+
+    private void release(Cost cost) {
+      lock.lock();
+      try {
+        cpuUsed -= cost.cpuUnits();
+        memoryUsed -= cost.memoryMb();
+        released.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    long retryAfterSeconds() {
+      return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(queueMs));
+    }
+
+    Map<String, Object> snapshot() {
+      int cpu, mem;
+      lock.lock();
+      try {
+        cpu = cpuUsed;
+        mem = memoryUsed;
+      } finally {
+        lock.unlock();
+      }
+      Map<String, Object> out = new LinkedHashMap<>();
+      out.put("cpuUnits", cpuUnits);
+      out.put("cpuUnitsInUse", cpu);
+      out.put("memoryMb", memoryMb);
+      out.put("memoryMbInUse", mem);
+      out.put("maxShare", maxShare);
+      out.put("queueMs", queueMs);
+      out.put("admitted", admitted.sum());
+      out.put("queued", queued.sum());
+      out.put("rejected", rejected.sum());
+      long q = queued.sum();
+      out.put("waitMsAvg", q == 0 ? 0.0 : Math.round(waitNanos.sum() / 1_000_000.0 / q * 100.0) / 100.0);
+      return out;
+    }
+
+    private double cap(int budget) {
+      return Math.max(1, Math.floor(budget * maxShare));
+    }
+  }
+
+  private static double maxShare(String s) {
+    try {
+      double v = Double.parseDouble(s.trim());
+      if (v > 0 && v <= 1) return v;
+    } catch (NumberFormatException ignored) {}
+    throw new IllegalArgumentException("brasfoot.admission.maxShare deve estar em (0, 1]: " + s);
+  }
+}
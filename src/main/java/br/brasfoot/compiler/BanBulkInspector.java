@@ -0,0 +1,241 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Auditoria em lote de .ban (--inspectDir): lê milhares de arquivos em paralelo
+ * com o BanStreamReader e escreve uma linha por jogador + uma linha de resumo
+ * por time, em NDJSON ou CSV.
+ *
+ * Não usa reflexão: o layout dos campos vem do descritor de classe do próprio
+ * stream (resolvido uma vez por classe em cada arquivo), e as linhas são
+ * emitidas na ordem dos arquivos, independentemente da ordem de conclusão.
+ */
+public final class BanBulkInspector {
+
+  public enum Format { NDJSON, CSV }
+
+  /** Totais do lote (impressos no stderr pelo Main). */
+  public record Summary(int files, int failed, long players, long juniors, long elapsedMs) {}
+
+  private static final String[] CSV_COLUMNS = {
+      "kind", "file", "team", "list", "idx", "name", "age", "pos", "side", "cr1", "cr2",
+      "nat", "starter", "hash", "star", "top",
+      "id", "vid", "level", "players", "juniors", "avgAge", "gk", "left", "starters", "error"
+  };
+
+  private BanBulkInspector() {}
+
+  public static Format parseFormat(String s) {
+    if (s == null || s.isBlank()) return Format.NDJSON;
+    return Format.valueOf(s.trim().toUpperCase(Locale.ROOT));
+  }
+
+  /**
+   * Varre dir (recursivo) por *.ban e escreve o relatório em out (stdout se null).
+   * threads <= 0 → número de processadores.
+   */
+  public static Summary inspectDir(Path dir, Path out, Format format, int threads) throws IOException {
+    long t0 = System.nanoTime();
+
+    List<Path> files;
+    try (Stream<Path> s = Files.walk(dir)) {
+      files = s.filter(Files::isRegularFile)
+          .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".ban"))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+
+    int nThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    // Janela de leituras em voo: mantém todos os núcleos ocupados sem segurar
+    // o corpus inteiro em memória enquanto o writer consome em ordem.
+    int window = nThreads * 4;
+
+    int failed = 0;
+    long players = 0;
+    long juniors = 0;
+
+    ExecutorService pool = Executors.newFixedThreadPool(nThreads, r -> {
+      Thread t = new Thread(r, "ban-inspect");
+      t.setDaemon(true);
+      return t;
+    });
+    Writer w = (out == null)
+        ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+        : Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+    try {
+      if (format == Format.CSV) writeCsvRow(w, CSV_COLUMNS);
+
+      ArrayDeque<Future<BanStreamReader.TeamData>> inFlight = new ArrayDeque<>();
+      int next = 0;
+      for (int done = 0; done < files.size(); done++) {
+        while (next < files.size() && inFlight.size() < window) {
+          Path f = files.get(next++);
+          inFlight.add(pool.submit(() -> BanStreamReader.readTeam(f)));
+        }
+
+        String file = dir.relativize(files.get(done)).toString();
+        BanStreamReader.TeamData team;
+        try {
+          team = inFlight.poll().get();
+        } catch (ExecutionException e) {
+          failed++;
+          Throwable cause = e.getCause() != null ? e.getCause() : e;
+          writeError(w, format, file, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+          continue;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("inspecao interrompida", e);
+        }
+
+        writeTeam(w, format, file, team);
+        players += team.players().size();
+        juniors += team.juniors().size();
+      }
+    } finally {
+      pool.shutdownNow();
+      if (out == null) w.flush(); else w.close();
+    }
+
+    long ms = (System.nanoTime() - t0) / 1_000_000L;
+    return new Summary(files.size(), failed, players, juniors, ms);
+  }
+
+  // -------------------------
+  // Linhas
+  // -------------------------
+
+  private static void writeTeam(Writer w, Format format, String file, BanStreamReader.TeamData team) throws IOException {
+    String teamName = teamName(team);
+    writePlayers(w, format, file, teamName, "l", team.players());
+    writePlayers(w, format, file, teamName, "m", team.juniors());
+
+    int gk = 0, left = 0, starters = 0;
+    long ageSum = 0;
+    for (Map<String, Object> p : team.players()) {
+      if (intOf(p.get("e")) == 0) gk++;
+      if (intOf(p.get("i")) == 1) left++;
+      if (intOf(p.get("f")) == 1) starters++;
+      ageSum += intOf(p.get("d"));
+    }
+    String avgAge = team.players().isEmpty()
+        ? ""
+        : String.format(Locale.ROOT, "%.2f", (double) ageSum / team.players().size());
+
+    String[] v = new String[CSV_COLUMNS.length];
+    v[0] = "team";
+    v[1] = file;
+    v[2] = teamName;
+    v[16] = str(team.field("id"));
+    v[17] = str(team.field("vid"));
+    v[18] = str(team.field("c"));
+    v[19] = String.valueOf(team.players().size());
+    v[20] = String.valueOf(team.juniors().size());
+    v[21] = avgAge;
+    v[22] = String.valueOf(gk);
+    v[23] = String.valueOf(left);
+    v[24] = String.valueOf(starters);
+    writeRow(w, format, v);
+  }
+
+  private static void writePlayers(Writer w, Format format, String file, String teamName,
+                                   String list, List<Map<String, Object>> rows) throws IOException {
+    int idx = 1;
+    for (Map<String, Object> p : rows) {
+      String[] v = new String[CSV_COLUMNS.length];
+      v[0] = "player";
+      v[1] = file;
+      v[2] = teamName;
+      v[3] = list;
+      v[4] = String.valueOf(idx++);
+      v[5] = str(p.get("a"));
+      v[6] = str(p.get("d"));
+      v[7] = str(p.get("e"));
+      v[8] = str(p.get("i"));
+      v[9] = str(p.get("g"));
+      v[10] = str(p.get("h"));
+      v[11] = str(p.get("c"));
+      v[12] = str(p.get("f"));
+      v[13] = str(p.get("hash"));
+      v[14] = str(p.get("b"));
+      v[15] = str(p.get("j"));
+      writeRow(w, format, v);
+    }
+  }
+
+  private static void writeError(Writer w, Format format, String file, String error) throws IOException {
+    String[] v = new String[CSV_COLUMNS.length];
+    v[0] = "error";
+    v[1] = file;
+    v[CSV_COLUMNS.length - 1] = error;
+    writeRow(w, format, v);
+  }
+
+  private static void writeRow(Writer w, Format format, String[] values) throws IOException {
+    if (format == Format.CSV) {
+      writeCsvRow(w, values);
+      return;
+    }
+    JsonObject o = new JsonObject();
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) o.addProperty(CSV_COLUMNS[i], values[i]);
+    }
+    w.write(o.toString());
+    w.write('\n');
+  }
+
+  private static void writeCsvRow(Writer w, String[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) w.write(',');
+      String v = values[i];
+      if (v == null) continue;
+      if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0) {
+        w.write('"');
+        w.write(v.replace("\"", "\"\""));
+        w.write('"');
+      } else {
+        w.write(v);
+      }
+    }
+    w.write('\n');
+  }
+
+  // -------------------------
+  // Helpers
+  // -------------------------
+
+  /** nome (e.t.nome) quando presente; templates antigos guardam o nome em e/d. */
+  private static String teamName(BanStreamReader.TeamData team) {
+    for (String k : new String[]{"nome", "e", "d"}) {
+      Object v = team.field(k);
+      if (v instanceof String s && !s.isBlank()) return s;
+    }
+    return "";
+  }
+
+  private static int intOf(Object o) {
+    return (o instanceof Number n) ? n.intValue() : -1;
+  }
+
+  private static String str(Object o) {
+    return o == null ? "" : String.valueOf(o);
+  }
+}
@@ -8,6 +8,7 @@ import com.google.gson.JsonObject;
 import java.awt.Color;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InvalidClassException;
 import java.io.ObjectInputFilter;
@@ -18,6 +19,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public final class BanCompiler {
 
@@ -27,9 +31,21 @@ public final class BanCompiler {
   private static final boolean DEBUG =
       Boolean.parseBoolean(System.getProperty("brasfoot.debug", "false"));
 
+  // Só para testes (BanCompilerRegressionTest): completa cada jogador já no
+  // laço, como antes da seleção preguiçosa, e fixa o sorteio de lado dos
+  // jogadores sem pé — para comparar as duas saídas campo a campo.
+  static volatile boolean eagerCharacteristics;
+  static volatile Long sideSeed;
+
   private BanCompiler() {}
 
-  public static void compileTeamJsonToBan(
+  /**
+   * Resumo do que foi compilado.
+   * rosterSize = jogadores no JSON de entrada; seniors/juniors = gravados em l/m.
+   */
+  public record CompileResult(int rosterSize, int seniors, int juniors) {}
+
+  public static CompileResult compileTeamJsonToBan(
       Path inputJson,
       Path templateBan,
       Path outBan,
@@ -38,14 +54,87 @@ public final class BanCompiler {
       boolean competitive          // modo competitivo: limite 25 jogadores, sem titulares
   ) throws IOException {
 
+    // Eventos JFR por etapa (CompilerEvents.CompileStage); o rótulo do time é o
+    // nome do JSON de entrada, o único identificador disponível desde o início.
+    String teamLabel = inputJson.getFileName().toString();
+    CompilerEvents.CompileStage stage = CompilerEvents.beginStage();
+
     JsonElement rootEl = readJsonRoot(inputJson);
+    CompilerEvents.endStage(stage, teamLabel, "read-json");
+
+    return compileTeamJsonToBan(rootEl, teamLabel, templateBan, outBan, teamIdOverride, countryIdOverride, competitive);
+  }
+
+  /**
+   * Mesmo pipeline a partir de um elenco já em memória (array de jogadores ou
+   * objeto com "team"/"roster"), ex.: vindo do TransfermarktCache. {@code rootEl}
+   * não é alterado.
+   */
+  public static CompileResult compileTeamJsonToBan(
+      JsonElement rootEl,
+      String teamLabel,
+      Path templateBan,
+      Path outBan,
+      Integer teamIdOverride,
+      Integer countryIdOverride,
+      boolean competitive
+  ) throws IOException {
+    return compileVariants(rootEl, teamLabel, templateBan,
+        List.of(new Variant(outBan, teamIdOverride, countryIdOverride, competitive))).get(0);
+  }
 
-    // 1) Carrega ou cria time
-    e.t team = loadOrCreateTeam(templateBan);
+  /** Uma saída de compileVariants: arquivo + parâmetros que só mudam o passo final. */
+  public record Variant(Path outBan, Integer teamIdOverride, Integer countryIdOverride, boolean competitive) {
+    public Variant {
+      Objects.requireNonNull(outBan, "outBan");
+    }
+  }
+
+  /**
+   * Várias saídas do mesmo elenco (ex.: competitivo e padrão, ou ids de
+   * time/país diferentes para saves diferentes). Leitura dos jogadores, lado,
+   * seleção de juniores e características rodam uma vez; por variante só
+   * template + overrides, corte de 25 / titulares, nacionalidade de quem não
+   * mapeou (cai no countryIdOverride) e a gravação. Resultados na ordem de
+   * {@code variants}.
+   */
+  public static List<CompileResult> compileVariants(
+      JsonElement rootEl,
+      String teamLabel,
+      Path templateBan,
+      List<Variant> variants
+  ) throws IOException {
+    byte[] templateBytes = (templateBan != null) ? Files.readAllBytes(templateBan) : null;
+    return compileVariants(rootEl, teamLabel, templateBytes, variants, null);
+  }
+
+  /**
+   * Nacionalidade do JSON + saída do HeuristicsEngine de um jogador. Só dependem
+   * do JSON do jogador e do mapping, então podem ser reaproveitadas entre
+   * compilações do mesmo elenco enquanto o jogador não mudar (RosterSessions).
+   */
+  record PlayerTraits(Integer nationalityId, int pos, int cr1, int cr2) {}
+
+  /**
+   * {@code traits}: memória por jogador, consultada antes do HeuristicsEngine e
+   * completada com quem foi calculado agora; null = sem memória. A chave é o
+   * próprio JsonObject do jogador (por identidade): quem chama não pode alterar
+   * um jogador já memorizado sem tirá-lo do mapa, e descarta o mapa se o
+   * mapping mudar.
+   */
+  static List<CompileResult> compileVariants(
+      JsonElement rootEl,
+      String teamLabel,
+      byte[] templateBytes,
+      List<Variant> variants,
+      Map<JsonObject, PlayerTraits> traits
+  ) throws IOException {
+    if (rootEl == null || rootEl.isJsonNull()) throw new IllegalArgumentException("JSON invalido (vazio): " + teamLabel);
+    if (variants == null || variants.isEmpty()) throw new IllegalArgumentException("nenhuma variante: " + teamLabel);
 
-    // 2) Aplica time (schema antigo apenas). No schema novo (array), mantém nome do template.
     JsonObject rootObj = rootEl.isJsonObject() ? rootEl.getAsJsonObject() : null;
-    applyTeamFromJson(team, rootObj, teamIdOverride, countryIdOverride);
+
+    CompilerEvents.CompileStage stage = CompilerEvents.beginStage();
 
     // 3) Resolve lista de jogadores
     JsonArray players = null;
@@ -77,6 +166,14 @@ public final class BanCompiler {
     ArrayList<Object> allBuiltPlayers     = new ArrayList<>();
     ArrayList<int[]>  deferredSideEntries = new ArrayList<>();
 
+    // ── Seleção preguiçosa ───────────────────────────────────────────────────
+    // O laço só monta o "esqueleto" de cada jogador (nome, idade, posição, lado):
+    // é o que a resolução de lado e as seleções (titulares, corte de 25, top
+    // juniores) consultam. Nacionalidade e características (HeuristicsEngine)
+    // ficam para quem de fato vai para o .ban — num elenco raspado com 60+
+    // jogadores (empréstimos, base), a maior parte do custo. Ver PendingPlayer.
+    java.util.IdentityHashMap<Object, PendingPlayer> pendingByPlayer = new java.util.IdentityHashMap<>();
+
     // Primeiro passo: verifica se ALGUM jogador do elenco tem minutesPlayedSeason.
     // Se sim, estamos num JSON novo — jogadores sem o campo realmente não jogaram na
     // temporada (minutesPlayedSeason = 0). Se NENHUM tem o campo, é um JSON antigo e
@@ -107,16 +204,15 @@ public final class BanCompiler {
         // resolvido agora ou adiado (pós-elenco). Não usamos pi.sideHint para
         // evitar falsos positivos em posições neutras (ex: "Atacante", "Zagueiro").
         // Tipos: 0=normal, 1=ambidestro-sem-hint (balanço do elenco), 2=sem-pé-sem-hint (50/50)
+        PendingPlayer pending = buildPlayerShell(pj);
+        e.g p = pending.p;
+        pendingByPlayer.put(p, pending);
+        if (eagerCharacteristics) completePlayer(pending, traits);
+
         String footCheck = JsonUtil.getString(pj, "foot");
-        String posTextCheck;
-        {
-          PositionUtil.PosInfo piTmp = PositionUtil.readPosInfo(pj);
-          posTextCheck = piTmp.bestText();
-        }
+        String posTextCheck = pending.posText;
         int sideDeferType = getSideDeferralType(footCheck, posTextCheck);
 
-        e.g p = buildPlayerFromJson(pj, team, countryIdOverride);
-
         // ── Rastreia jogador para resolução de lado adiado ────────────────────
         int playerGlobalIdx = allBuiltPlayers.size();
         allBuiltPlayers.add(p);
@@ -212,7 +308,10 @@ public final class BanCompiler {
       }
     }
 
+    CompilerEvents.endStage(stage, teamLabel, "build-players");
+
     // ── Resolução adiada de lado (pós-loop) ───────────────────────────────────
+    stage = CompilerEvents.beginStage();
     // Conta quantos jogadores com lado DEFINITIVO estão no elenco (senior + junior).
     // Brasfoot: 0=Direito, 1=Esquerdo.
     if (!deferredSideEntries.isEmpty()) {
@@ -232,7 +331,8 @@ public final class BanCompiler {
 
       if (DEBUG) System.out.println("[DEBUG] lado-adiado: esq=" + leftCount + " dir=" + rightCount);
 
-      java.util.Random rndSide = new java.util.Random();
+      Long seed = sideSeed;
+      java.util.Random rndSide = (seed != null) ? new java.util.Random(seed) : new java.util.Random();
       for (int[] d : deferredSideEntries) {
         Object pl = allBuiltPlayers.get(d[0]);
         int side;
@@ -277,6 +377,7 @@ public final class BanCompiler {
           if (side == 1) leftCount++; else rightCount++;
         }
         setAnyField(pl, side, "i", "lado");
+        recordSide(teamLabel, pl, d[1] == 1 ? "ambidestro" : "sem-pe", side, leftCount, rightCount);
         if (DEBUG) {
           Object nomeP = getAnyField(pl, "a");
           System.out.println("[DEBUG] lado-adiado-resolvido: " + nomeP
@@ -309,9 +410,7 @@ public final class BanCompiler {
       // (para avaliar se o elenco inteiro está desequilibrado)
       int fieldRight = 0, fieldLeft = 0;
       for (Object pl : allBuiltPlayers) {
-        Object posObj = getAnyField(pl, "e", "posicao");
-        int posCode = (posObj instanceof Number) ? ((Number) posObj).intValue() : -1;
-        if (posCode == 0) continue; // Goleiro — não conta
+        if (pendingByPlayer.get(pl).isGoalkeeper()) continue; // Goleiro — não conta
         Object sideVal = getAnyField(pl, "i", "lado");
         if (sideVal instanceof Number) {
           if (((Number) sideVal).intValue() == 1) fieldLeft++;
@@ -337,8 +436,8 @@ public final class BanCompiler {
               if (!deferredNoPeIndices.contains(idx)) continue;
 
               Object pl = allBuiltPlayers.get(idx);
-              Object posObj = getAnyField(pl, "e", "posicao");
-              int posCode = (posObj instanceof Number) ? ((Number) posObj).intValue() : -1;
+              // posição final: uma genérica só se resolve com as características
+              int posCode = finalPosition(pendingByPlayer.get(pl), traits);
               // Só posições neutras: Zagueiro(2), Meia/Volante(3), Atacante(4)
               if (posCode != 2 && posCode != 3 && posCode != 4) continue;
 
@@ -347,6 +446,7 @@ public final class BanCompiler {
 
               setAnyField(pl, 1, "i", "lado");
               flipped++;
+              recordSide(teamLabel, pl, "rebalance", 1, fieldLeft + flipped, fieldRight - flipped);
 
               if (DEBUG) {
                 Object nomeP = getAnyField(pl, "a");
@@ -363,107 +463,14 @@ public final class BanCompiler {
       }
     }
     // ─────────────────────────────────────────────────────────────────────────
+    CompilerEvents.endStage(stage, teamLabel, "side-resolution");
 
-    // Ordena sêniors por minutos DESC — base tanto para titulares quanto para corte competitivo.
-    minutesByIndex.sort((a, b) -> Integer.compare(b[1], a[1]));
-
-    if (competitive) {
-      // ── Modo Competitivo ──────────────────────────────────────────────────────
-      // Regras da liga:
-      //   1. Elenco sênior limitado a 25 jogadores.
-      //   2. Nenhum jogador é marcado como titular (f=0 para todos — sem boneco verde).
-      //
-      // Seleção em dois níveis para evitar que jogadores do sub-20 "roubem" vagas
-      // de jogadores que atuaram pelo time principal na temporada:
-      //
-      //   Nível 1 (prioridade): minutesPlayedSeason > 0 → jogaram pelo sênior esta temporada
-      //                         Ordenados por minutos na temporada DESC.
-      //   Nível 2 (preenchimento): minutesPlayedSeason == 0 → não jogaram pelo sênior
-      //                            (sub-20 ou não utilizados). Entram apenas para completar
-      //                            as 25 vagas restantes, ordenados por minutos de carreira DESC.
-      //
-      // Jogadores jovens que já atuam regularmente pelo sênior (minutesPlayedSeason > 0)
-      // são tratados como Nível 1 normalmente — independente da idade.
-      final int MAX_COMPETITIVE = 25;
-      ArrayList<Object> jogadoresFinal = new ArrayList<>();
-
-      if (anyHasSeasonMins) {
-        // ── Com dados de temporada: separar em dois níveis ───────────────────
-        ArrayList<int[]> nivel1 = new ArrayList<>(); // jogaram pelo sênior esta temporada
-        ArrayList<int[]> nivel2 = new ArrayList<>(); // não jogaram pelo sênior esta temporada
-
-        for (int[] entry : minutesByIndex) {
-          if (entry[1] > 0) nivel1.add(entry); // minutesPlayedSeason > 0
-          else              nivel2.add(entry); // minutesPlayedSeason == 0
-        }
-
-        // nivel1 já está ordenado DESC por season minutes (minutesByIndex foi sorted acima)
-        // nivel2: ordenar por minutos de carreira DESC (entry[2] = minutesPlayed)
-        nivel2.sort((a, b) -> Integer.compare(b[2], a[2]));
-
-        if (DEBUG) {
-          System.out.println("[DEBUG] competitivo nivel1 (jogaram pelo senior esta temporada): " + nivel1.size());
-          System.out.println("[DEBUG] competitivo nivel2 (sem minutos pelo senior): " + nivel2.size());
-        }
-
-        // Preenche até 25: nível 1 primeiro, depois nível 2
-        for (int[] entry : nivel1) {
-          if (jogadoresFinal.size() >= MAX_COMPETITIVE) break;
-          jogadoresFinal.add(jogadores.get(entry[0]));
-          if (DEBUG) {
-            Object nome = getAnyField(jogadores.get(entry[0]), "a");
-            System.out.println("[DEBUG] competitivo N1: " + nome + " seasonMins=" + entry[1]);
-          }
-        }
-        for (int[] entry : nivel2) {
-          if (jogadoresFinal.size() >= MAX_COMPETITIVE) break;
-          jogadoresFinal.add(jogadores.get(entry[0]));
-          if (DEBUG) {
-            Object nome = getAnyField(jogadores.get(entry[0]), "a");
-            System.out.println("[DEBUG] competitivo N2 (preenchimento): " + nome + " careerMins=" + entry[2]);
-          }
-        }
-      } else {
-        // ── Sem dados de temporada: usa top 25 por minutos de carreira ────────
-        for (int k = 0; k < Math.min(MAX_COMPETITIVE, minutesByIndex.size()); k++) {
-          jogadoresFinal.add(jogadores.get(minutesByIndex.get(k)[0]));
-        }
-      }
-
-      jogadores = jogadoresFinal;
-      if (DEBUG) System.out.println("[DEBUG] competitivo: elenco final com "
-          + jogadores.size() + "/" + minutesByIndex.size()
-          + " jogadores (sem marcacao de titulares).");
-    } else {
-      // ── Modo Padrão (individual / por liga) ──────────────────────────────────
-      // Marca os 15 jogadores com mais minutos na temporada como titulares (f=1 = boneco verde).
-      // Jogadores com 0 minutos na temporada ficam com f=0 (reserva).
-      int TITULARES_COUNT = 15;
-      int marked = 0;
-      if (DEBUG) System.out.println("[DEBUG] Titulares (top " + TITULARES_COUNT + " por minutos):");
-      for (int k = 0; k < minutesByIndex.size() && marked < TITULARES_COUNT; k++) {
-        int idx  = minutesByIndex.get(k)[0];
-        int mins = minutesByIndex.get(k)[1];
-
-        if (mins <= 0) break; // demais também serão 0
+    stage = CompilerEvents.beginStage();
 
-        setAnyField(jogadores.get(idx), 1, "f"); // f=1 = boneco verde (titular)
-        marked++;
-
-        if (DEBUG) {
-          Object nomeJ = getAnyField(jogadores.get(idx), "a");
-          System.out.println("[DEBUG]  " + marked + ". " + nomeJ + " mins=" + mins);
-        }
-      }
-      if (DEBUG) System.out.println("[DEBUG] Total titulares marcados: " + marked + "/" + TITULARES_COUNT);
-    }
-
-    // 4) Seta jogadores seniors no campo l
-    setAnyField(team, jogadores, "l", "jogadores");
-
-    // 5) Seta juniores no campo m:
+    // 5) Juniores (campo m), iguais em todas as variantes:
     //    - Se o JSON trouxe juniores → seleciona os top-MAX_JUNIORES por minutos
     //    - Se não trouxe (campo category ausente em todos) → preserva o que estava no template
+    ArrayList<Object> junioresFinal = null;
     if (!juniores.isEmpty()) {
       // Comparator com desempate em cascata:
       //   1º minutesPlayed (carreira) DESC
@@ -477,7 +484,7 @@ public final class BanCompiler {
       juniorStats.sort(junCmp);
 
       // ── Seleciona os top MAX_JUNIORES ─────────────────────────────────────
-      ArrayList<Object> junioresFinal = new ArrayList<>();
+      junioresFinal = new ArrayList<>();
       // Usamos Set de índices para controlar quem entrou
       java.util.Set<Integer> selectedIdx = new java.util.LinkedHashSet<>();
 
@@ -490,8 +497,7 @@ public final class BanCompiler {
       // Verifica se algum dos selecionados é goleiro (pos=0, campo "e")
       boolean hasGk = false;
       for (int idx : selectedIdx) {
-        Object posVal = getAnyField(juniores.get(idx), "e", "posicao");
-        if (posVal instanceof Number && ((Number) posVal).intValue() == 0) {
+        if (pendingByPlayer.get(juniores.get(idx)).isGoalkeeper()) {
           hasGk = true;
           break;
         }
@@ -502,8 +508,7 @@ public final class BanCompiler {
         int bestGkIdx = -1;
         for (int[] entry : juniorStats) {
           if (selectedIdx.contains(entry[0])) continue; // já está dentro
-          Object posVal = getAnyField(juniores.get(entry[0]), "e", "posicao");
-          if (posVal instanceof Number && ((Number) posVal).intValue() == 0) {
+          if (pendingByPlayer.get(juniores.get(entry[0])).isGoalkeeper()) {
             bestGkIdx = entry[0];
             break;
           }
@@ -558,33 +563,197 @@ public final class BanCompiler {
         if (DEBUG) System.out.println("[DEBUG]  " + markedJun + ". " + nomeJ);
       }
       if (DEBUG) System.out.println("[DEBUG] Total titulares juniores: " + markedJun + "/" + TITULARES_JUNIORES);
-
-      setAnyField(team, junioresFinal, "m", "juniores");
     } else {
-      // Sem juniores no JSON: preserva lista do template (ou garante ArrayList vazio)
-      Object junExistente = getAnyField(team, "m", "juniores");
-      if (junExistente == null) {
-        setAnyField(team, new ArrayList<>(), "m", "juniores");
-      }
       if (DEBUG) System.out.println("[DEBUG] juniores: nenhum no JSON, preservando template.");
     }
 
-    // 6) Salva
-    ensureParentDir(outBan);
-    writeSerialized(outBan, team);
+    CompilerEvents.endStage(stage, teamLabel, "juniors");
 
-    if (DEBUG) {
-      System.out.println("[DEBUG] wrote outBan=" + outBan);
-      System.out.println("[DEBUG] jogadores(senior).size=" + jogadores.size());
-      System.out.println("[DEBUG] juniores no .ban=" + Math.min(MAX_JUNIORES, juniores.size()) + "/" + juniores.size() + " (limite=" + MAX_JUNIORES + ")");
+    // Ordena sêniors por minutos DESC — base tanto para titulares quanto para corte competitivo.
+    minutesByIndex.sort((a, b) -> Integer.compare(b[1], a[1]));
+
+    ArrayList<CompileResult> results = new ArrayList<>(variants.size());
+    for (Variant v : variants) {
+      // 1) Carrega ou cria time (um objeto por variante)
+      stage = CompilerEvents.beginStage();
+      e.t team = loadOrCreateTeam(templateBytes);
+      CompilerEvents.endStage(stage, teamLabel, "load-template");
+
+      // 2) Aplica time (schema antigo apenas). No schema novo (array), mantém nome do template.
+      applyTeamFromJson(team, rootObj, v.teamIdOverride(), v.countryIdOverride());
+
+      // 4) Seta jogadores seniors no campo l
+      stage = CompilerEvents.beginStage();
+      ArrayList<Object> seniors = selectSeniors(jogadores, minutesByIndex, anyHasSeasonMins, v.competitive());
+      setAnyField(team, seniors, "l", "jogadores");
+      CompilerEvents.endStage(stage, teamLabel, "selection");
+
+      if (junioresFinal != null) {
+        setAnyField(team, junioresFinal, "m", "juniores");
+      } else {
+        // Sem juniores no JSON: preserva lista do template (ou garante ArrayList vazio)
+        Object junExistente = getAnyField(team, "m", "juniores");
+        if (junExistente == null) {
+          setAnyField(team, new ArrayList<>(), "m", "juniores");
+        }
+      }
+
+      // Nacionalidade + características só para quem vai para o .ban
+      stage = CompilerEvents.beginStage();
+      ArrayList<Object> written = new ArrayList<>(seniors);
+      if (junioresFinal != null) written.addAll(junioresFinal);
+      for (Object pl : written) {
+        PendingPlayer pp = pendingByPlayer.get(pl);
+        completePlayer(pp, traits);
+        applyNationality(pp, team, v.countryIdOverride());
+      }
+      if (DEBUG) System.out.println("[DEBUG] caracteristicas: " + written.size() + "/" + allBuiltPlayers.size() + " jogadores");
+      CompilerEvents.endStage(stage, teamLabel, "characteristics");
+
+      // 6) Salva
+      stage = CompilerEvents.beginStage();
+      ensureParentDir(v.outBan());
+      writeSerialized(v.outBan(), team);
+      CompilerEvents.endStage(stage, teamLabel, "write");
+
+      if (DEBUG) {
+        System.out.println("[DEBUG] wrote outBan=" + v.outBan());
+        System.out.println("[DEBUG] jogadores(senior).size=" + seniors.size());
+        System.out.println("[DEBUG] juniores no .ban=" + Math.min(MAX_JUNIORES, juniores.size()) + "/" + juniores.size() + " (limite=" + MAX_JUNIORES + ")");
+      }
+
+      Object junGravados = getAnyField(team, "m", "juniores");
+      results.add(new CompileResult(
+          players != null ? players.size() : 0,
+          seniors.size(),
+          (junGravados instanceof java.util.Collection<?> c) ? c.size() : 0));
+    }
+    return results;
+  }
+
+  /**
+   * Seniors gravados em l. Competitivo: top 25 (sem titulares); padrão: todos,
+   * com os 15 de mais minutos na temporada marcados (f=1).
+   * {@code minutesByIndex} já ordenado por minutos DESC.
+   */
+  private static ArrayList<Object> selectSeniors(ArrayList<Object> jogadores, ArrayList<int[]> minutesByIndex,
+                                                 boolean anyHasSeasonMins, boolean competitive) {
+    // Variante anterior pode ter marcado titulares nos mesmos objetos
+    for (Object pl : jogadores) setAnyField(pl, 0, "f");
+
+    if (competitive) {
+      // ── Modo Competitivo ──────────────────────────────────────────────────────
+      // Regras da liga:
+      //   1. Elenco sênior limitado a 25 jogadores.
+      //   2. Nenhum jogador é marcado como titular (f=0 para todos — sem boneco verde).
+      //
+      // Seleção em dois níveis para evitar que jogadores do sub-20 "roubem" vagas
+      // de jogadores que atuaram pelo time principal na temporada:
+      //
+      //   Nível 1 (prioridade): minutesPlayedSeason > 0 → jogaram pelo sênior esta temporada
+      //                         Ordenados por minutos na temporada DESC.
+      //   Nível 2 (preenchimento): minutesPlayedSeason == 0 → não jogaram pelo sênior
+      //                            (sub-20 ou não utilizados). Entram apenas para completar
+      //                            as 25 vagas restantes, ordenados por minutos de carreira DESC.
+      //
+      // Jogadores jovens que já atuam regularmente pelo sênior (minutesPlayedSeason > 0)
+      // são tratados como Nível 1 normalmente — independente da idade.
+      final int MAX_COMPETITIVE = 25;
+      ArrayList<Object> jogadoresFinal = new ArrayList<>();
+
+      if (anyHasSeasonMins) {
+        // ── Com dados de temporada: separar em dois níveis ───────────────────
+        ArrayList<int[]> nivel1 = new ArrayList<>(); // jogaram pelo sênior esta temporada
+        ArrayList<int[]> nivel2 = new ArrayList<>(); // não jogaram pelo sênior esta temporada
+
+        for (int[] entry : minutesByIndex) {
+          if (entry[1] > 0) nivel1.add(entry); // minutesPlayedSeason > 0
+          else              nivel2.add(entry); // minutesPlayedSeason == 0
+        }
+
+        // nivel1 já está ordenado DESC por season minutes (minutesByIndex foi sorted acima)
+        // nivel2: ordenar por minutos de carreira DESC (entry[2] = minutesPlayed)
+        nivel2.sort((a, b) -> Integer.compare(b[2], a[2]));
+
+        if (DEBUG) {
+          System.out.println("[DEBUG] competitivo nivel1 (jogaram pelo senior esta temporada): " + nivel1.size());
+          System.out.println("[DEBUG] competitivo nivel2 (sem minutos pelo senior): " + nivel2.size());
+        }
+
+        // Preenche até 25: nível 1 primeiro, depois nível 2
+        for (int[] entry : nivel1) {
+          if (jogadoresFinal.size() >= MAX_COMPETITIVE) break;
+          jogadoresFinal.add(jogadores.get(entry[0]));
+          if (DEBUG) {
+            Object nome = getAnyField(jogadores.get(entry[0]), "a");
+            System.out.println("[DEBUG] competitivo N1: " + nome + " seasonMins=" + entry[1]);
+          }
+        }
+        for (int[] entry : nivel2) {
+          if (jogadoresFinal.size() >= MAX_COMPETITIVE) break;
+          jogadoresFinal.add(jogadores.get(entry[0]));
+          if (DEBUG) {
+            Object nome = getAnyField(jogadores.get(entry[0]), "a");
+            System.out.println("[DEBUG] competitivo N2 (preenchimento): " + nome + " careerMins=" + entry[2]);
+          }
+        }
+      } else {
+        // ── Sem dados de temporada: usa top 25 por minutos de carreira ────────
+        for (int k = 0; k < Math.min(MAX_COMPETITIVE, minutesByIndex.size()); k++) {
+          jogadoresFinal.add(jogadores.get(minutesByIndex.get(k)[0]));
+        }
+      }
+
+      if (DEBUG) System.out.println("[DEBUG] competitivo: elenco final com "
+          + jogadoresFinal.size() + "/" + minutesByIndex.size()
+          + " jogadores (sem marcacao de titulares).");
+      return jogadoresFinal;
+    } else {
+      // ── Modo Padrão (individual / por liga) ──────────────────────────────────
+      // Marca os 15 jogadores com mais minutos na temporada como titulares (f=1 = boneco verde).
+      // Jogadores com 0 minutos na temporada ficam com f=0 (reserva).
+      int TITULARES_COUNT = 15;
+      int marked = 0;
+      if (DEBUG) System.out.println("[DEBUG] Titulares (top " + TITULARES_COUNT + " por minutos):");
+      for (int k = 0; k < minutesByIndex.size() && marked < TITULARES_COUNT; k++) {
+        int idx  = minutesByIndex.get(k)[0];
+        int mins = minutesByIndex.get(k)[1];
+
+        if (mins <= 0) break; // demais também serão 0
+
+        setAnyField(jogadores.get(idx), 1, "f"); // f=1 = boneco verde (titular)
+        marked++;
+
+        if (DEBUG) {
+          Object nomeJ = getAnyField(jogadores.get(idx), "a");
+          System.out.println("[DEBUG]  " + marked + ". " + nomeJ + " mins=" + mins);
+        }
+      }
+      if (DEBUG) System.out.println("[DEBUG] Total titulares marcados: " + marked + "/" + TITULARES_COUNT);
     }
+    return jogadores;
+  }
+
+  /** Evento JFR de lado atribuído no pós-elenco; nada é lido do jogador se desabilitado. */
+  private static void recordSide(String teamLabel, Object player, String kind, int side, int left, int right) {
+    CompilerEvents.SideResolution ev = new CompilerEvents.SideResolution();
+    if (!ev.shouldCommit()) return;
+    ev.team = teamLabel;
+    Object nome = getAnyField(player, "a");
+    ev.player = (nome != null) ? nome.toString() : null;
+    ev.kind = kind;
+    ev.side = side;
+    ev.leftCount = left;
+    ev.rightCount = right;
+    ev.commit();
   }
 
   // -------------------------
   // Team
   // -------------------------
 
-  private static e.t loadOrCreateTeam(Path templateBan) throws IOException {
+  /** Um e.t novo a cada chamada: variantes não compartilham o objeto do template. */
+  private static e.t loadOrCreateTeam(byte[] templateBan) throws IOException {
     if (templateBan != null) {
       Object templateObj;
       try {
@@ -724,7 +893,57 @@ public final class BanCompiler {
   // Player
   // -------------------------
 
-  private static e.g buildPlayerFromJson(JsonObject pj, e.t team, Integer countryIdOverride) {
+  /**
+   * Jogador montado só com o que a seleção do elenco consulta: nome, idade,
+   * posição mapeada e lado. Nacionalidade e características vêm em
+   * completePlayer, chamado apenas para quem vai para o .ban (ou, no
+   * rebalanceamento de lado, para quem precisa da posição final antes); o
+   * resultado vale para todas as variantes de compileVariants.
+   */
+  private static final class PendingPlayer {
+    final JsonObject pj;
+    final e.g p;
+    final String nome;
+    final int pos;
+    final String posText;
+    final ArrayList<String> secondaryPositions;
+    final double heightM;
+    final String foot;
+    final int ladoCalc;
+    /** O HeuristicsEngine não muda a posição (ver finalPosition). */
+    final boolean posFinal;
+    boolean completed;
+    /** Id Brasfoot da nacionalidade do JSON; null = não mapeou (ver applyNationality). */
+    Integer nationalityId;
+
+    PendingPlayer(JsonObject pj, e.g p, String nome, int pos, String posText, ArrayList<String> secondaryPositions,
+                  double heightM, String foot, int ladoCalc) {
+      this.pj = pj;
+      this.p = p;
+      this.nome = nome;
+      this.pos = pos;
+      this.posText = posText;
+      this.secondaryPositions = secondaryPositions;
+      this.heightM = heightM;
+      this.foot = foot;
+      this.ladoCalc = ladoCalc;
+      // Só posição genérica ("Defensor", "Meio-Campo"...) é reatribuída pelo
+      // HeuristicsEngine (sempre para 1..4); id fora de 0..4 vindo do mapping
+      // pode cair no perfil de atacante. As demais saem como entraram.
+      this.posFinal = pos >= 0 && pos <= 4 && PositionClassifier.classify(posText).genericCategory() == null;
+    }
+
+    /** Goleiro no .ban, sem precisar das características: genérica nunca vira goleiro. */
+    boolean isGoalkeeper() {
+      if (completed) {
+        Object posObj = getAnyField(p, "e", "posicao");
+        return posObj instanceof Number && ((Number) posObj).intValue() == 0;
+      }
+      return posFinal && pos == 0;
+    }
+  }
+
+  private static PendingPlayer buildPlayerShell(JsonObject pj) {
     e.g p = new e.g();
 
     // ===== Nome =====
@@ -766,11 +985,22 @@ public final class BanCompiler {
     setAnyField(p, ladoCalc, "i", "lado");
     // f começa como 0 (reserva) e será setado como 1 no loop de titulares
 
-    // ===== Nacionalidade =====
-    // Lê a primeira nacionalidade do JSON e converte para o ID do Brasfoot.
-    // Fallback: usa vid do time, ou 0 caso não mapeie.
-    String natName = NationalityUtil.readFirstNationalityName(pj);
-    Integer paisId = NationalityUtil.resolveCountryId(natName);
+    return new PendingPlayer(pj, p, nome, pos, posText, secondaryPositions, heightM, foot, ladoCalc);
+  }
+
+  /** Posição gravada no .ban; completa o jogador se ela depender das características. */
+  private static int finalPosition(PendingPlayer pp, Map<JsonObject, PlayerTraits> traits) {
+    if (!pp.posFinal) completePlayer(pp, traits);
+    Object posObj = getAnyField(pp.p, "e", "posicao");
+    return (posObj instanceof Number) ? ((Number) posObj).intValue() : -1;
+  }
+
+  /**
+   * Campo "c": nacionalidade do JSON; se não mapear, countryIdOverride, vid do
+   * time ou 0. Depois de completePlayer.
+   */
+  private static void applyNationality(PendingPlayer pp, e.t team, Integer countryIdOverride) {
+    Integer paisId = pp.nationalityId;
     if (paisId == null) {
       if (countryIdOverride != null) {
         paisId = countryIdOverride;
@@ -780,9 +1010,57 @@ public final class BanCompiler {
       }
     }
     if (paisId == null) paisId = 0;
-    setAnyField(p, paisId, "c");
+    setAnyField(pp.p, paisId, "c");
+  }
 
-    if (DEBUG) System.out.println("[DEBUG] " + nome + " nat=" + natName + " paisId=" + paisId);
+  /**
+   * Nacionalidade do JSON + características (HeuristicsEngine); idempotente.
+   * Com {@code traits}, um jogador já calculado só recebe o resultado.
+   */
+  private static void completePlayer(PendingPlayer pp, Map<JsonObject, PlayerTraits> traits) {
+    if (pp.completed) return;
+    if (traits != null) {
+      PlayerTraits known = traits.get(pp.pj);
+      if (known != null) {
+        pp.completed = true;
+        pp.nationalityId = known.nationalityId();
+        if (known.pos() != pp.pos) setAnyField(pp.p, known.pos(), "e", "posicao");
+        setAnyField(pp.p, known.cr1(), "g", "cr1");
+        setAnyField(pp.p, known.cr2(), "h", "cr2");
+        return;
+      }
+    }
+    completePlayer(pp);
+    if (traits != null) {
+      Object posObj = getAnyField(pp.p, "e", "posicao");
+      traits.put(pp.pj, new PlayerTraits(pp.nationalityId,
+          (posObj instanceof Number) ? ((Number) posObj).intValue() : pp.pos,
+          ((Number) getAnyField(pp.p, "g", "cr1")).intValue(),
+          ((Number) getAnyField(pp.p, "h", "cr2")).intValue()));
+    }
+  }
+
+  private static void completePlayer(PendingPlayer pp) {
+    if (pp.completed) return;
+    pp.completed = true;
+
+    JsonObject pj = pp.pj;
+    e.g p = pp.p;
+    String nome = pp.nome;
+    int pos = pp.pos;
+    String posText = pp.posText;
+    ArrayList<String> secondaryPositions = pp.secondaryPositions;
+    double heightM = pp.heightM;
+    String foot = pp.foot;
+    int ladoCalc = pp.ladoCalc;
+
+    // ===== Nacionalidade =====
+    // Lê a primeira nacionalidade do JSON e converte para o ID do Brasfoot.
+    // O fallback (override / vid do time) depende da variante: applyNationality.
+    String natName = NationalityUtil.readFirstNationalityName(pj);
+    pp.nationalityId = NationalityUtil.resolveCountryId(natName);
+
+    if (DEBUG) System.out.println("[DEBUG] " + nome + " nat=" + natName + " paisId=" + pp.nationalityId);
 
     // ===== Características (cr1, cr2) =====
     StatsReader.Stats st = StatsReader.read(pj);
@@ -877,8 +1155,6 @@ public final class BanCompiler {
           + " cr1=" + top2[0] + " cr2=" + top2[1]
       );
     }
-
-    return p;
   }
 
   // -------------------------
@@ -940,34 +1216,10 @@ public final class BanCompiler {
    * Analisa o texto normalizado (sem acentos, minúsculas) procurando por termos que
    * implicam lado — ex: "lateral esq", "ponta dir", "lw", "rw".
    * Posições neutras como "Atacante", "Zagueiro", "Volante" retornam false.
+   * A análise é feita uma vez por rótulo em PositionClassifier.
    */
   private static boolean positionImpliesSide(String posText) {
-    if (posText == null || posText.isBlank()) return false;
-
-    // Normaliza: remove acentos usando Character category (sem regex)
-    String norm = java.text.Normalizer.normalize(posText, java.text.Normalizer.Form.NFD);
-    StringBuilder sb = new StringBuilder();
-    for (char c : norm.toCharArray()) {
-      int type = Character.getType(c);
-      if (type != Character.NON_SPACING_MARK
-          && type != Character.COMBINING_SPACING_MARK
-          && type != Character.ENCLOSING_MARK) {
-        sb.append(c);
-      }
-    }
-    String p = sb.toString().toLowerCase(java.util.Locale.ROOT);
-
-    if (p.contains("lateral esq") || p.contains("lateral dir")) return true;
-    if (p.contains("ponta esq")   || p.contains("ponta dir"))   return true;
-    if (p.contains("left wing")   || p.contains("right wing"))  return true;
-    if (p.contains("meia esq")    || p.contains("meia dir"))    return true;
-    if (p.contains("ala esq")     || p.contains("ala dir"))     return true;
-    if (p.contains("extremo esq") || p.contains("extremo dir")) return true;
-    // Winger abreviado como token isolado
-    if (p.equals("lw") || p.equals("rw"))           return true;
-    if (p.startsWith("lw ") || p.startsWith("rw ")) return true;
-    if (p.endsWith(" lw") || p.endsWith(" rw"))     return true;
-    return false;
+    return PositionClassifier.classify(posText).impliesSide();
   }
 
   // -------------------------
@@ -982,8 +1234,12 @@ public final class BanCompiler {
   }
 
   private static Object readSerialized(Path file) throws IOException, ClassNotFoundException {
+    return readSerialized(Files.readAllBytes(file));
+  }
+
+  private static Object readSerialized(byte[] bytes) throws IOException, ClassNotFoundException {
     try (ObjectInputStream ois =
-             new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+             new ObjectInputStream(new BufferedInputStream(new ByteArrayInputStream(bytes)))) {
 
       ois.setObjectInputFilter(
           ObjectInputFilter.merge(
@@ -0,0 +1,475 @@
+package br.brasfoot.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Leitor streaming de .ban: percorre a gramática do Java Object Serialization
+ * Stream Protocol e extrai os campos do time (e.t) e as linhas de jogadores (e.g)
+ * SEM desserializar — nenhuma classe do stream é carregada ou instanciada
+ * (não precisa de e.t/e.g no classpath e não toca AWT por causa de Color).
+ *
+ * Cada descritor de classe é validado no momento em que aparece no stream:
+ *   - nome na whitelist (e.t, e.g, ArrayList, Color, float[])
+ *   - serialVersionUID esperado
+ *   - tipos dos campos conhecidos compatíveis com as classes locais
+ * Qualquer desvio → InvalidClassException antes de o objeto ser lido.
+ * Bytes fora da gramática → StreamCorruptedException.
+ *
+ * Usado para validação rápida do template no upload e pelo --inspect.
+ */
+public final class BanStreamReader {
+
+  // Limites equivalentes ao filtro usado em BanCompiler.readSerialized
+  private static final int MAX_DEPTH = 20;
+  private static final int MAX_REFS = 50_000;
+  private static final long MAX_BYTES = 5_242_880L;
+  private static final int MAX_ARRAY_LEN = 10_000;
+
+  private static final short STREAM_MAGIC = (short) 0xACED;
+  private static final short STREAM_VERSION = 5;
+  private static final int BASE_WIRE_HANDLE = 0x7E0000;
+
+  private static final byte TC_NULL = 0x70;
+  private static final byte TC_REFERENCE = 0x71;
+  private static final byte TC_CLASSDESC = 0x72;
+  private static final byte TC_OBJECT = 0x73;
+  private static final byte TC_STRING = 0x74;
+  private static final byte TC_ARRAY = 0x75;
+  private static final byte TC_CLASS = 0x76;
+  private static final byte TC_BLOCKDATA = 0x77;
+  private static final byte TC_ENDBLOCKDATA = 0x78;
+  private static final byte TC_RESET = 0x79;
+  private static final byte TC_BLOCKDATALONG = 0x7A;
+  private static final byte TC_EXCEPTION = 0x7B;
+  private static final byte TC_LONGSTRING = 0x7C;
+  private static final byte TC_PROXYCLASSDESC = 0x7D;
+  private static final byte TC_ENUM = 0x7E;
+
+  private static final byte SC_WRITE_METHOD = 0x01;
+  private static final byte SC_SERIALIZABLE = 0x02;
+  private static final byte SC_EXTERNALIZABLE = 0x04;
+
+  /** Classes aceitas no stream → serialVersionUID esperado. */
+  private static final Map<String, Long> ALLOWED_CLASSES = Map.of(
+      "e.t", 16L,
+      "e.g", 16L,
+      "java.util.ArrayList", 8683452581122892189L,
+      "java.awt.Color", 118526816881161077L,
+      "[F", 836686056779680834L
+  );
+
+  /**
+   * Assinatura dos campos das classes locais (e/t.java e e/g.java).
+   * Campos extras no stream são tolerados (a desserialização os ignora);
+   * campos conhecidos com tipo diferente quebrariam o readObject.
+   */
+  private static final Map<String, Map<String, String>> LOCAL_SCHEMAS = Map.of(
+      "e.t", schema(
+          "a", "I", "aid", "I", "b", "I", "c", "I",
+          "cor1", "Ljava/lang/String;", "cor2", "Ljava/lang/String;",
+          "d", "Ljava/lang/String;", "e", "Ljava/lang/String;", "f", "Ljava/lang/String;",
+          "g", "I", "h", "Ljava/lang/String;", "i", "I", "id", "I",
+          "j", "Ljava/awt/Color;", "k", "Ljava/awt/Color;",
+          "l", "Ljava/util/ArrayList;", "m", "Ljava/util/ArrayList;",
+          "mark", "Z", "n", "I", "nome", "Ljava/lang/String;", "nomep", "Ljava/lang/String;",
+          "o", "I", "sid", "I", "tid", "I", "valid", "Z", "vid", "I"),
+      "e.g", schema(
+          "a", "Ljava/lang/String;", "aid", "I", "b", "Z", "c", "I", "d", "I",
+          "e", "I", "f", "I", "g", "I", "h", "I", "hash", "I", "i", "I",
+          "j", "Z", "sid", "I", "tid", "I")
+  );
+
+  private BanStreamReader() {}
+
+  // -------------------------
+  // Modelo de saída
+  // -------------------------
+
+  /**
+   * Objeto lido do stream: nome da classe, campos serializados (na ordem do
+   * descritor, superclasses primeiro) e elementos escritos via writeObject
+   * (ex.: os itens de um ArrayList).
+   */
+  public record StreamObject(String className, Map<String, Object> fields, List<Object> elements) {
+    public Object field(String name) {
+      return fields.get(name);
+    }
+  }
+
+  /** Visão do .ban: campos escalares do time + jogadores (l) + juniores (m). */
+  public record TeamData(Map<String, Object> fields, List<Map<String, Object>> players,
+                         List<Map<String, Object>> juniors) {
+    public Object field(String name) {
+      return fields.get(name);
+    }
+  }
+
+  // -------------------------
+  // API
+  // -------------------------
+
+  public static TeamData readTeam(Path banFile) throws IOException {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(banFile))) {
+      return readTeam(in);
+    }
+  }
+
+  public static TeamData readTeam(byte[] banBytes) throws IOException {
+    return readTeam(new ByteArrayInputStream(banBytes));
+  }
+
+  public static TeamData readTeam(InputStream in) throws IOException {
+    Object root = new Parser(in).readRoot();
+    if (!(root instanceof StreamObject so) || !"e.t".equals(so.className())) {
+      String found = (root instanceof StreamObject so2) ? so2.className() : String.valueOf(root);
+      throw new InvalidClassException(found, "raiz do .ban nao eh e.t");
+    }
+    return toTeamData(so);
+  }
+
+  /**
+   * Validação rápida de template: percorre o stream inteiro aplicando whitelist,
+   * serialVersionUID, tipos de campo e limites. Lança InvalidClassException
+   * (classe/descritor inesperado) ou StreamCorruptedException (bytes inválidos).
+   */
+  public static void validateTemplate(byte[] banBytes) throws IOException {
+    readTeam(banBytes);
+  }
+
+  private static TeamData toTeamData(StreamObject team) {
+    Map<String, Object> scalars = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> e : team.fields().entrySet()) {
+      Object v = e.getValue();
+      if (v instanceof StreamObject so && "java.util.ArrayList".equals(so.className())) continue;
+      scalars.put(e.getKey(), v);
+    }
+    return new TeamData(
+        Collections.unmodifiableMap(scalars),
+        playerRows(team.field("l")),
+        playerRows(team.field("m")));
+  }
+
+  private static List<Map<String, Object>> playerRows(Object list) {
+    if (!(list instanceof StreamObject so)) return List.of();
+    List<Map<String, Object>> rows = new ArrayList<>(so.elements().size());
+    for (Object el : so.elements()) {
+      if (el instanceof StreamObject p && "e.g".equals(p.className())) {
+        rows.add(p.fields());
+      }
+    }
+    return Collections.unmodifiableList(rows);
+  }
+
+  private static Map<String, String> schema(String... kv) {
+    Map<String, String> m = new LinkedHashMap<>();
+    for (int i = 0; i + 1 < kv.length; i += 2) m.put(kv[i], kv[i + 1]);
+    return Collections.unmodifiableMap(m);
+  }
+
+  // -------------------------
+  // Parser
+  // -------------------------
+
+  private record FieldDesc(char type, String name, String signature) {}
+
+  private record ClassDesc(String name, long suid, byte flags, List<FieldDesc> fields, ClassDesc superDesc) {}
+
+  private static final class Parser {
+    private final CountingInputStream counter;
+    private final DataInputStream in;
+    private final List<Object> handles = new ArrayList<>();
+    private int depth;
+
+    Parser(InputStream raw) {
+      this.counter = new CountingInputStream(raw);
+      this.in = new DataInputStream(counter);
+    }
+
+    Object readRoot() throws IOException {
+      try {
+        short magic = in.readShort();
+        short version = in.readShort();
+        if (magic != STREAM_MAGIC || version != STREAM_VERSION) {
+          throw new StreamCorruptedException(String.format("cabecalho invalido: %04X %04X", magic, version));
+        }
+        return readContent();
+      } catch (EOFException e) {
+        throw new StreamCorruptedException("stream truncado");
+      }
+    }
+
+    private Object readContent() throws IOException {
+      if (++depth > MAX_DEPTH) throw new InvalidClassException("profundidade maxima excedida: " + MAX_DEPTH);
+      try {
+        byte tc = in.readByte();
+        switch (tc) {
+          case TC_NULL:      return null;
+          case TC_REFERENCE: return handle(in.readInt());
+          case TC_OBJECT:    return readNewObject();
+          case TC_STRING:    return newHandle(in.readUTF());
+          case TC_LONGSTRING: throw new InvalidClassException("String longa inesperada no .ban");
+          case TC_ARRAY:     return readNewArray();
+          case TC_CLASSDESC:
+          case TC_PROXYCLASSDESC:
+          case TC_CLASS:
+          case TC_ENUM:
+          case TC_EXCEPTION:
+          case TC_RESET:
+            throw new InvalidClassException(String.format("elemento inesperado no .ban: 0x%02X", tc));
+          default:
+            throw new StreamCorruptedException(String.format("type code invalido: 0x%02X", tc));
+        }
+      } finally {
+        depth--;
+      }
+    }
+
+    private StreamObject readNewObject() throws IOException {
+      ClassDesc desc = readClassDesc();
+      if (desc == null) throw new StreamCorruptedException("TC_OBJECT sem descritor de classe");
+
+      Map<String, Object> fields = new LinkedHashMap<>();
+      List<Object> elements = new ArrayList<>();
+      StreamObject obj = new StreamObject(desc.name(), fields, elements);
+      newHandle(obj);
+
+      // classdata: da superclasse mais alta até a classe concreta
+      List<ClassDesc> chain = new ArrayList<>();
+      for (ClassDesc c = desc; c != null; c = c.superDesc()) chain.add(0, c);
+
+      for (ClassDesc c : chain) {
+        if ((c.flags() & SC_EXTERNALIZABLE) != 0) {
+          throw new InvalidClassException(c.name(), "Externalizable nao suportado");
+        }
+        for (FieldDesc f : c.fields()) {
+          fields.put(f.name(), readFieldValue(f));
+        }
+        if ((c.flags() & SC_WRITE_METHOD) != 0) {
+          readAnnotation(elements);
+        }
+      }
+      return obj;
+    }
+
+    private Object readNewArray() throws IOException {
+      ClassDesc desc = readClassDesc();
+      if (desc == null || !desc.name().startsWith("[")) {
+        throw new StreamCorruptedException("TC_ARRAY sem descritor de array");
+      }
+      List<Object> values = new ArrayList<>();
+      newHandle(values);
+      int len = in.readInt();
+      if (len < 0 || len > MAX_ARRAY_LEN) throw new InvalidClassException(desc.name(), "tamanho de array invalido: " + len);
+      char comp = desc.name().charAt(1);
+      for (int i = 0; i < len; i++) {
+        values.add(readPrimitiveOrObject(comp));
+      }
+      return Collections.unmodifiableList(values);
+    }
+
+    /** Lê anotações escritas por writeObject até TC_ENDBLOCKDATA (block data é descartado). */
+    private void readAnnotation(List<Object> out) throws IOException {
+      while (true) {
+        in.mark(1);
+        byte tc = in.readByte();
+        if (tc == TC_ENDBLOCKDATA) return;
+        if (tc == TC_BLOCKDATA) {
+          skipFully(in.readUnsignedByte());
+          continue;
+        }
+        if (tc == TC_BLOCKDATALONG) {
+          int n = in.readInt();
+          if (n < 0) throw new StreamCorruptedException("block data negativo");
+          skipFully(n);
+          continue;
+        }
+        in.reset();
+        out.add(readContent());
+      }
+    }
+
+    private ClassDesc readClassDesc() throws IOException {
+      byte tc = in.readByte();
+      switch (tc) {
+        case TC_NULL:
+          return null;
+        case TC_REFERENCE: {
+          Object h = handle(in.readInt());
+          if (!(h instanceof ClassDesc cd)) throw new StreamCorruptedException("referencia nao aponta para descritor");
+          return cd;
+        }
+        case TC_CLASSDESC:
+          return readNewClassDesc();
+        case TC_PROXYCLASSDESC:
+          throw new InvalidClassException("proxy class descriptor nao permitido");
+        default:
+          throw new StreamCorruptedException(String.format("descritor de classe invalido: 0x%02X", tc));
+      }
+    }
+
+    private ClassDesc readNewClassDesc() throws IOException {
+      String name = in.readUTF();
+      long suid = in.readLong();
+
+      // Whitelist ANTES de qualquer outro byte do descritor ser interpretado
+      Long expected = ALLOWED_CLASSES.get(name);
+      if (expected == null) {
+        SafeDeserialization.recordRejected(name);
+        throw new InvalidClassException(name, "classe nao permitida em .ban");
+      }
+      if (expected != suid) {
+        SafeDeserialization.recordRejected(name);
+        throw new InvalidClassException(name, "serialVersionUID incompativel: stream=" + suid + " local=" + expected);
+      }
+
+      int handleIdx = handles.size();
+      newHandle(null); // reservado; preenchido ao final (superDesc pode referenciar handles novos)
+
+      byte flags = in.readByte();
+      if ((flags & (SC_SERIALIZABLE | SC_EXTERNALIZABLE)) == 0 && !name.startsWith("[")) {
+        throw new InvalidClassException(name, "classe nao serializavel");
+      }
+
+      int count = in.readUnsignedShort();
+      List<FieldDesc> fields = new ArrayList<>(count);
+      Map<String, String> local = LOCAL_SCHEMAS.get(name);
+      for (int i = 0; i < count; i++) {
+        char type = (char) in.readUnsignedByte();
+        String fname = in.readUTF();
+        String sig;
+        if (type == 'L' || type == '[') {
+          Object s = readContent();
+          if (!(s instanceof String str)) throw new StreamCorruptedException("assinatura de campo invalida: " + fname);
+          sig = str;
+        } else if ("BCDFIJSZ".indexOf(type) >= 0) {
+          sig = String.valueOf(type);
+        } else {
+          throw new StreamCorruptedException("type code de campo invalido: " + type);
+        }
+        if (local != null) {
+          String want = local.get(fname);
+          if (want != null && !want.equals(sig)) {
+            SafeDeserialization.recordRejected(name);
+            throw new InvalidClassException(name, "campo " + fname + " com tipo " + sig + " (esperado " + want + ")");
+          }
+        }
+        fields.add(new FieldDesc(type, fname, sig));
+      }
+
+      List<Object> annotation = new ArrayList<>();
+      readAnnotation(annotation);
+      if (!annotation.isEmpty()) throw new InvalidClassException(name, "classAnnotation inesperada");
+
+      ClassDesc superDesc = readClassDesc();
+      ClassDesc cd = new ClassDesc(name, suid, flags, List.copyOf(fields), superDesc);
+      handles.set(handleIdx, cd);
+      return cd;
+    }
+
+    private Object readFieldValue(FieldDesc f) throws IOException {
+      return readPrimitiveOrObject(f.type());
+    }
+
+    private Object readPrimitiveOrObject(char type) throws IOException {
+      switch (type) {
+        case 'B': return in.readByte();
+        case 'C': return in.readChar();
+        case 'D': return in.readDouble();
+        case 'F': return in.readFloat();
+        case 'I': return in.readInt();
+        case 'J': return in.readLong();
+        case 'S': return in.readShort();
+        case 'Z': return in.readBoolean();
+        case 'L':
+        case '[':
+          return readContent();
+        default:
+          throw new StreamCorruptedException("tipo invalido: " + type);
+      }
+    }
+
+    private Object newHandle(Object o) throws IOException {
+      if (handles.size() >= MAX_REFS) throw new InvalidClassException("limite de referencias excedido: " + MAX_REFS);
+      handles.add(o);
+      return o;
+    }
+
+    private Object handle(int wire) throws IOException {
+      int idx = wire - BASE_WIRE_HANDLE;
+      if (idx < 0 || idx >= handles.size()) throw new StreamCorruptedException("handle invalido: " + Integer.toHexString(wire));
+      return handles.get(idx);
+    }
+
+    private void skipFully(int n) throws IOException {
+      int left = n;
+      while (left > 0) {
+        int s = in.skipBytes(left);
+        if (s <= 0) throw new StreamCorruptedException("stream truncado");
+        left -= s;
+      }
+    }
+  }
+
+  /** Conta bytes lidos e aplica MAX_BYTES (mesmo teto do filtro do readSerialized). */
+  private static final class CountingInputStream extends FilterInputStream {
+    private long count;
+    private long markCount;
+
+    CountingInputStream(InputStream in) {
+      super(in.markSupported() ? in : new BufferedInputStream(in));
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) advance(1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) advance(n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long s = super.skip(n);
+      if (s > 0) advance(s);
+      return s;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+      super.mark(readlimit);
+      markCount = count;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+      super.reset();
+      count = markCount;
+    }
+
+    private void advance(long n) throws IOException {
+      count += n;
+      if (count > MAX_BYTES) throw new InvalidClassException("tamanho maximo excedido: " + MAX_BYTES + " bytes");
+    }
+  }
+}
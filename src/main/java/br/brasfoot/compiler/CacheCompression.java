@@ -0,0 +1,209 @@
+package br.brasfoot.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressão opcional dos arquivos do TransfermarktCache (compression=deflate
+ * em cache.properties), com dicionário pré-definido.
+ *
+ * Cada elenco é pequeno demais para o Deflate aprender sozinho as chaves que se
+ * repetem em todos os arquivos ("matchesRelated", "minutesPlayed", "position",
+ * "nationality"...). O dicionário já traz essas chaves — no layout indentado do
+ * Gson e na tabela de strings do RosterCodec — e os valores mais comuns, então
+ * até o primeiro jogador de cada arquivo sai comprimido.
+ *
+ * <pre>
+ * "BFDZ" | versão do dicionário u8 | tamanho descomprimido (int32 BE) | stream zlib
+ * </pre>
+ *
+ * A extensão do arquivo continua sendo a do formato (.json/.bin); a leitura
+ * detecta a compressão pelo magic. Dicionários são imutáveis: mudar o conteúdo
+ * exige uma versão nova, mantendo as antigas para ler arquivos já gravados.
+ */
+public final class CacheCompression {
+
+  public enum Mode { NONE, DEFLATE }
+
+  static final byte[] MAGIC = {'B', 'F', 'D', 'Z'};
+  static final int HEADER = MAGIC.length + 1 + 4;
+
+  /** Versão usada em escritas novas. */
+  static final int CURRENT_DICT = 1;
+
+  // Limite de segurança na descompressão (cabeçalho corrompido não aloca GBs).
+  private static final int MAX_RAW = 64 * 1024 * 1024;
+
+  private CacheCompression() {}
+
+  public static Mode parseMode(String s) {
+    if (s == null || s.isBlank()) return Mode.NONE;
+    return switch (s.trim().toLowerCase(Locale.ROOT)) {
+      case "none", "off" -> Mode.NONE;
+      case "deflate", "zlib" -> Mode.DEFLATE;
+      default -> throw new IllegalArgumentException("compressao desconhecida: " + s);
+    };
+  }
+
+  static boolean isCompressed(ByteBuffer buf) {
+    if (buf.remaining() < HEADER) return false;
+    int p = buf.position();
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buf.get(p + i) != MAGIC[i]) return false;
+    }
+    return true;
+  }
+
+  static byte[] deflate(byte[] raw) {
+    Deflater d = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      d.setDictionary(dictionary(CURRENT_DICT));
+      d.setInput(raw);
+      d.finish();
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + HEADER + 64);
+      out.write(MAGIC, 0, MAGIC.length);
+      out.write(CURRENT_DICT);
+      out.write(raw.length >>> 24);
+      out.write(raw.length >>> 16);
+      out.write(raw.length >>> 8);
+      out.write(raw.length);
+
+      byte[] chunk = new byte[8192];
+      while (!d.finished()) {
+        int n = d.deflate(chunk);
+        out.write(chunk, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      d.end();
+    }
+  }
+
+  /** Descomprime a partir da posição atual (que deve estar no magic). */
+  static byte[] inflate(ByteBuffer buf) throws IOException {
+    if (!isCompressed(buf)) throw new IOException("cache comprimido invalido: magic");
+    buf.position(buf.position() + MAGIC.length);
+    int dictVersion = buf.get() & 0xFF;
+    int rawLen = buf.getInt();
+    if (rawLen < 0 || rawLen > MAX_RAW) throw new IOException("cache comprimido: tamanho invalido " + rawLen);
+    byte[] dict;
+    try {
+      dict = dictionary(dictVersion);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+
+    Inflater inf = new Inflater();
+    try {
+      inf.setInput(buf);
+      byte[] raw = new byte[rawLen];
+      int off = 0;
+      while (off < rawLen) {
+        int n = inf.inflate(raw, off, rawLen - off);
+        if (n == 0) {
+          if (inf.needsDictionary()) {
+            inf.setDictionary(dict);
+          } else if (inf.finished() || inf.needsInput()) {
+            throw new IOException("cache comprimido truncado");
+          }
+        }
+        off += n;
+      }
+      return raw;
+    } catch (DataFormatException e) {
+      throw new IOException("cache comprimido corrompido: " + e.getMessage(), e);
+    } finally {
+      inf.end();
+    }
+  }
+
+  static byte[] dictionary(int version) {
+    if (version == 1) return DICT_V1;
+    throw new IllegalArgumentException("dicionario de compressao desconhecido: v" + version);
+  }
+
+  // -------------------------
+  // Dicionário v1 (NÃO ALTERAR: arquivos gravados dependem dos bytes exatos)
+  // -------------------------
+
+  private static final List<String> KEYS_V1 = List.of(
+      "id", "name", "age", "height", "nationality", "foot", "position", "primary",
+      "secondary", "stats", "matchesRelated", "matchesPlayed", "goals", "assists",
+      "ownGoals", "fromBench", "substituted", "yellow", "yellowRed", "red",
+      "penaltyGoals", "minutesPerGoal", "minutesPlayed", "gk", "goalsConceded", "cleanSheets");
+
+  private static final List<String> VALUES_V1 = List.of(
+      "Alemanha", "Espanha", "Portugal", "Colômbia", "Uruguai", "Paraguai", "Argentina", "Brasil",
+      "ambidestro", "esquerdo", "direito",
+      "Seg. Atacante", "Meia Esquerda", "Meia Direita", "Lateral Esq.", "Lateral Dir.",
+      "Goleiro", "Centroavante", "Volante", "Zagueiro", "Meia Ofensivo",
+      "Ponta Esquerda", "Meia Central", "Ponta Direita");
+
+  // Declarado depois das listas: inicialização estática segue a ordem do arquivo.
+  private static final byte[] DICT_V1 = buildDictV1();
+
+  /**
+   * Dicionário = valores comuns + tabela de chaves no formato do RosterCodec +
+   * um jogador como o Gson indenta. O Deflate alcança até 32 KB para trás e
+   * prefere distâncias curtas, então o mais frequente fica no fim.
+   */
+  private static byte[] buildDictV1() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(2048);
+
+    StringBuilder values = new StringBuilder();
+    for (String v : VALUES_V1) values.append('"').append(v).append("\",\n");
+    out.writeBytes(values.toString().getBytes(StandardCharsets.UTF_8));
+
+    // cabeçalho do RosterCodec v1 (literal: o dicionário não pode mudar junto)
+    out.writeBytes(new byte[] {'B', 'F', 'R', 'S', 1});
+    for (String k : KEYS_V1) {
+      byte[] b = k.getBytes(StandardCharsets.UTF_8);
+      out.write(b.length);
+      out.writeBytes(b);
+    }
+
+    String player = """
+          {
+            "id": 0,
+            "name": "",
+            "age": 0,
+            "height": 1.8,
+            "nationality": "Brasil",
+            "foot": "direito",
+            "position": {
+              "primary": "",
+              "secondary": []
+            },
+            "stats": {
+              "matchesRelated": 0,
+              "matchesPlayed": 0,
+              "goals": 0,
+              "assists": 0,
+              "ownGoals": 0,
+              "fromBench": 0,
+              "substituted": 0,
+              "yellow": 0,
+              "yellowRed": 0,
+              "red": 0,
+              "penaltyGoals": 0,
+              "minutesPerGoal": 0,
+              "minutesPlayed": 0,
+              "gk": {
+                "goalsConceded": 0,
+                "cleanSheets": 0
+              }
+            }
+          },
+        """;
+    out.writeBytes(player.getBytes(StandardCharsets.UTF_8));
+    return out.toByteArray();
+  }
+}
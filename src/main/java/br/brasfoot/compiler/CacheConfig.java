@@ -0,0 +1,105 @@
+package br.brasfoot.compiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Configuração por diretório de cache, em {@code <baseDir>/cache.properties}.
+ * Ausente = padrões (JSON), para que caches antigos continuem funcionando.
+ *
+ * <pre>
+ * format=json|bin
+ * compression=none|deflate
+ * layout=flat|sharded
+ * delta=false|true         temporadas como diferença contra uma base (SeasonDelta)
+ * rebaseEvery=8            deltas por base antes de gravar uma temporada inteira
+ * </pre>
+ */
+public record CacheConfig(CacheFormat format, CacheCompression.Mode compression, CacheLayout layout,
+                          boolean delta, int rebaseEvery) {
+
+  public static final int DEFAULT_REBASE_EVERY = 8;
+
+  public static final String FILE = "cache.properties";
+
+  public static final CacheConfig DEFAULT = new CacheConfig(CacheFormat.JSON, CacheCompression.Mode.NONE);
+
+  public CacheConfig(CacheFormat format, CacheCompression.Mode compression) {
+    this(format, compression, CacheLayout.FLAT);
+  }
+
+  public CacheConfig(CacheFormat format, CacheCompression.Mode compression, CacheLayout layout) {
+    this(format, compression, layout, false, DEFAULT_REBASE_EVERY);
+  }
+
+  public CacheConfig {
+    if (rebaseEvery < 1) throw new IllegalArgumentException("rebaseEvery deve ser >= 1: " + rebaseEvery);
+  }
+
+  public static CacheConfig load(Path baseDir) {
+    Path p = baseDir.resolve(FILE);
+    if (!Files.isRegularFile(p)) return DEFAULT;
+
+    Properties props = new Properties();
+    try (Reader r = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+      props.load(r);
+    } catch (IOException e) {
+      throw new IllegalStateException("Falha ao ler " + p + ": " + e.getMessage(), e);
+    }
+    return new CacheConfig(
+        CacheFormat.parse(props.getProperty("format")),
+        CacheCompression.parseMode(props.getProperty("compression")),
+        CacheLayout.parseLayout(props.getProperty("layout")),
+        Boolean.parseBoolean(props.getProperty("delta", "false").trim()),
+        parseRebase(props.getProperty("rebaseEvery")));
+  }
+
+  private static int parseRebase(String s) {
+    if (s == null || s.isBlank()) return DEFAULT_REBASE_EVERY;
+    try {
+      return Integer.parseInt(s.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("rebaseEvery invalido: " + s);
+    }
+  }
+
+  public void store(Path baseDir) throws IOException {
+    Properties props = new Properties();
+    props.setProperty("format", format.name().toLowerCase(Locale.ROOT));
+    props.setProperty("compression", compression.name().toLowerCase(Locale.ROOT));
+    props.setProperty("layout", layout.name().toLowerCase(Locale.ROOT));
+    props.setProperty("delta", String.valueOf(delta));
+    props.setProperty("rebaseEvery", String.valueOf(rebaseEvery));
+
+    // atômico: um servidor relendo o arquivo (TransfermarktCache.refreshConfig) nunca pega pela metade
+    StringWriter w = new StringWriter();
+    props.store(w, "TransfermarktCache");
+    TransfermarktCache.writeAtomic(baseDir.resolve(FILE), w.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  public CacheConfig withFormat(CacheFormat f) {
+    return new CacheConfig(f, compression, layout, delta, rebaseEvery);
+  }
+
+  public CacheConfig withCompression(CacheCompression.Mode c) {
+    return new CacheConfig(format, c, layout, delta, rebaseEvery);
+  }
+
+  public CacheConfig withLayout(CacheLayout l) {
+    return new CacheConfig(format, compression, l, delta, rebaseEvery);
+  }
+
+  public CacheConfig withDelta(boolean d, int every) {
+    return new CacheConfig(format, compression, layout, d, every);
+  }
+
+  public boolean compressed() {
+    return compression == CacheCompression.Mode.DEFLATE;
+  }
+}
@@ -0,0 +1,32 @@
+package br.brasfoot.compiler;
+
+import java.util.Locale;
+
+/** Formato dos arquivos de um diretório de TransfermarktCache. */
+public enum CacheFormat {
+
+  /** JSON indentado (formato original, legível e editável à mão). */
+  JSON(".json"),
+
+  /** Registros binários com tabela de strings (RosterCodec). */
+  BIN(".bin");
+
+  private final String extension;
+
+  CacheFormat(String extension) {
+    this.extension = extension;
+  }
+
+  public String extension() {
+    return extension;
+  }
+
+  public static CacheFormat parse(String s) {
+    if (s == null || s.isBlank()) return JSON;
+    return switch (s.trim().toLowerCase(Locale.ROOT)) {
+      case "json" -> JSON;
+      case "bin", "binary" -> BIN;
+      default -> throw new IllegalArgumentException("formato de cache desconhecido: " + s);
+    };
+  }
+}
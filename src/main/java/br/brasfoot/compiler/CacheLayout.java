@@ -0,0 +1,122 @@
+package br.brasfoot.compiler;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Layout de diretórios de um TransfermarktCache (layout= em cache.properties).
+ *
+ * <pre>
+ * FLAT     <country>/<teamId>/<season>.<ext>              (original)
+ * SHARDED  <country>/<h1>/<h2>/<teamId>/<season>.<ext>    h1/h2 = 2 hex cada
+ * </pre>
+ *
+ * Com todas as divisões do mundo em várias temporadas, o FLAT deixa dezenas de
+ * milhares de entradas num só diretório por país. O SHARDED espalha os times
+ * em até 256 x 256 subdiretórios (criados sob demanda) por um hash do teamId.
+ * O hash é parte do formato em disco: NÃO ALTERAR.
+ */
+public enum CacheLayout {
+
+  FLAT,
+  SHARDED;
+
+  /** Caminho do arquivo dentro do baseDir. */
+  public Path resolve(Path baseDir, String country, int teamId, int season, CacheFormat format) {
+    Path dir = baseDir.resolve(country);
+    if (this == SHARDED) {
+      int h = shardHash(teamId);
+      dir = dir.resolve(hex2(h >>> 8)).resolve(hex2(h));
+    }
+    return inside(baseDir, dir.resolve(String.valueOf(teamId)).resolve(season + format.extension()));
+  }
+
+  /**
+   * {@code resolved} se ele fica abaixo de {@code root}; senão
+   * IllegalArgumentException (400 na API). TeamIdentity já recusa country com
+   * separador ou ".."; isto segura quem monta o caminho por outro lado.
+   */
+  static Path inside(Path root, Path resolved) {
+    Path r = root.toAbsolutePath().normalize();
+    if (!resolved.toAbsolutePath().normalize().startsWith(r)) {
+      throw new IllegalArgumentException("caminho fora do cache: " + resolved);
+    }
+    return resolved;
+  }
+
+  /** Arquivo de temporada encontrado numa árvore (walk). */
+  public record Location(String country, int teamId, int season, CacheFormat format, CacheLayout layout) {}
+
+  private static final Pattern SEASON_FILE = Pattern.compile("(\\d+)\\.(json|bin)");
+  private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+  /** Profundidade máxima de um arquivo de temporada abaixo do baseDir. */
+  static final int MAX_DEPTH = 5;
+
+  /**
+   * Interpreta um caminho relativo ao baseDir em qualquer um dos layouts, ou
+   * null se não for um arquivo de temporada (manifest, temporários...).
+   */
+  public static Location parse(Path rel) {
+    int n = rel.getNameCount();
+    if (n != 3 && n != 5) return null;
+    Matcher m = SEASON_FILE.matcher(rel.getFileName().toString());
+    if (!m.matches()) return null;
+
+    CacheLayout layout = FLAT;
+    if (n == 5) {
+      if (!SHARD.matcher(rel.getName(1).toString()).matches()
+          || !SHARD.matcher(rel.getName(2).toString()).matches()) {
+        return null;
+      }
+      layout = SHARDED;
+    }
+
+    int teamId;
+    int season;
+    try {
+      teamId = Integer.parseInt(rel.getName(n - 2).toString());
+      season = Integer.parseInt(m.group(1));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    // shard que não bate com o teamId: arquivo fora do lugar, não é nosso
+    if (layout == SHARDED) {
+      int h = shardHash(teamId);
+      if (!rel.getName(1).toString().equals(hex2(h >>> 8)) || !rel.getName(2).toString().equals(hex2(h))) {
+        return null;
+      }
+    }
+    // diretório que não é um country válido (ex.: criado à mão): não é nosso
+    String country = rel.getName(0).toString();
+    if (!TeamIdentity.isValidCountry(country)) return null;
+    return new Location(country, teamId, season, CacheFormat.parse(m.group(2)), layout);
+  }
+
+  public static CacheLayout parseLayout(String s) {
+    if (s == null || s.isBlank()) return FLAT;
+    return switch (s.trim().toLowerCase(Locale.ROOT)) {
+      case "flat" -> FLAT;
+      case "sharded", "shard" -> SHARDED;
+      default -> throw new IllegalArgumentException("layout de cache desconhecido: " + s);
+    };
+  }
+
+  /** 16 bits do fmix32 (MurmurHash3): ids sequenciais caem em shards diferentes. */
+  static int shardHash(int teamId) {
+    int h = teamId;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h & 0xFFFF;
+  }
+
+  private static String hex2(int v) {
+    String s = Integer.toHexString(v & 0xFF);
+    return s.length() == 1 ? "0" + s : s;
+  }
+}
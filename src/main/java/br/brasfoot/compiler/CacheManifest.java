@@ -0,0 +1,640 @@
+package br.brasfoot.compiler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Índice do TransfermarktCache em {@code <baseDir>/manifest.idx}: uma entrada
+ * por time/temporada (slug, formato, tamanho, hash do conteúdo, hora da
+ * escrita, temporada base se for delta). exists() e as listagens ("temporadas do time X", "times do país
+ * Y") saem da memória, sem stat nem walk — em NFS com centenas de milhares de
+ * entradas é a diferença entre micro e milissegundos.
+ *
+ * <pre>
+ * "BFMF" | versão u8
+ * (u16 len | registro)*    registro: op u8 (PUT/DEL) | country | teamId i32 | season i32
+ *                          [PUT: slug | formato u8 | comprimido u8 | size i64 | hash i64 | time i64
+ *                                | layout u8 | base i32]   (ausentes em registros antigos: FLAT, -1)
+ * </pre>
+ *
+ * Só acrescenta (APPEND, um write por registro); o último registro de cada
+ * chave vale. Aberto com o arquivo mapeado; um registro cortado no fim (crash
+ * no meio do append) é descartado e o arquivo truncado — só em open() e com o
+ * lock exclusivo do arquivo, que cada append também segura, para não cortar o
+ * write em curso de outro processo. Outro processo escrevendo no mesmo
+ * diretório é visto por catchUp(), que lê só o que foi acrescentado desde a
+ * última vez e para antes de um registro ainda incompleto (TransfermarktCache chama num exists() que
+ * falhou). Quando, na abertura, o arquivo passa de COMPACT_FACTOR vezes o
+ * necessário, é regravado com uma entrada por chave.
+ *
+ * Cache novo (raiz sem times) ganha um manifest.idx vazio na abertura. Cache
+ * antigo sem ele = índice só em memória, montado na primeira consulta por um
+ * walk que usa só tamanho e mtime (nada é lido, hasheado nem gravado: funciona
+ * em raiz somente leitura e não custa uma leitura da árvore inteira em NFS).
+ * Nesse modo a temporada base de um delta fica UNKNOWN_BASE até entries() ler
+ * o cabeçalho dos arquivos do time, e as escritas só atualizam a memória. O
+ * manifest.idx de um cache com times só é criado por rebuild (--cacheManifest
+ * ou CacheMigrator); catchUp() passa a usá-lo quando aparecer.
+ */
+public final class CacheManifest {
+
+  public static final String FILE = "manifest.idx";
+
+  /**
+   * {@code baseSeason} = -1: temporada inteira; UNKNOWN_BASE: ainda não lida
+   * (índice sem manifest.idx, tratada como inteira); senão, delta contra essa
+   * temporada.
+   */
+  public record Entry(String country, int teamId, int season, String slug, CacheFormat format,
+                      CacheLayout layout, boolean compressed, long size, long hash, long writeTime, int baseSeason) {}
+
+  private static final byte[] MAGIC = {'B', 'F', 'M', 'F'};
+  private static final int VERSION = 1;
+  private static final int OP_PUT = 1;
+  private static final int OP_DEL = 2;
+
+  /** Base de uma entrada vista só pelo stat (ver entries()). */
+  public static final int UNKNOWN_BASE = Integer.MIN_VALUE;
+
+  /** Cabeçalho lido para descobrir delta/compressão: cobre os dois magics. */
+  private static final int PEEK_BYTES = SeasonDelta.HEADER + CacheCompression.HEADER;
+
+  private static final int COMPACT_FACTOR = 4;
+  private static final int COMPACT_MIN_RECORDS = 1024;
+
+  /**
+   * FileLock é do processo: duas instâncias na mesma JVM pedindo o lock do mesmo
+   * arquivo dariam OverlappingFileLockException. Um monitor só para todos os
+   * manifests — o trecho protegido é um write de poucos bytes.
+   */
+  private static final Object FILE_LOCK = new Object();
+
+  private final Path file;
+  private final Path root;
+  private volatile boolean inMemoryOnly;   // sem manifest.idx: nada é gravado
+  private volatile boolean scanned;
+
+  // country -> teamId -> season -> entrada
+  private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Entry>>> index =
+      new ConcurrentHashMap<>();
+
+  private FileChannel ch;          // leitura (mapeada) e truncate
+  private FileChannel appender;    // APPEND não combina com READ
+  private Object fileKey;          // inode: detecta compactação feita por outro processo
+  private long consumed;           // bytes do arquivo já aplicados
+  private long records;            // registros no arquivo (para decidir compactação)
+
+  private CacheManifest(Path file) {
+    this.file = file;
+    this.root = file.getParent();
+  }
+
+  /**
+   * Abre o manifest de um diretório de cache. Cache novo (sem nenhum time) ganha
+   * um manifest.idx vazio; cache antigo sem ele fica com o índice só em memória
+   * (ver a doc da classe) — nada é lido aqui.
+   */
+  public static CacheManifest open(Path baseDir) throws IOException {
+    Path root = baseDir.toAbsolutePath().normalize();
+    Path f = root.resolve(FILE);
+    if (!Files.isRegularFile(f)) {
+      CacheManifest m = new CacheManifest(f);
+      m.scanned = true;
+      if (isEmptyTree(root)) {
+        try {
+          m.rewrite();
+          return m;
+        } catch (IOException e) {
+          // raiz somente leitura: segue só em memória
+        }
+      }
+      m.scanned = false;
+      m.inMemoryOnly = true;
+      return m;
+    }
+
+    CacheManifest m = new CacheManifest(f);
+    m.scanned = true;
+    m.openChannel();
+    synchronized (m) {
+      m.repair();
+      m.compactIfNeeded();
+    }
+    return m;
+  }
+
+  /**
+   * Regrava o manifest a partir dos arquivos em disco (formato, tamanho e hash
+   * reais), preservando slugs de um manifest anterior. Lê a árvore inteira:
+   * só pelo CacheMigrator e por --cacheManifest.
+   */
+  public static CacheManifest rebuild(Path baseDir) throws IOException {
+    Path root = baseDir.toAbsolutePath().normalize();
+    Path f = root.resolve(FILE);
+
+    Map<String, String> slugs = new ConcurrentHashMap<>();
+    if (Files.isRegularFile(f)) {
+      CacheManifest old = new CacheManifest(f);
+      old.openChannel();
+      try {
+        synchronized (old) {
+          old.applyNew();
+        }
+        for (Entry e : old.all()) {
+          if (!e.slug().isEmpty()) slugs.put(e.country() + "/" + e.teamId() + "/" + e.season(), e.slug());
+        }
+      } finally {
+        old.close();
+      }
+    }
+
+    CacheManifest m = new CacheManifest(f);
+    m.scanned = true;
+    if (Files.isDirectory(root)) {
+      List<Path> files;
+      try (Stream<Path> s = Files.walk(root, CacheLayout.MAX_DEPTH)) {
+        files = s.filter(p -> CacheLayout.parse(root.relativize(p)) != null)
+            .filter(Files::isRegularFile)
+            .sorted()
+            .toList();
+      }
+      for (Path p : files) {
+        CacheLayout.Location loc = CacheLayout.parse(root.relativize(p));
+        byte[] bytes = Files.readAllBytes(p);
+        String slug = slugs.getOrDefault(loc.country() + "/" + loc.teamId() + "/" + loc.season(), "");
+        m.apply(new Entry(loc.country(), loc.teamId(), loc.season(), slug, loc.format(), loc.layout(),
+            TransfermarktCache.isCompressed(bytes), bytes.length, hash(bytes),
+            Files.getLastModifiedTime(p).toMillis(), SeasonDelta.baseSeasonOf(ByteBuffer.wrap(bytes))));
+      }
+    }
+
+    m.rewrite();
+    return m;
+  }
+
+  // -------------------------
+  // Consultas (memória)
+  // -------------------------
+
+  public Entry get(String country, int teamId, int season) {
+    ensureScanned();
+    ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Entry>> teams = index.get(country);
+    if (teams == null) return null;
+    ConcurrentSkipListMap<Integer, Entry> seasons = teams.get(teamId);
+    return seasons == null ? null : seasons.get(season);
+  }
+
+  public Entry get(TeamIdentity team) {
+    return get(team.country(), team.teamId(), team.season());
+  }
+
+  /** Temporadas em cache de um time, em ordem. */
+  public List<Integer> seasons(String country, int teamId) {
+    ensureScanned();
+    ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Entry>> teams = index.get(country);
+    ConcurrentSkipListMap<Integer, Entry> seasons = teams == null ? null : teams.get(teamId);
+    return seasons == null ? List.of() : List.copyOf(seasons.keySet());
+  }
+
+  /**
+   * Entradas de todas as temporadas de um time, em ordem de temporada. Aqui a
+   * base de cada delta precisa ser a real (a escrita decide por ela): entradas
+   * UNKNOWN_BASE têm o cabeçalho lido agora.
+   */
+  public List<Entry> entries(String country, int teamId) {
+    ensureScanned();
+    ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Entry>> teams = index.get(country);
+    ConcurrentSkipListMap<Integer, Entry> seasons = teams == null ? null : teams.get(teamId);
+    if (seasons == null) return List.of();
+    for (Entry e : seasons.values()) {
+      if (e.baseSeason() == UNKNOWN_BASE) peekHeader(seasons, e);
+    }
+    return List.copyOf(seasons.values());
+  }
+
+  /** Times (teamId) com ao menos uma temporada em cache no país, em ordem. */
+  public List<Integer> teams(String country) {
+    ensureScanned();
+    ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Entry>> teams = index.get(country);
+    if (teams == null) return List.of();
+    List<Integer> out = new ArrayList<>();
+    for (Map.Entry<Integer, ConcurrentSkipListMap<Integer, Entry>> e : teams.entrySet()) {
+      if (!e.getValue().isEmpty()) out.add(e.getKey());
+    }
+    Collections.sort(out);
+    return out;
+  }
+
+  public List<Entry> all() {
+    ensureScanned();
+    List<Entry> out = new ArrayList<>();
+    for (Map<Integer, ConcurrentSkipListMap<Integer, Entry>> teams : index.values()) {
+      for (ConcurrentSkipListMap<Integer, Entry> seasons : teams.values()) out.addAll(seasons.values());
+    }
+    return out;
+  }
+
+  public int size() {
+    ensureScanned();
+    int n = 0;
+    for (Map<Integer, ConcurrentSkipListMap<Integer, Entry>> teams : index.values()) {
+      for (ConcurrentSkipListMap<Integer, Entry> seasons : teams.values()) n += seasons.size();
+    }
+    return n;
+  }
+
+  // -------------------------
+  // Atualização
+  // -------------------------
+
+  /** Registra a escrita de um arquivo de cache ({@code bytes} = conteúdo gravado). */
+  public void recordWrite(TeamIdentity team, CacheFormat format, CacheLayout layout, byte[] bytes, long writeTime)
+      throws IOException {
+    record(team.country(), team.teamId(), team.season(), team.slug(), format, layout, bytes, writeTime);
+  }
+
+  /**
+   * Arquivo trocado de formato/layout pelo CacheMigrator: mesmo registro de
+   * recordWrite, mantendo o slug que já estava no índice (o caminho não o guarda).
+   */
+  public void recordConverted(String country, int teamId, int season, CacheFormat format, CacheLayout layout,
+                              byte[] bytes, long writeTime) throws IOException {
+    Entry prev = get(country, teamId, season);
+    record(country, teamId, season, prev == null ? "" : prev.slug(), format, layout, bytes, writeTime);
+  }
+
+  private void record(String country, int teamId, int season, String slug, CacheFormat format, CacheLayout layout,
+                      byte[] bytes, long writeTime) throws IOException {
+    Entry e = new Entry(country, teamId, season, slug, format, layout,
+        TransfermarktCache.isCompressed(bytes), bytes.length, hash(bytes), writeTime,
+        SeasonDelta.baseSeasonOf(ByteBuffer.wrap(bytes)));
+    synchronized (this) {
+      if (!inMemoryOnly) {
+        syncWithFile();
+        append(encode(OP_PUT, e));
+      }
+      apply(e);
+    }
+  }
+
+  /** Arquivo sumiu do disco (apagado por fora): tira do índice. */
+  public void recordDelete(TeamIdentity team) throws IOException {
+    if (get(team) == null) return;
+    Entry tomb = new Entry(team.country(), team.teamId(), team.season(), "", CacheFormat.JSON, CacheLayout.FLAT,
+        false, 0, 0, 0, -1);
+    synchronized (this) {
+      if (!inMemoryOnly) {
+        syncWithFile();
+        append(encode(OP_DEL, tomb));
+      }
+      remove(tomb);
+    }
+  }
+
+  /**
+   * Aplica registros acrescentados por outro processo; true se havia algo novo.
+   * Se outro processo compactou (arquivo trocado por rename), relê do zero.
+   * Índice só em memória: passa a usar o manifest.idx se alguém o criou.
+   */
+  public synchronized boolean catchUp() throws IOException {
+    if (inMemoryOnly) {
+      if (!Files.isRegularFile(file)) return false;
+      index.clear();
+      openChannel();
+      applyNew();
+      inMemoryOnly = false;
+      scanned = true;
+      return true;
+    }
+    Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    if (key != null && !key.equals(fileKey)) {
+      close();
+      index.clear();
+      consumed = 0;
+      records = 0;
+      openChannel();
+      applyNew();
+      return true;
+    }
+    return applyNew() > 0;
+  }
+
+  /**
+   * Antes de acrescentar: se outro processo compactou, o appender ainda aponta
+   * para o arquivo antigo (já desligado) e o registro se perderia — catchUp()
+   * reabre. Arquivo apagado por fora: regravado a partir do índice.
+   */
+  private void syncWithFile() throws IOException {
+    if (!Files.exists(file)) {
+      rewrite();
+      return;
+    }
+    catchUp();
+  }
+
+  public synchronized void close() throws IOException {
+    // Fechar qualquer descritor do arquivo solta os locks POSIX do processo inteiro.
+    synchronized (FILE_LOCK) {
+      if (ch != null) ch.close();
+      if (appender != null) appender.close();
+    }
+    ch = null;
+    appender = null;
+  }
+
+  // -------------------------
+  // Índice sem manifest.idx
+  // -------------------------
+
+  /** Sem subdiretórios na raiz = sem times (cache.properties e afins não contam). */
+  private static boolean isEmptyTree(Path root) throws IOException {
+    if (!Files.isDirectory(root)) return true;
+    try (Stream<Path> s = Files.list(root)) {
+      return s.noneMatch(Files::isDirectory);
+    }
+  }
+
+  /** Na primeira consulta sem manifest.idx: walk da árvore só com os atributos do próprio walk. */
+  private void ensureScanned() {
+    if (scanned) return;
+    synchronized (this) {
+      if (scanned) return;
+      if (Files.isDirectory(root)) {
+        try {
+          Files.walkFileTree(root, Set.of(), CacheLayout.MAX_DEPTH, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path p, BasicFileAttributes attrs) {
+              CacheLayout.Location loc = attrs.isRegularFile() ? CacheLayout.parse(root.relativize(p)) : null;
+              if (loc != null) {
+                long mtime = attrs.lastModifiedTime().toMillis();
+                apply(new Entry(loc.country(), loc.teamId(), loc.season(), "", loc.format(), loc.layout(),
+                    false, attrs.size(), statHash(attrs.size(), mtime), mtime, UNKNOWN_BASE));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+        } catch (IOException e) {
+          throw new UncheckedIOException("Falha ao listar " + root + ": " + e.getMessage(), e);
+        }
+      }
+      scanned = true;
+    }
+  }
+
+  /** Lê o começo do arquivo de {@code e}: temporada base (delta) e compressão. */
+  private synchronized void peekHeader(ConcurrentSkipListMap<Integer, Entry> seasons, Entry e) {
+    if (seasons.get(e.season()) != e) return;           // já trocada por uma escrita
+    Path p = e.layout().resolve(root, e.country(), e.teamId(), e.season(), e.format());
+    ByteBuffer head = ByteBuffer.allocate(PEEK_BYTES);
+    try (FileChannel fc = FileChannel.open(p, StandardOpenOption.READ)) {
+      while (head.hasRemaining() && fc.read(head) >= 0) {}
+    } catch (IOException ex) {
+      return;                                          // sumiu: a leitura do time resolve
+    }
+    byte[] bytes = Arrays.copyOf(head.array(), head.position());
+    seasons.put(e.season(), new Entry(e.country(), e.teamId(), e.season(), e.slug(), e.format(), e.layout(),
+        TransfermarktCache.isCompressed(bytes), e.size(), e.hash(), e.writeTime(),
+        SeasonDelta.baseSeasonOf(ByteBuffer.wrap(bytes))));
+  }
+
+  /** Versão de um arquivo visto só pelo stat (sem o conteúdo não há SHA-256). */
+  private static long statHash(long size, long mtime) {
+    long h = size * 0x9E3779B97F4A7C15L ^ mtime;
+    return h ^ (h >>> 29);
+  }
+
+  // -------------------------
+  // Arquivo
+  // -------------------------
+
+  private void openChannel() throws IOException {
+    ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    appender = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+  }
+
+  /**
+   * Lê do ponto onde parou até o fim (mapeado). Para antes de um registro
+   * incompleto no fim sem mexer no arquivo: pode ser o append de outro processo
+   * ainda em curso (em NFS o write aparece aos pedaços). Só repair() o corta.
+   */
+  private int applyNew() throws IOException {
+    return applyNew(false);
+  }
+
+  /**
+   * Com o lock exclusivo do arquivo nenhum append está pela metade: o que sobrar
+   * incompleto no fim é resto de crash e é truncado. Só na abertura.
+   */
+  private int repair() throws IOException {
+    synchronized (FILE_LOCK) {
+      try (FileLock ignored = ch.lock()) {
+        return applyNew(true);
+      }
+    }
+  }
+
+  private int applyNew(boolean truncateTail) throws IOException {
+    long size = ch.size();
+    if (consumed == 0 && size < MAGIC.length + 1) {
+      // arquivo sem cabeçalho (criado vazio): gravado sob o lock
+      if (!truncateTail) return repair();
+      truncateTo(0);
+      return 0;
+    }
+    if (size <= consumed) return 0;
+
+    ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, consumed, size - consumed);
+    if (consumed == 0) {
+      for (byte b : MAGIC) {
+        if (buf.get() != b) throw new IOException(file + ": manifest invalido (magic)");
+      }
+      int v = buf.get() & 0xFF;
+      if (v != VERSION) throw new IOException(file + ": versao de manifest nao suportada " + v);
+    }
+
+    int applied = 0;
+    while (buf.remaining() >= 2) {
+      int start = buf.position();
+      int len = buf.getShort() & 0xFFFF;
+      if (buf.remaining() < len) {
+        buf.position(start);
+        break;
+      }
+      ByteBuffer rec = buf.slice(buf.position(), len);
+      buf.position(buf.position() + len);
+      try {
+        decodeAndApply(rec);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        throw new IOException(file + ": registro corrompido em " + (consumed + start), e);
+      }
+      applied++;
+      records++;
+    }
+
+    long end = consumed + buf.position();
+    if (truncateTail && end < size) truncateTo(end);
+    consumed = end;
+    return applied;
+  }
+
+  private void truncateTo(long pos) throws IOException {
+    long extra = ch.size() - pos;
+    if (extra > 0) System.err.println("[tmCache] manifest " + file + ": descartando " + extra + " bytes incompletos");
+    ch.truncate(pos);
+    if (pos == 0) {
+      appender.write(ByteBuffer.wrap(header()));
+      consumed = MAGIC.length + 1;
+    }
+  }
+
+  private void append(byte[] rec) throws IOException {
+    if (ch == null) openChannel();
+    ByteBuffer buf = ByteBuffer.allocate(2 + rec.length);
+    buf.putShort((short) rec.length).put(rec).flip();
+    // Um write só: com APPEND o registro não se mistura com o de outro processo.
+    // O lock impede que o repair() de outro processo corte este write no meio.
+    synchronized (FILE_LOCK) {
+      try (FileLock ignored = appender.lock()) {
+        while (buf.hasRemaining()) appender.write(buf);
+      }
+    }
+    records++;
+  }
+
+  private void compactIfNeeded() throws IOException {
+    if (records > COMPACT_MIN_RECORDS && records > (long) size() * COMPACT_FACTOR) rewrite();
+  }
+
+  /** Regrava com uma entrada por chave (temporário + ATOMIC_MOVE) e reabre. */
+  private synchronized void rewrite() throws IOException {
+    List<Entry> entries = all();
+    ByteBuffer out = ByteBuffer.allocate(MAGIC.length + 1 + entries.size() * 96 + 64);
+    out.put(header());
+    for (Entry e : entries) {
+      byte[] rec = encode(OP_PUT, e);
+      if (out.remaining() < rec.length + 2) out = grow(out, rec.length + 2);
+      out.putShort((short) rec.length).put(rec);
+    }
+    byte[] bytes = new byte[out.position()];
+    out.flip().get(bytes);
+
+    close();
+    TransfermarktCache.writeAtomic(file, bytes);
+    openChannel();
+    consumed = bytes.length;
+    records = entries.size();
+  }
+
+  private static ByteBuffer grow(ByteBuffer b, int need) {
+    ByteBuffer n = ByteBuffer.allocate(Math.max(b.capacity() * 2, b.position() + need));
+    b.flip();
+    return n.put(b);
+  }
+
+  private static byte[] header() {
+    byte[] h = new byte[MAGIC.length + 1];
+    System.arraycopy(MAGIC, 0, h, 0, MAGIC.length);
+    h[MAGIC.length] = VERSION;
+    return h;
+  }
+
+  // -------------------------
+  // Registros
+  // -------------------------
+
+  private static byte[] encode(int op, Entry e) {
+    byte[] country = e.country().getBytes(StandardCharsets.UTF_8);
+    byte[] slug = e.slug().getBytes(StandardCharsets.UTF_8);
+    if (country.length > 255 || slug.length > 4096) throw new IllegalArgumentException("country/slug longo demais");
+
+    ByteBuffer b = ByteBuffer.allocate(1 + 1 + country.length + 8 + 2 + slug.length + 2 + 24 + 1 + 4);
+    b.put((byte) op).put((byte) country.length).put(country).putInt(e.teamId()).putInt(e.season());
+    if (op == OP_PUT) {
+      b.putShort((short) slug.length).put(slug)
+          .put((byte) e.format().ordinal()).put((byte) (e.compressed() ? 1 : 0))
+          .putLong(e.size()).putLong(e.hash()).putLong(e.writeTime())
+          .put((byte) e.layout().ordinal())
+          .putInt(e.baseSeason());
+    }
+    byte[] out = new byte[b.position()];
+    b.flip().get(out);
+    return out;
+  }
+
+  private void decodeAndApply(ByteBuffer b) {
+    int op = b.get();
+    byte[] country = new byte[b.get() & 0xFF];
+    b.get(country);
+    String c = new String(country, StandardCharsets.UTF_8);
+    int teamId = b.getInt();
+    int season = b.getInt();
+
+    if (op == OP_DEL) {
+      remove(new Entry(c, teamId, season, "", CacheFormat.JSON, CacheLayout.FLAT, false, 0, 0, 0, -1));
+      return;
+    }
+    if (op != OP_PUT) throw new IllegalArgumentException("op invalida " + op);
+
+    byte[] slug = new byte[b.getShort() & 0xFFFF];
+    b.get(slug);
+    int fmt = b.get();
+    if (fmt < 0 || fmt >= CacheFormat.values().length) throw new IllegalArgumentException("formato invalido " + fmt);
+    boolean compressed = b.get() != 0;
+    long size = b.getLong();
+    long hash = b.getLong();
+    long time = b.getLong();
+    int layout = b.hasRemaining() ? b.get() : CacheLayout.FLAT.ordinal();
+    if (layout < 0 || layout >= CacheLayout.values().length) throw new IllegalArgumentException("layout invalido " + layout);
+    int base = b.remaining() >= 4 ? b.getInt() : -1;
+    // country que hoje o TeamIdentity recusa ("../x", caminho absoluto): gravado
+    // antes da validação, fica fora do índice (e sai na próxima compactação)
+    if (!TeamIdentity.isValidCountry(c)) return;
+    apply(new Entry(c, teamId, season, new String(slug, StandardCharsets.UTF_8), CacheFormat.values()[fmt],
+        CacheLayout.values()[layout], compressed, size, hash, time, base));
+  }
+
+  private void apply(Entry e) {
+    index.computeIfAbsent(e.country(), k -> new ConcurrentHashMap<>())
+        .computeIfAbsent(e.teamId(), k -> new ConcurrentSkipListMap<>())
+        .put(e.season(), e);
+  }
+
+  private void remove(Entry e) {
+    ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Entry>> teams = index.get(e.country());
+    ConcurrentSkipListMap<Integer, Entry> seasons = teams == null ? null : teams.get(e.teamId());
+    if (seasons != null) seasons.remove(e.season());
+  }
+
+  /** Primeiros 8 bytes do SHA-256 do conteúdo gravado. */
+  static long hash(byte[] bytes) {
+    try {
+      byte[] d = MessageDigest.getInstance("SHA-256").digest(bytes);
+      return ByteBuffer.wrap(d).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 indisponivel", e);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * Converte uma árvore do TransfermarktCache para outro formato (CacheFormat),
+ * compressão e/ou layout de diretórios (CacheLayout), e grava o novo
+ * cache.properties. Mudança só de layout é um rename por arquivo; deltas
+ * (SeasonDelta) continuam deltas no formato novo.
+ *
+ * Pode rodar com o servidor no ar (--cacheMigrate é outro processo). A
+ * configuração é gravada antes da conversão; o TransfermarktCache relê
+ * cache.properties a cada escrita, então a próxima escrita do servidor já sai
+ * no formato/layout novo, e leituras de arquivos ainda não convertidos caem no
+ * fallback. Cada troca segura, por time, o lock listrado (mesma JVM) e o lock
+ * de arquivo entre processos (TransfermarktCache.lockAcrossProcesses), os
+ * mesmos das escritas: o arquivo de origem é lido, convertido e apagado sem
+ * que uma escrita do servidor entre no meio. Arquivo que sumiu até pegar o lock
+ * já foi regravado pelo servidor e é pulado.
+ *
+ * Cada arquivo é gravado num temporário (com fsync) e relido (bytes +
+ * jogadores) antes de substituir o antigo — se algo não bater, o original fica
+ * onde está e o arquivo conta como falha. Cada troca é acrescentada ao
+ * manifest.idx (append, como as escritas do servidor); sem manifest.idx ele é
+ * reconstruído no fim.
+ */
+public final class CacheMigrator {
+
+  public record Summary(int files, int converted, int skipped, int failed, long bytesBefore, long bytesAfter) {}
+
+  private CacheMigrator() {}
+
+  public static Summary migrate(Path baseDir, CacheFormat target) throws IOException {
+    Path root = baseDir.toAbsolutePath().normalize();
+    return migrate(root, CacheConfig.load(root).withFormat(target));
+  }
+
+  public static Summary migrate(Path baseDir, CacheConfig target) throws IOException {
+    Path root = baseDir.toAbsolutePath().normalize();
+    boolean hadManifest = Files.isRegularFile(root.resolve(CacheManifest.FILE));
+    target.store(root);
+
+    List<Path> files;
+    try (Stream<Path> s = Files.walk(root, CacheLayout.MAX_DEPTH)) {
+      files = s.filter(p -> CacheLayout.parse(root.relativize(p)) != null)
+          .filter(Files::isRegularFile)
+          .sorted()
+          .toList();
+    }
+
+    int converted = 0, skipped = 0, failed = 0;
+    long before = 0, after = 0;
+
+    CacheManifest manifest = CacheManifest.open(root);
+    try {
+      for (Path src : files) {
+        CacheLayout.Location loc = CacheLayout.parse(root.relativize(src));
+        Path dst = target.layout().resolve(root, loc.country(), loc.teamId(), loc.season(), target.format());
+        Path tmp = dst.resolveSibling(dst.getFileName() + ".tmp");
+        Lock lock = TransfermarktCache.lockFor(
+            TransfermarktCache.entryKey(root, loc.country(), loc.teamId())).writeLock();
+        lock.lock();
+        try (FileChannel ignored = TransfermarktCache.lockAcrossProcesses(root, loc.country(), loc.teamId())) {
+          // tudo do src é lido já com os locks: o servidor pode tê-lo regravado (ou trocado) até aqui
+          if (!Files.isRegularFile(src)) {
+            skipped++;
+            continue;
+          }
+          long srcSize = Files.size(src);
+          boolean sameEncoding = loc.format() == target.format()
+              && TransfermarktCache.isCompressed(src) == target.compressed();
+          if (sameEncoding && loc.layout() == target.layout()) {
+            skipped++;
+            before += srcSize;
+            after += srcSize;
+            continue;
+          }
+
+          Files.createDirectories(dst.getParent());
+          SeasonDelta delta = !sameEncoding && TransfermarktCache.isDelta(src)
+              ? TransfermarktCache.readDelta(src) : null;
+          if (sameEncoding) {
+            // só o layout muda: rename, sem recodificar
+            Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          } else if (delta != null) {
+            // delta continua delta (a base é a mesma temporada, em qualquer formato)
+            byte[] bytes = TransfermarktCache.encode(delta, target);
+            writeSynced(tmp, bytes);
+            SeasonDelta back = TransfermarktCache.readDelta(tmp, target.format());
+            if (back == null || back.baseSeason() != delta.baseSeason() || !back.ops().equals(delta.ops())) {
+              throw new IOException("delta divergente apos conversao");
+            }
+            Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!dst.equals(src)) Files.delete(src);
+          } else {
+            JsonArray players = TransfermarktCache.decode(src);
+            byte[] bytes = TransfermarktCache.encode(players, target);
+            writeSynced(tmp, bytes);
+
+            // Relê do disco: bytes idênticos e o mesmo elenco. (O JSON não grava
+            // campos null, então a comparação é por jogador e não por igualdade.)
+            JsonArray back = TransfermarktCache.decode(tmp, target.format());
+            if (!Arrays.equals(bytes, Files.readAllBytes(tmp)) || !samePlayers(players, back)) {
+              throw new IOException("conteudo divergente apos conversao");
+            }
+            Files.move(tmp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (!dst.equals(src)) Files.delete(src);
+          }
+          if (loc.layout() != target.layout()) removeEmptyParents(root, src);
+          manifest.recordConverted(loc.country(), loc.teamId(), loc.season(), target.format(), target.layout(),
+              Files.readAllBytes(dst), Files.getLastModifiedTime(dst).toMillis());
+
+          converted++;
+          before += srcSize;
+          after += Files.size(dst);
+        } catch (Exception e) {
+          failed++;
+          Files.deleteIfExists(tmp);
+          System.err.println("[cacheMigrate] " + src + ": " + e.getMessage());
+        } finally {
+          lock.unlock();
+        }
+      }
+    } finally {
+      manifest.close();
+    }
+
+    // cache sem manifest.idx: agora sim, a partir da árvore já convertida
+    if (!hadManifest) CacheManifest.rebuild(root).close();
+    return new Summary(files.size(), converted, skipped, failed, before, after);
+  }
+
+  private static void writeSynced(Path tmp, byte[] bytes) throws IOException {
+    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buf = ByteBuffer.wrap(bytes);
+      while (buf.hasRemaining()) ch.write(buf);
+      ch.force(true);
+    }
+  }
+
+  /** Apaga diretórios do layout antigo que ficaram vazios (nunca o do país). */
+  private static void removeEmptyParents(Path root, Path file) {
+    Path dir = file.getParent();
+    while (dir != null && root.relativize(dir).getNameCount() > 1) {
+      try {
+        Files.delete(dir);
+      } catch (IOException e) {
+        return;   // não vazio (ou sem permissão): para aqui
+      }
+      dir = dir.getParent();
+    }
+  }
+
+  private static boolean samePlayers(JsonArray a, JsonArray b) {
+    if (a.size() != b.size()) return false;
+    for (int i = 0; i < a.size(); i++) {
+      if (!a.get(i).isJsonObject() || !b.get(i).isJsonObject()) {
+        if (!a.get(i).equals(b.get(i))) return false;
+        continue;
+      }
+      JsonObject x = a.get(i).getAsJsonObject();
+      JsonObject y = b.get(i).getAsJsonObject();
+      if (!Objects.equals(x.get("id"), y.get("id")) || !Objects.equals(x.get("name"), y.get("name"))) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,215 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aquecimento logo depois do deploy: carrega os elencos quentes na camada em
+ * memória do TransfermarktCache (em paralelo), valida os templates embutidos e
+ * roda algumas compilações descartáveis pelo BanCompiler, para que mapping,
+ * classificadores e JIT já estejam prontos quando o primeiro usuário chegar.
+ *
+ * Configuração (properties do sistema):
+ * <pre>
+ * brasfoot.warmup.countries  br,de               última temporada de cada time em cache no país
+ * brasfoot.warmup.teams      url ou country/teamId/season, separados por vírgula
+ * brasfoot.warmup.compiles   compilações de aquecimento (padrão 3)
+ * brasfoot.warmup.threads    cargas em paralelo (padrão = núcleos)
+ * </pre>
+ * Os contadores de heurística são zerados no fim: as compilações de
+ * aquecimento não aparecem em /metrics/heuristics.
+ */
+public final class CacheWarmup {
+
+  public record Plan(List<String> countries, List<TeamIdentity> teams, int compiles, int threads) {
+    public Plan {
+      countries = List.copyOf(countries);
+      teams = List.copyOf(teams);
+      if (compiles < 0) throw new IllegalArgumentException("compiles < 0: " + compiles);
+      if (threads < 1) throw new IllegalArgumentException("threads < 1: " + threads);
+    }
+
+    public boolean isEmpty() {
+      return countries.isEmpty() && teams.isEmpty();
+    }
+  }
+
+  public record Summary(int teams, int loaded, int failed, int templates, int compiles, long millis) {}
+
+  /** Templates .ban embutidos (src/main/resources/templates). */
+  static final List<String> BUNDLED_TEMPLATES = List.of("palmeiras.ban", "gremio.ban", "arsenal.ban");
+
+  private static volatile Summary last;
+
+  private CacheWarmup() {}
+
+  public static Plan planFromProperties() {
+    List<String> countries = new ArrayList<>();
+    for (String c : split(System.getProperty("brasfoot.warmup.countries", ""))) {
+      countries.add(c.toLowerCase(Locale.ROOT));
+    }
+    List<TeamIdentity> teams = new ArrayList<>();
+    for (String t : split(System.getProperty("brasfoot.warmup.teams", ""))) {
+      teams.add(parseTeam(t));
+    }
+    return new Plan(countries, teams,
+        Integer.getInteger("brasfoot.warmup.compiles", 3),
+        Integer.getInteger("brasfoot.warmup.threads", Runtime.getRuntime().availableProcessors()));
+  }
+
+  /** URL do Transfermarkt ou {@code country/teamId/season}. */
+  static TeamIdentity parseTeam(String s) {
+    if (s.contains("/verein/")) return TeamIdentity.fromTeamUrl(s);
+    String[] parts = s.split("/");
+    if (parts.length != 3) throw new IllegalArgumentException("time de warmup invalido (country/teamId/season): " + s);
+    try {
+      return new TeamIdentity(parts[0].trim(), Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()), "team");
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("time de warmup invalido (country/teamId/season): " + s, e);
+    }
+  }
+
+  /**
+   * Roda o plano e bloqueia até terminar. Falhas por time só são contadas e
+   * logadas: um elenco corrompido não pode impedir o servidor de subir.
+   */
+  public static Summary run(TransfermarktCache cache, Plan plan) throws InterruptedException {
+    long t0 = System.nanoTime();
+    Mappings.get();
+
+    List<TeamIdentity> targets = targets(cache, plan);
+    List<JsonArray> rosters = new ArrayList<>();
+    int failed = 0;
+
+    if (!targets.isEmpty()) {
+      ExecutorService pool = Executors.newFixedThreadPool(Math.min(plan.threads(), targets.size()), r -> {
+        Thread t = new Thread(r, "warmup");
+        t.setDaemon(true);
+        return t;
+      });
+      try {
+        List<Future<JsonArray>> loads = new ArrayList<>(targets.size());
+        for (TeamIdentity team : targets) {
+          loads.add(pool.submit(() -> cache.hasLoader() ? cache.getOrLoad(team) : cache.read(team)));
+        }
+        for (int i = 0; i < loads.size(); i++) {
+          try {
+            rosters.add(loads.get(i).get());
+          } catch (ExecutionException e) {
+            failed++;
+            System.err.println("[warmup] " + targets.get(i) + ": " + e.getCause().getMessage());
+          }
+        }
+      } finally {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+      }
+    }
+
+    List<Path> templates = bundledTemplates();
+    int compiles = 0;
+    try {
+      for (int i = 0; i < plan.compiles() && !rosters.isEmpty(); i++) {
+        Path template = templates.isEmpty() ? null : templates.get(i % templates.size());
+        Path out = Files.createTempFile("bf-warmup-", ".ban");
+        try {
+          BanCompiler.compileTeamJsonToBan(rosters.get(i % rosters.size()), "warmup-" + i, template, out, null, null, i % 2 == 1);
+          compiles++;
+        } catch (Exception e) {
+          System.err.println("[warmup] compilacao " + i + ": " + e.getMessage());
+        } finally {
+          Files.deleteIfExists(out);
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("[warmup] " + e.getMessage());
+    } finally {
+      for (Path p : templates) {
+        try { Files.deleteIfExists(p); } catch (IOException ignored) {}
+      }
+    }
+    HeuristicCounters.snapshotAndReset();
+
+    Summary s = new Summary(targets.size(), rosters.size(), failed, templates.size(), compiles,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+    last = s;
+    return s;
+  }
+
+  /** Resultado do último warmup ({@code done=false} enquanto não houver). */
+  public static Map<String, Object> snapshot() {
+    Summary s = last;
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("done", s != null);
+    if (s != null) {
+      out.put("teams", s.teams());
+      out.put("loaded", s.loaded());
+      out.put("failed", s.failed());
+      out.put("templates", s.templates());
+      out.put("compiles", s.compiles());
+      out.put("ms", s.millis());
+    }
+    return out;
+  }
+
+  /** Times explícitos + a última temporada de cada time em cache nos países pedidos. */
+  static List<TeamIdentity> targets(TransfermarktCache cache, Plan plan) {
+    // por country/teamId/season: o slug não faz parte da identidade no cache
+    Map<String, TeamIdentity> out = new LinkedHashMap<>();
+    for (TeamIdentity t : plan.teams()) out.putIfAbsent(t.country() + "/" + t.teamId() + "/" + t.season(), t);
+    for (String country : plan.countries()) {
+      for (int teamId : cache.teams(country)) {
+        List<Integer> seasons = cache.seasons(country, teamId);
+        if (seasons.isEmpty()) continue;
+        int season = seasons.get(seasons.size() - 1);
+        CacheManifest.Entry e = cache.manifestEntry(new TeamIdentity(country, teamId, season, "team"));
+        String slug = (e == null || e.slug() == null || e.slug().isBlank()) ? "team" : e.slug();
+        out.putIfAbsent(country + "/" + teamId + "/" + season, new TeamIdentity(country, teamId, season, slug));
+      }
+    }
+    return new ArrayList<>(out.values());
+  }
+
+  /**
+   * Copia os templates embutidos para temporários (o BanCompiler lê de Path) e
+   * passa cada um pela validação do BanStreamReader, aquecendo também esse caminho.
+   */
+  private static List<Path> bundledTemplates() {
+    List<Path> out = new ArrayList<>();
+    for (String name : BUNDLED_TEMPLATES) {
+      try (InputStream in = CacheWarmup.class.getResourceAsStream("/templates/" + name)) {
+        if (in == null) continue;
+        byte[] bytes = in.readAllBytes();
+        BanStreamReader.validateTemplate(bytes);
+        Path p = Files.createTempFile("bf-warmup-", "-" + name);
+        Files.write(p, bytes);
+        out.add(p);
+      } catch (Exception e) {
+        System.err.println("[warmup] template " + name + ": " + e.getMessage());
+      }
+    }
+    return out;
+  }
+
+  private static List<String> split(String s) {
+    List<String> out = new ArrayList<>();
+    for (String part : s.split("[,\\s]+")) {
+      if (!part.isBlank()) out.add(part.trim());
+    }
+    return out;
+  }
+}
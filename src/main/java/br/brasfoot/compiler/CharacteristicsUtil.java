@@ -1,6 +1,5 @@
 package br.brasfoot.compiler;
 
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Locale;
 
@@ -48,7 +47,7 @@ public final class CharacteristicsUtil {
     double jsgJ = ratio(cleanSheets, apps);
     double gsJ = ratio(goalsConceded, apps);
 
-    String p = deaccent(posText == null ? "" : posText).toLowerCase(Locale.ROOT);
+    String p = TextUtil.deaccent(posText == null ? "" : posText).toLowerCase(Locale.ROOT);
 
     // -------------------------
     // GOLEIRO
@@ -185,9 +184,9 @@ public final class CharacteristicsUtil {
   private static boolean hasAnySecondary(ArrayList<String> secondary, String... needles) {
     if (secondary == null || secondary.isEmpty()) return false;
     for (String s : secondary) {
-      String t = deaccent(s).toLowerCase(Locale.ROOT);
+      String t = TextUtil.deaccent(s).toLowerCase(Locale.ROOT);
       for (String n : needles) {
-        if (t.contains(deaccent(n).toLowerCase(Locale.ROOT))) return true;
+        if (t.contains(TextUtil.deaccent(n).toLowerCase(Locale.ROOT))) return true;
       }
     }
     return false;
@@ -204,10 +203,4 @@ public final class CharacteristicsUtil {
     if (den <= 0) return 0.0;
     return (double) num / (double) den;
   }
-
-  private static String deaccent(String s) {
-    if (s == null) return null;
-    String n = Normalizer.normalize(s, Normalizer.Form.NFD);
-    return n.replaceAll("\\p{M}+", "");
-  }
 }
\ No newline at end of file
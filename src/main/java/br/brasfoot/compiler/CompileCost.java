@@ -0,0 +1,179 @@
+package br.brasfoot.compiler;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Custo por compilação: tempo de CPU da thread e bytes alocados
+ * (com.sun.management.ThreadMXBean), agregados por faixa de tamanho de elenco.
+ *
+ * Uso:
+ *   CompileCost.Probe probe = CompileCost.start();
+ *   CompileResult r = BanCompiler.compileTeamJsonToBan(...);
+ *   CompileCost.stop(probe, r.rosterSize());
+ *
+ * A medição é da thread chamadora — vale enquanto compileTeamJsonToBan roda
+ * inteiro na mesma thread (hoje é sempre o caso). Se a JVM não suportar alguma
+ * das medições, o valor correspondente fica em 0.
+ */
+public final class CompileCost {
+
+  private static final com.sun.management.ThreadMXBean MX = threadMx();
+  private static final boolean CPU_SUPPORTED = MX != null && MX.isCurrentThreadCpuTimeSupported();
+  private static final boolean ALLOC_SUPPORTED = MX != null && MX.isThreadAllocatedMemorySupported();
+
+  // Faixas de elenco (limite superior inclusivo) e de histograma.
+  private static final int[] ROSTER_BOUNDS = {19, 29, 39, 59};
+  private static final String[] ROSTER_LABELS = {"0-19", "20-29", "30-39", "40-59", "60+"};
+  private static final long[] CPU_MS_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+  private static final long[] ALLOC_MB_BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256};
+
+  private static final Bucket[] BUCKETS = new Bucket[ROSTER_LABELS.length];
+
+  static {
+    if (MX != null && ALLOC_SUPPORTED && !MX.isThreadAllocatedMemoryEnabled()) {
+      MX.setThreadAllocatedMemoryEnabled(true);
+    }
+    for (int i = 0; i < BUCKETS.length; i++) BUCKETS[i] = new Bucket();
+  }
+
+  private CompileCost() {}
+
+  /** Leitura inicial da thread corrente. */
+  public record Probe(long cpuNanos, long allocBytes) {}
+
+  /** Custo de uma compilação. */
+  public record Sample(long cpuNanos, long allocBytes) {
+    public double cpuMs() { return cpuNanos / 1_000_000.0; }
+    public double allocMb() { return allocBytes / (1024.0 * 1024.0); }
+  }
+
+  public static Probe start() {
+    return new Probe(cpuNow(), allocNow());
+  }
+
+  /** Fecha a medição e agrega na faixa do elenco. */
+  public static Sample stop(Probe probe, int rosterSize) {
+    Sample s = new Sample(
+        Math.max(0, cpuNow() - probe.cpuNanos()),
+        Math.max(0, allocNow() - probe.allocBytes()));
+    BUCKETS[rosterBucket(rosterSize)].add(s);
+    return s;
+  }
+
+  public static Map<String, Object> snapshot() {
+    return collect(false);
+  }
+
+  /** Leitura + zeragem, para fechar um lote. */
+  public static Map<String, Object> snapshotAndReset() {
+    return collect(true);
+  }
+
+  // -------------------------
+  // Internos
+  // -------------------------
+
+  private static com.sun.management.ThreadMXBean threadMx() {
+    java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+    return (mx instanceof com.sun.management.ThreadMXBean sun) ? sun : null;
+  }
+
+  private static long cpuNow() {
+    return CPU_SUPPORTED ? MX.getCurrentThreadCpuTime() : 0L;
+  }
+
+  private static long allocNow() {
+    return ALLOC_SUPPORTED ? MX.getCurrentThreadAllocatedBytes() : 0L;
+  }
+
+  private static int rosterBucket(int rosterSize) {
+    for (int i = 0; i < ROSTER_BOUNDS.length; i++) {
+      if (rosterSize <= ROSTER_BOUNDS[i]) return i;
+    }
+    return ROSTER_BOUNDS.length;
+  }
+
+  private static int histBucket(long[] bounds, long value) {
+    for (int i = 0; i < bounds.length; i++) {
+      if (value <= bounds[i]) return i;
+    }
+    return bounds.length;
+  }
+
+  private static Map<String, Object> collect(boolean reset) {
+    Map<String, Object> rosters = new LinkedHashMap<>();
+    for (int i = 0; i < BUCKETS.length; i++) {
+      Map<String, Object> b = BUCKETS[i].collect(reset);
+      if (b != null) rosters.put(ROSTER_LABELS[i], b);
+    }
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("cpuSupported", CPU_SUPPORTED);
+    out.put("allocSupported", ALLOC_SUPPORTED);
+    out.put("byRosterSize", rosters);
+    return out;
+  }
+
+  private static Map<String, Long> histogram(LongAdder[] counts, long[] bounds, String unit, boolean reset) {
+    Map<String, Long> h = new LinkedHashMap<>();
+    for (int i = 0; i < counts.length; i++) {
+      String label = (i < bounds.length) ? "<=" + bounds[i] + unit : ">" + bounds[bounds.length - 1] + unit;
+      h.put(label, reset ? counts[i].sumThenReset() : counts[i].sum());
+    }
+    return h;
+  }
+
+  private static LongAdder[] adders(int n) {
+    LongAdder[] a = new LongAdder[n];
+    for (int i = 0; i < n; i++) a[i] = new LongAdder();
+    return a;
+  }
+
+  private static final class Bucket {
+    final LongAdder count = new LongAdder();
+    final LongAdder cpuNanos = new LongAdder();
+    final LongAdder allocBytes = new LongAdder();
+    final LongAccumulator cpuNanosMax = new LongAccumulator(Long::max, 0L);
+    final LongAccumulator allocBytesMax = new LongAccumulator(Long::max, 0L);
+    final LongAdder[] cpuHist = adders(CPU_MS_BOUNDS.length + 1);
+    final LongAdder[] allocHist = adders(ALLOC_MB_BOUNDS.length + 1);
+
+    void add(Sample s) {
+      count.increment();
+      cpuNanos.add(s.cpuNanos());
+      allocBytes.add(s.allocBytes());
+      cpuNanosMax.accumulate(s.cpuNanos());
+      allocBytesMax.accumulate(s.allocBytes());
+      cpuHist[histBucket(CPU_MS_BOUNDS, (long) Math.ceil(s.cpuMs()))].increment();
+      allocHist[histBucket(ALLOC_MB_BOUNDS, (long) Math.ceil(s.allocMb()))].increment();
+    }
+
+    Map<String, Object> collect(boolean reset) {
+      long n = reset ? count.sumThenReset() : count.sum();
+      long cpu = reset ? cpuNanos.sumThenReset() : cpuNanos.sum();
+      long alloc = reset ? allocBytes.sumThenReset() : allocBytes.sum();
+      long cpuMax = reset ? cpuNanosMax.getThenReset() : cpuNanosMax.get();
+      long allocMax = reset ? allocBytesMax.getThenReset() : allocBytesMax.get();
+      Map<String, Long> cpuH = histogram(cpuHist, CPU_MS_BOUNDS, "ms", reset);
+      Map<String, Long> allocH = histogram(allocHist, ALLOC_MB_BOUNDS, "MB", reset);
+      if (n == 0) return null;
+
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("count", n);
+      m.put("cpuMsAvg", round2(cpu / 1_000_000.0 / n));
+      m.put("cpuMsMax", round2(cpuMax / 1_000_000.0));
+      m.put("allocMbAvg", round2(alloc / (1024.0 * 1024.0) / n));
+      m.put("allocMbMax", round2(allocMax / (1024.0 * 1024.0)));
+      m.put("cpuHistogram", cpuH);
+      m.put("allocHistogram", allocH);
+      return m;
+    }
+  }
+
+  private static double round2(double v) {
+    return Math.round(v * 100.0) / 100.0;
+  }
+}
@@ -0,0 +1,158 @@
+package br.brasfoot.compiler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache de saídas do /compile: mesmo template + mesmo JSON + mesmos parâmetros
+ * + mesmo mapping → mesmo .ban, sem rodar o BanCompiler de novo.
+ *
+ * A chave inclui Mappings.compileDigest() do snapshot usado na compilação.
+ * Quando um snapshot novo muda seções que afetam a compilação, as entradas do
+ * mapping antigo deixam de casar e são descartadas (evictOtherMappings); mudar
+ * só seções que o compilador não consulta não invalida nada.
+ *
+ * LRU limitado por quantidade e por bytes: ao memorizar, as entradas usadas há
+ * mais tempo saem até caber a nova (mesmo esquema do MemoryTier do
+ * TransfermarktCache).
+ */
+public final class CompileResultCache {
+
+  private static final int MAX_ENTRIES = 256;
+  private static final long MAX_BYTES = 64L * 1024 * 1024;
+
+  /** {@code rosterVersion}: versão da entrada do TransfermarktCache, ou -1 (JSON enviado). */
+  public record Entry(byte[] ban, BanCompiler.CompileResult result, String mappingDigest, long rosterVersion) {}
+
+  // em ordem de acesso; guardado pelo lock da classe
+  private static final LinkedHashMap<String, Entry> BY_KEY = new LinkedHashMap<>(16, 0.75f, true);
+  private static long bytes;
+  private static final LongAdder HITS = new LongAdder();
+  private static final LongAdder MISSES = new LongAdder();
+  private static final LongAdder EVICTED = new LongAdder();
+  private static final LongAdder EVICTED_LRU = new LongAdder();
+
+  private CompileResultCache() {}
+
+  /**
+   * Chave da compilação. {@code snapshot} é o Mappings capturado antes de
+   * compilar — o mesmo que deve ser passado a {@link #put}.
+   */
+  public static String key(byte[] template, byte[] teamJson, Integer teamIdOverride,
+                           Integer countryIdOverride, boolean competitive, Mappings snapshot) {
+    try {
+      return digestKey(template, MessageDigest.getInstance("SHA-256").digest(teamJson),
+          teamIdOverride, countryIdOverride, competitive, snapshot);
+    } catch (Exception e) {
+      throw new IllegalStateException("SHA-256 indisponivel", e);
+    }
+  }
+
+  /**
+   * Chave de uma compilação a partir do TransfermarktCache: o elenco entra só
+   * pela identidade, sem hash do JSON; a versão da entrada fica dentro da Entry
+   * (ver {@link #get(String, long)}), então reescrever o elenco substitui a
+   * saída antiga em vez de deixá-la órfã. {@code template} null = time criado do
+   * zero.
+   */
+  public static String key(byte[] template, TeamIdentity team, Integer teamIdOverride,
+                           Integer countryIdOverride, boolean competitive, Mappings snapshot) {
+    String roster = "tm:" + team.country() + "/" + team.teamId() + "/" + team.season();
+    return digestKey(template, roster.getBytes(StandardCharsets.UTF_8), teamIdOverride, countryIdOverride, competitive, snapshot);
+  }
+
+  private static String digestKey(byte[] template, byte[] rosterDigest, Integer teamIdOverride,
+                                  Integer countryIdOverride, boolean competitive, Mappings snapshot) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(template == null ? new byte[0] : MessageDigest.getInstance("SHA-256").digest(template));
+      md.update(rosterDigest);
+      String params = teamIdOverride + "|" + countryIdOverride + "|" + competitive + "|" + snapshot.compileDigest();
+      md.update(params.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(md.digest());
+    } catch (Exception e) {
+      throw new IllegalStateException("SHA-256 indisponivel", e);
+    }
+  }
+
+  /** Entrada em cache, ou null. */
+  public static Entry get(String key) {
+    return get(key, -1);
+  }
+
+  /** Entrada em cache compilada da versão {@code rosterVersion} do elenco, ou null. */
+  public static synchronized Entry get(String key, long rosterVersion) {
+    Entry e = BY_KEY.get(key);
+    if (e != null && e.rosterVersion() != rosterVersion) e = null;
+    if (e != null) HITS.increment(); else MISSES.increment();
+    return e;
+  }
+
+  /**
+   * Memoriza o resultado se o snapshot usado ainda for o atual (um reload no meio
+   * da compilação não pode gravar saída antiga sob a chave nova). Sem espaço,
+   * descarta as menos usadas; um .ban maior que o limite inteiro não é guardado.
+   */
+  public static void put(String key, byte[] ban, BanCompiler.CompileResult result, Mappings snapshot) {
+    put(key, ban, result, snapshot, -1);
+  }
+
+  /** Como {@link #put(String, byte[], BanCompiler.CompileResult, Mappings)}; substitui a saída de outra versão do elenco. */
+  public static void put(String key, byte[] ban, BanCompiler.CompileResult result, Mappings snapshot, long rosterVersion) {
+    String digest = snapshot.compileDigest();
+    if (!digest.equals(Mappings.get().compileDigest())) return;
+    if (ban.length > MAX_BYTES) return;
+
+    synchronized (CompileResultCache.class) {
+      Entry old = BY_KEY.put(key, new Entry(ban, result, digest, rosterVersion));
+      bytes += ban.length - (old == null ? 0 : old.ban().length);
+      Iterator<Entry> it = BY_KEY.values().iterator();
+      while ((BY_KEY.size() > MAX_ENTRIES || bytes > MAX_BYTES) && it.hasNext()) {
+        Entry e = it.next();
+        bytes -= e.ban().length;
+        it.remove();
+        EVICTED_LRU.increment();
+      }
+    }
+  }
+
+  /** Descarta entradas produzidas com outro digest de mapping (chamado na troca de snapshot). */
+  static synchronized void evictOtherMappings(String currentDigest) {
+    BY_KEY.entrySet().removeIf(e -> {
+      if (e.getValue().mappingDigest().equals(currentDigest)) return false;
+      bytes -= e.getValue().ban().length;
+      EVICTED.increment();
+      return true;
+    });
+  }
+
+  public static synchronized Map<String, Object> snapshot() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("entries", BY_KEY.size());
+    out.put("maxEntries", MAX_ENTRIES);
+    out.put("bytes", bytes);
+    out.put("maxBytes", MAX_BYTES);
+    out.put("hits", HITS.sum());
+    out.put("misses", MISSES.sum());
+    out.put("evictedByMapping", EVICTED.sum());
+    out.put("evictedLru", EVICTED_LRU.sum());
+    out.put("mappingVersion", Mappings.get().version());
+    return out;
+  }
+
+  public static synchronized Map<String, Object> clear() {
+    Map<String, Object> out = snapshot();
+    BY_KEY.clear();
+    bytes = 0;
+    HITS.reset();
+    MISSES.reset();
+    EVICTED.reset();
+    EVICTED_LRU.reset();
+    return out;
+  }
+}
@@ -0,0 +1,85 @@
+package br.brasfoot.compiler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos do JDK Flight Recorder emitidos pelo compilador.
+ *
+ * Diferente do DEBUG (println com concatenação sempre que ligado), os eventos
+ * só preenchem campos depois de shouldCommit(): com a gravação desligada ou o
+ * evento desabilitado, o custo é um begin()/check sem alocação de String.
+ *
+ * Uso típico em produção:
+ *   -XX:StartFlightRecording=settings=default,disk=true,maxage=1h
+ *   jcmd <pid> JFR.dump name=1 filename=liga.jfr
+ *   jfr print --events br.brasfoot.PlayerHeuristicDecision liga.jfr
+ */
+public final class CompilerEvents {
+
+  private CompilerEvents() {}
+
+  @Name("br.brasfoot.CompileStage")
+  @Label("Compile Stage")
+  @Category({"Brasfoot", "Compiler"})
+  @Description("Duração de uma etapa de BanCompiler.compileTeamJsonToBan")
+  @StackTrace(false)
+  public static final class CompileStage extends Event {
+    @Label("Team") public String team;
+    @Label("Stage") public String stage;
+  }
+
+  @Name("br.brasfoot.PlayerHeuristicDecision")
+  @Label("Player Heuristic Decision")
+  @Category({"Brasfoot", "Heuristics"})
+  @Description("Perfil, caminho e par de características escolhidos para um jogador")
+  @StackTrace(false)
+  public static final class PlayerHeuristicDecision extends Event {
+    @Label("Player") public String player;
+    @Label("Position Text") public String posText;
+    @Label("Profile") public String profile;
+    @Label("Generic Profile") @Description("Perfil GENERIC_* original, quando resolvido para scoring")
+    public String genericProfile;
+    @Label("Path") public String path;
+    @Label("Pair") public String pair;
+    @Label("Resolved Position") public int resolvedPos;
+  }
+
+  @Name("br.brasfoot.SideResolution")
+  @Label("Side Resolution")
+  @Category({"Brasfoot", "Compiler"})
+  @Description("Lado atribuído no pós-elenco (adiado ou rebalanceado)")
+  @StackTrace(false)
+  public static final class SideResolution extends Event {
+    @Label("Team") public String team;
+    @Label("Player") public String player;
+    @Label("Kind") @Description("ambidestro, sem-pe ou rebalance")
+    public String kind;
+    @Label("Side") @Description("0=Direito, 1=Esquerdo")
+    public int side;
+    @Label("Left Count") public int leftCount;
+    @Label("Right Count") public int rightCount;
+  }
+
+  // -------------------------
+  // Helpers de etapa
+  // -------------------------
+
+  static CompileStage beginStage() {
+    CompileStage ev = new CompileStage();
+    ev.begin();
+    return ev;
+  }
+
+  static void endStage(CompileStage ev, String team, String stage) {
+    if (ev.shouldCommit()) {
+      ev.team = team;
+      ev.stage = stage;
+      ev.commit();
+    }
+  }
+}
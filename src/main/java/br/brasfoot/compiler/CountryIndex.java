@@ -0,0 +1,132 @@
+package br.brasfoot.compiler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice imutável nome/alias → id de país do Brasfoot, montado uma vez a partir
+ * de mapping.json (nomes + aliases em português, inglês e alemão, todos como dado).
+ *
+ * Cada nome/alias entra com três chaves pré-calculadas: como escrito no JSON,
+ * lowercase+trim e lowercase+trim sem acentos. Nacionalidades do Transfermarkt
+ * chegam quase sempre exatamente como um nome/alias, então resolvem com uma
+ * única consulta ao HashMap. Variações (caixa, espaços, acentos) são
+ * normalizadas uma vez e memorizadas — inclusive as que não resolvem —
+ * num cache limitado, para que erros repetidos também custem uma consulta.
+ */
+public final class CountryIndex {
+
+  // Acima disso, variações novas são resolvidas sem memorizar (entrada lixo
+  // não deve crescer o cache sem fim).
+  private static final int MAX_LEARNED = 4096;
+  private static final Integer MISS = -1;
+
+  private final Map<String, Integer> byKey;
+  private final ConcurrentHashMap<String, Integer> learned = new ConcurrentHashMap<>();
+
+  private CountryIndex(Map<String, Integer> byKey) {
+    this.byKey = Map.copyOf(byKey);
+  }
+
+  /** Id do país, ou null se o nome não for reconhecido. */
+  public Integer resolve(String name) {
+    if (name == null) return null;
+
+    Integer id = byKey.get(name);
+    if (id != null) return id;
+
+    Integer cached = learned.get(name);
+    if (cached != null) return cached.equals(MISS) ? null : cached;
+
+    id = resolveNormalized(name);
+    if (learned.size() < MAX_LEARNED) learned.putIfAbsent(name, id != null ? id : MISS);
+    return id;
+  }
+
+  /** Quantidade de chaves pré-calculadas (diagnóstico). */
+  public int size() {
+    return byKey.size();
+  }
+
+  /** Digest do conteúdo (chaves ordenadas + ids), independente da ordem de montagem. */
+  String digest() {
+    String[] keys = sortedKeys();
+    return Mappings.digest(keys, idsOf(keys));
+  }
+
+  /** Índice de trigramas sobre as chaves normalizadas (sem acento) do índice. */
+  FuzzyMatcher fuzzyMatcher(double threshold) {
+    String[] keys = byKey.keySet().stream()
+        .filter(k -> k.equals(TextUtil.deaccent(norm(k))))
+        .sorted()
+        .toArray(String[]::new);
+    return FuzzyMatcher.of("paises", keys, idsOf(keys), threshold);
+  }
+
+  private String[] sortedKeys() {
+    String[] keys = byKey.keySet().toArray(new String[0]);
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  private int[] idsOf(String[] keys) {
+    int[] ids = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) ids[i] = byKey.get(keys[i]);
+    return ids;
+  }
+
+  private Integer resolveNormalized(String name) {
+    String k = norm(name);
+    if (k.isEmpty()) return null;
+
+    Integer id = byKey.get(k);
+    if (id != null) return id;
+
+    String noAcc = TextUtil.deaccent(k);
+    return noAcc.equals(k) ? null : byKey.get(noAcc);
+  }
+
+  static String norm(String s) {
+    if (s == null) return "";
+    return s.trim().toLowerCase(Locale.ROOT);
+  }
+
+  // -------------------------
+  // Builder
+  // -------------------------
+
+  static Builder builder() {
+    return new Builder();
+  }
+
+  /** Índice a partir de chaves já normalizadas (tabelas geradas em MappingTables). */
+  static CountryIndex of(String[] keys, int[] ids) {
+    Map<String, Integer> m = new HashMap<>(keys.length * 2);
+    for (int i = 0; i < keys.length; i++) m.putIfAbsent(keys[i], ids[i]);
+    return new CountryIndex(m);
+  }
+
+  static final class Builder {
+    private final Map<String, Integer> keys = new HashMap<>();
+
+    private Builder() {}
+
+    /** Primeiro a registrar uma chave vence (mesma precedência da ordem do JSON). */
+    Builder add(String nameOrAlias, int id) {
+      if (nameOrAlias == null || nameOrAlias.isBlank()) return this;
+
+      String k1 = norm(nameOrAlias);
+      keys.putIfAbsent(k1, id);
+      keys.putIfAbsent(TextUtil.deaccent(k1), id);
+      keys.putIfAbsent(nameOrAlias, id);
+      return this;
+    }
+
+    CountryIndex build() {
+      return new CountryIndex(keys);
+    }
+  }
+}
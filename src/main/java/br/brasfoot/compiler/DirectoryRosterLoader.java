@@ -0,0 +1,46 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * RosterLoader que lê JSONs de um diretório local no layout
+ * <country>/<teamId>/<season>.json (saída do scraper, ou outra árvore de
+ * cache em JSON montada por NFS). Serve de fonte simples para testes e para
+ * semear caches.
+ */
+public final class DirectoryRosterLoader implements RosterLoader {
+
+  private final Path root;
+
+  public DirectoryRosterLoader(Path root) {
+    this.root = Objects.requireNonNull(root, "root").toAbsolutePath().normalize();
+  }
+
+  public Path pathOf(TeamIdentity team) {
+    return CacheLayout.inside(root, root
+        .resolve(team.country())
+        .resolve(String.valueOf(team.teamId()))
+        .resolve(team.season() + ".json"));
+  }
+
+  @Override
+  public JsonArray load(TeamIdentity team) throws IOException {
+    Path p = pathOf(Objects.requireNonNull(team, "team"));
+    if (!Files.isRegularFile(p)) throw new NoSuchFileException(p.toString());
+    try (Reader r = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+      return JsonParser.parseReader(r).getAsJsonArray();
+    } catch (JsonParseException | IllegalStateException e) {
+      throw new IOException(p + ": nao e um array de jogadores", e);
+    }
+  }
+}
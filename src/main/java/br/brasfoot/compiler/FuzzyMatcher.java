@@ -0,0 +1,218 @@
+package br.brasfoot.compiler;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Casamento aproximado sobre um dicionário do Mappings (chaves normalizadas →
+ * id), para nomes que não batem exatamente: erros de digitação, grafias
+ * alternativas, rótulos do transfermarkt.de.
+ *
+ * Índice de trigramas pré-calculado por snapshot: cada trigrama (3 chars
+ * empacotados num long, em array ordenado) aponta para as chaves que o contêm.
+ * Uma consulta soma trigramas em comum só nas listas tocadas e pontua com Dice
+ * (2·comuns / (|consulta| + |chave|)). Aceita o melhor candidato se passar do
+ * limiar e ficar pelo menos MIN_MARGIN acima do melhor candidato de outro id —
+ * na dúvida, não resolve.
+ *
+ * Resultados (inclusive falhas) ficam memorizados por string bruta num cache
+ * limitado, então repetir o mesmo rótulo custa uma consulta ao mapa.
+ */
+public final class FuzzyMatcher {
+
+  private static final int MAX_MEMO = 4096;
+  private static final int MIN_QUERY_LEN = 4;
+  /**
+   * Vantagem mínima (em Dice) do melhor id sobre o segundo. Sem ela, um quase
+   * empate resolvia para quem tivesse um trigrama a mais: "Guinea Bis" dá 0,80
+   * para Guinea-Bissau e 0,78 para Guinea.
+   */
+  static final double MIN_MARGIN = 0.05;
+  private static final Integer MISS = -1;
+
+  private final String section;
+  private final double threshold;
+  private final int[] ids;
+  private final int[] gramCount;   // trigramas distintos por chave
+  private final long[] grams;      // trigramas distintos, ordenados
+  private final int[][] postings;  // grams[i] → índices das chaves
+  private final ConcurrentHashMap<String, Integer> memo = new ConcurrentHashMap<>();
+
+  private FuzzyMatcher(String section, double threshold, int[] ids, int[] gramCount,
+                       long[] grams, int[][] postings) {
+    this.section = section;
+    this.threshold = threshold;
+    this.ids = ids;
+    this.gramCount = gramCount;
+    this.grams = grams;
+    this.postings = postings;
+  }
+
+  static FuzzyMatcher of(String section, String[] keys, int[] ids, double threshold) {
+    int[] gramCount = new int[keys.length];
+    TreeMap<Long, int[]> index = new TreeMap<>();   // int[]{n, idx...} crescendo
+
+    for (int k = 0; k < keys.length; k++) {
+      long[] g = trigrams(keys[k]);
+      gramCount[k] = g.length;
+      for (long t : g) {
+        int[] list = index.get(t);
+        if (list == null) list = new int[] {0, 0, 0, 0};
+        if (list[0] + 1 == list.length) list = Arrays.copyOf(list, list.length * 2);
+        list[++list[0]] = k;
+        index.put(t, list);
+      }
+    }
+
+    long[] grams = new long[index.size()];
+    int[][] postings = new int[index.size()][];
+    int i = 0;
+    for (Map.Entry<Long, int[]> e : index.entrySet()) {
+      grams[i] = e.getKey();
+      int[] list = e.getValue();
+      postings[i] = Arrays.copyOfRange(list, 1, list[0] + 1);
+      i++;
+    }
+    return new FuzzyMatcher(section, threshold, ids.clone(), gramCount, grams, postings);
+  }
+
+  /** Id do candidato mais parecido, ou null (contabilizado em unresolved). */
+  Integer match(String raw) {
+    if (raw == null || raw.isBlank()) return null;
+
+    Integer cached = memo.get(raw);
+    if (cached == null) {
+      cached = compute(raw);
+      if (memo.size() < MAX_MEMO) memo.putIfAbsent(raw, cached);
+    }
+
+    if (cached.equals(MISS)) {
+      Counters.unresolved(section, raw);
+      return null;
+    }
+    Counters.FUZZY_HITS.computeIfAbsent(section, s -> new LongAdder()).increment();
+    return cached;
+  }
+
+  /** Consulta ao índice sem memo e sem métricas (MISS = -1). */
+  Integer compute(String raw) {
+    long[] q = trigrams(raw);
+    if (q.length < MIN_QUERY_LEN) return MISS;
+
+    int[] shared = new int[ids.length];
+    for (long t : q) {
+      int gi = Arrays.binarySearch(grams, t);
+      if (gi < 0) continue;
+      for (int k : postings[gi]) shared[k]++;
+    }
+
+    double best = 0, second = 0;
+    int bestIdx = -1;
+    for (int k = 0; k < shared.length; k++) {
+      if (shared[k] == 0) continue;
+      double score = 2.0 * shared[k] / (q.length + gramCount[k]);
+      if (score > best) {
+        if (bestIdx >= 0 && ids[bestIdx] != ids[k]) second = best;
+        best = score;
+        bestIdx = k;
+      } else if (score > second && ids[k] != ids[bestIdx]) {
+        second = score;
+      }
+    }
+
+    if (bestIdx < 0 || best < threshold || best - second < MIN_MARGIN) return MISS;
+    return ids[bestIdx];
+  }
+
+  /**
+   * Trigramas distintos do texto normalizado (minúsculas, sem acentos, só
+   * letras/dígitos separados por espaço simples), com borda "  x ... z ".
+   */
+  static long[] trigrams(String s) {
+    String t = TextUtil.deaccent(s.toLowerCase(Locale.ROOT));
+
+    StringBuilder sb = new StringBuilder(t.length() + 3).append("  ");
+    boolean space = true;
+    for (int i = 0; i < t.length(); i++) {
+      char c = t.charAt(i);
+      if (Character.isLetterOrDigit(c)) {
+        sb.append(c);
+        space = false;
+      } else if (!space) {
+        sb.append(' ');
+        space = true;
+      }
+    }
+    if (!space) sb.append(' ');
+    if (sb.length() < 4) return new long[0];
+
+    long[] out = new long[sb.length() - 2];
+    for (int i = 0; i < out.length; i++) {
+      out[i] = ((long) sb.charAt(i) << 32) | ((long) sb.charAt(i + 1) << 16) | sb.charAt(i + 2);
+    }
+    Arrays.sort(out);
+
+    int n = 0;
+    for (int i = 0; i < out.length; i++) {
+      if (n == 0 || out[n - 1] != out[i]) out[n++] = out[i];
+    }
+    return Arrays.copyOf(out, n);
+  }
+
+  // -------------------------
+  // Métricas
+  // -------------------------
+
+  /**
+   * Acertos do fuzzy e casos não resolvidos por seção, mais os rótulos brutos
+   * não resolvidos mais frequentes (candidatos a alias no mapping.json).
+   */
+  static final class Counters {
+    private static final int MAX_SAMPLES = 512;
+
+    static final ConcurrentHashMap<String, LongAdder> FUZZY_HITS = new ConcurrentHashMap<>();
+    static final ConcurrentHashMap<String, LongAdder> UNRESOLVED = new ConcurrentHashMap<>();
+    static final ConcurrentHashMap<String, LongAdder> SAMPLES = new ConcurrentHashMap<>();
+
+    private Counters() {}
+
+    static void unresolved(String section, String raw) {
+      UNRESOLVED.computeIfAbsent(section, s -> new LongAdder()).increment();
+      String k = section + ":" + raw.trim();
+      LongAdder a = SAMPLES.get(k);
+      if (a == null && SAMPLES.size() < MAX_SAMPLES) a = SAMPLES.computeIfAbsent(k, x -> new LongAdder());
+      if (a != null) a.increment();
+    }
+  }
+
+  public static Map<String, Object> snapshot() {
+    return collect(false);
+  }
+
+  public static Map<String, Object> snapshotAndReset() {
+    return collect(true);
+  }
+
+  private static Map<String, Object> collect(boolean reset) {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("fuzzyHits", sums(Counters.FUZZY_HITS, reset));
+    out.put("unresolved", sums(Counters.UNRESOLVED, reset));
+    out.put("unresolvedSamples", sums(Counters.SAMPLES, reset));
+    if (reset) Counters.SAMPLES.clear();
+    return out;
+  }
+
+  private static Map<String, Long> sums(ConcurrentHashMap<String, LongAdder> m, boolean reset) {
+    Map<String, Long> out = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> e : m.entrySet()) {
+      long v = reset ? e.getValue().sumThenReset() : e.getValue().sum();
+      if (v > 0) out.put(e.getKey(), v);
+    }
+    return out;
+  }
+}
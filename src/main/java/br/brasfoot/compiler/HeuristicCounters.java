@@ -0,0 +1,69 @@
+package br.brasfoot.compiler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de decisões do HeuristicsEngine: quantas vezes cada caminho de
+ * pickTop2CharacteristicsByManual foi tomado, quantos perfis GENERIC_* foram
+ * resolvidos e a distribuição por perfil final.
+ *
+ * LongAdder evita contenção quando várias requests compilam em paralelo; os
+ * contadores são globais ao processo e zerados por lote (liga) via snapshotAndReset().
+ */
+public final class HeuristicCounters {
+
+  private static final HeuristicPath[] PATHS = HeuristicPath.values();
+  private static final LongAdder[] BY_PATH = new LongAdder[PATHS.length];
+  private static final LongAdder GENERIC_RESOLVED = new LongAdder();
+  private static final ConcurrentHashMap<String, LongAdder> BY_PROFILE = new ConcurrentHashMap<>();
+
+  static {
+    for (int i = 0; i < BY_PATH.length; i++) BY_PATH[i] = new LongAdder();
+  }
+
+  private HeuristicCounters() {}
+
+  static void record(HeuristicPath path, String profile, boolean genericResolved) {
+    BY_PATH[path.ordinal()].increment();
+    if (genericResolved) GENERIC_RESOLVED.increment();
+    if (profile != null) BY_PROFILE.computeIfAbsent(profile, k -> new LongAdder()).increment();
+  }
+
+  /** Leitura sem zerar (valores podem estar levemente defasados sob concorrência). */
+  public static Map<String, Object> snapshot() {
+    return collect(false);
+  }
+
+  /** Leitura + zeragem, para fechar um lote (liga) e começar o próximo do zero. */
+  public static Map<String, Object> snapshotAndReset() {
+    return collect(true);
+  }
+
+  private static Map<String, Object> collect(boolean reset) {
+    Map<String, Long> paths = new LinkedHashMap<>();
+    long total = 0;
+    for (HeuristicPath p : PATHS) {
+      LongAdder a = BY_PATH[p.ordinal()];
+      long v = reset ? a.sumThenReset() : a.sum();
+      paths.put(p.name(), v);
+      total += v;
+    }
+
+    Map<String, Long> profiles = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> e : BY_PROFILE.entrySet()) {
+      long v = reset ? e.getValue().sumThenReset() : e.getValue().sum();
+      if (v > 0) profiles.put(e.getKey(), v);
+    }
+
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("total", total);
+    out.put("paths", paths);
+    out.put("genericResolved", reset ? GENERIC_RESOLVED.sumThenReset() : GENERIC_RESOLVED.sum());
+    out.put("profiles", profiles);
+    return out;
+  }
+}
@@ -0,0 +1,22 @@
+package br.brasfoot.compiler;
+
+/**
+ * Caminho tomado por HeuristicsEngine.pickTop2CharacteristicsByManual para
+ * chegar ao par de características gravado no jogador.
+ */
+public enum HeuristicPath {
+  /** Amostra insuficiente (played < MIN_FALLBACK_SAMPLE): sorteio ponderado por atributos estáticos. */
+  FALLBACK,
+  /** Score do par vencedor abaixo do limiar: sorteio ponderado dentro do pool do perfil. */
+  LOW_CONFIDENCE,
+  /** Top-2 por score já é um par permitido, na ordem canônica. */
+  DIRECT,
+  /** Top-2 permitido apenas na ordem inversa: trocado para a ordem do allowed. */
+  CANONICAL_SWAP,
+  /** Top-2 não permitido: melhor par permitido dentre os top-5. */
+  ADJUSTED_TO_ALLOWED,
+  /** Nenhum par permitido nos top-5: fallback ponderado do perfil. */
+  NO_ALLOWED_PAIR,
+  /** Menos de 2 scores calculados: fallback ponderado do perfil. */
+  INSUFFICIENT_SCORES
+}
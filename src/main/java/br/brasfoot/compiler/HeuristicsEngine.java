@@ -55,6 +55,8 @@ public final class HeuristicsEngine {
     final int pos;
     final String posText;
     final List<String> secondary;
+    final PositionClassifier.Classification cls;       // posText classificado (memorizado)
+    final List<PositionClassifier.Classification> secondaryCls;
     final int related;
     final int played;
     final int goals;
@@ -115,6 +117,10 @@ public final class HeuristicsEngine {
       this.pos = pos;
       this.posText = posText;
       this.secondary = secondary;
+      this.cls = PositionClassifier.classify(posText);
+      List<PositionClassifier.Classification> sc = new ArrayList<>(secondary.size());
+      for (String s : secondary) sc.add(PositionClassifier.classify(s));
+      this.secondaryCls = sc;
       this.related = related;
       this.played = played;
       this.goals = goals;
@@ -204,20 +210,17 @@ public final class HeuristicsEngine {
   // Profile detection helpers (corrected order)
   // -------------------------------------------------------------------------
   private static boolean isVolante(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    return m.pos == 3 && p.contains("volante");
+    return m.pos == 3 && m.cls.volante();
   }
 
   private static boolean isMeiaOfensivo(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    if (p.contains("meia ofensivo") || p.contains("meia atacante")) return true;
-    return m.secondary.stream().anyMatch(s -> s.toLowerCase(Locale.ROOT).contains("meia atacante"));
+    if (m.cls.meiaOfensivo()) return true;
+    return m.secondaryCls.stream().anyMatch(PositionClassifier.Classification::meiaAtacante);
   }
 
   private static boolean isMeiaCentral(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    if (p.contains("meia central")) return true;
-    return m.secondary.stream().anyMatch(s -> s.toLowerCase(Locale.ROOT).contains("volante"));
+    if (m.cls.meiaCentral()) return true;
+    return m.secondaryCls.stream().anyMatch(PositionClassifier.Classification::volante);
   }
 
   /**
@@ -226,26 +229,15 @@ public final class HeuristicsEngine {
    * Não deve colidir com meia central, meia ofensivo nem volante (verificados antes).
    */
   private static boolean isMeiaEsquerdaDireita(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    return p.contains("meia esquerda")
-        || p.contains("meia direita")
-        || p.contains("left mid")
-        || p.contains("right mid")
-        || p.contains("left midfielder")
-        || p.contains("right midfielder")
-        || p.equals("meia esq")
-        || p.equals("meia dir");
+    return m.cls.meiaLateral();
   }
 
   private static boolean isLateralDefensivo(Metrics m) {
-    return m.secondary.stream().anyMatch(s -> s.toLowerCase(Locale.ROOT).contains("zagueiro"));
+    return m.secondaryCls.stream().anyMatch(PositionClassifier.Classification::zagueiro);
   }
 
   private static boolean isLateralOfensivo(Metrics m) {
-    return m.secondary.stream().anyMatch(s -> {
-      String low = s.toLowerCase(Locale.ROOT);
-      return low.contains("meia") || low.contains("ponta") || low.contains("atacante");
-    });
+    return m.secondaryCls.stream().anyMatch(c -> c.meia() || c.ponta() || c.atacante());
   }
 
   private static boolean isZagueiroOfensivo(Metrics m) {
@@ -254,71 +246,17 @@ public final class HeuristicsEngine {
   }
 
   private static boolean isCentroavante(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    return p.contains("centroavante") || p.contains("9");
+    return m.cls.centroavante();
   }
 
   private static boolean isPonta(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    if (p.contains("ponta") || p.contains("extremo")) return true;
-    return m.secondary.stream().anyMatch(s -> s.toLowerCase(Locale.ROOT).contains("ponta"));
+    if (m.cls.ponta() || m.cls.extremo()) return true;
+    return m.secondaryCls.stream().anyMatch(PositionClassifier.Classification::ponta);
   }
 
   private static boolean isSegundoAtacante(Metrics m) {
-    String p = m.posText.toLowerCase(Locale.ROOT);
-    if (p.contains("segundo atacante") || p.contains("recu")) return true;
-    return m.secondary.stream().anyMatch(s -> s.toLowerCase(Locale.ROOT).contains("segundo"));
-  }
-
-  /**
-   * Detecta se o posText é uma categoria posicional GENÉRICA do Transfermarkt
-   * (sem especificação de subposição).
-   *
-   * Retorna:
-   *   "GENERIC_DEF" — "Defensor", "Defensores", "Defender", etc.
-   *   "GENERIC_MID" — "Meio-Campo", "Meio Campo", "Midfield", "Mittelfeld"
-   *   "GENERIC_ATK" — "Atacante", "Forward", "Stürmer" (sem sub como Ponta, CA, etc.)
-   *   null          — posText tem subposição específica (não é genérico)
-   *
-   * A verificação de tokens negativos garante que "Lateral Defensivo" não
-   * seja confundido com "Defensor".
-   */
-  private static String detectGenericCategory(String posText) {
-    if (posText == null || posText.isBlank()) return null;
-    String p = posText.toLowerCase(Locale.ROOT).trim();
-
-    // ── Defensor genérico ──────────────────────────────────────────────────
-    // Aceita: "Defensor", "Defensores", "Defender", "Abwehr", "Verteidiger"
-    // Rejeita: qualquer texto que já contenha subposição específica
-    boolean isDefToken = p.equals("defensor") || p.equals("defensores")
-        || p.equals("defender") || p.equals("defenders")
-        || p.equals("abwehr") || p.equals("verteidiger");
-    boolean hasSpecificDef = p.contains("lateral") || p.contains("zagueiro")
-        || p.contains("ala") || p.contains("back") || p.contains("cb")
-        || p.contains("innenverteidiger") || p.contains("außenverteidiger");
-    if (isDefToken && !hasSpecificDef) return "GENERIC_DEF";
-
-    // ── Meio-campo genérico ────────────────────────────────────────────────
-    // Aceita: "Meio-Campo", "Meio Campo", "Midfield", "Mittelfeld"
-    // Rejeita: textos com subposição (volante, meia central, meia ofensivo, etc.)
-    boolean isMidToken = p.equals("meio-campo") || p.equals("meio campo")
-        || p.equals("midfield") || p.equals("mittelfeld");
-    boolean hasSpecificMid = p.contains("volante") || p.contains("central")
-        || p.contains("ofensivo") || p.contains("esquerda") || p.contains("direita")
-        || p.contains("defensivo") || p.contains("attacking") || p.contains("defensive");
-    if (isMidToken && !hasSpecificMid) return "GENERIC_MID";
-
-    // ── Atacante genérico ──────────────────────────────────────────────────
-    // Aceita: "Atacante", "Forward", "Stürmer", "Sturmer"
-    // Rejeita: textos com subposição (ponta, centroavante, segundo atacante, etc.)
-    boolean isAtkToken = p.equals("atacante") || p.equals("forward")
-        || p.equals("stürmer") || p.equals("sturmer") || p.equals("forwards");
-    boolean hasSpecificAtk = p.contains("ponta") || p.contains("centroavante")
-        || p.contains("segundo") || p.contains("extremo") || p.contains("winger")
-        || p.contains("centre-forward") || p.contains("mittelstürmer");
-    if (isAtkToken && !hasSpecificAtk) return "GENERIC_ATK";
-
-    return null; // posText tem subposição específica
+    if (m.cls.segundoAtacante()) return true;
+    return m.secondaryCls.stream().anyMatch(PositionClassifier.Classification::segundo);
   }
 
   /**
@@ -1105,7 +1043,7 @@ public final class HeuristicsEngine {
 
     // 1. Categoria genérica tem prioridade — deve ser verificada ANTES do routing por pos,
     //    pois o pos numérico (vindo do PositionUtil) pode ser impreciso para textos genéricos.
-    String generic = detectGenericCategory(m.posText);
+    String generic = m.cls.genericCategory();
     if (generic != null) return generic;
 
     int pos = m.pos;
@@ -1118,8 +1056,7 @@ public final class HeuristicsEngine {
       if (defensivo) return "LAT_DEF";
       if (ofensivo)  return "LAT_OF";
       // Sem secundária clara: "ala" → ofensivo por padrão; caso contrário, heurística
-      String pLow = m.posText.toLowerCase(Locale.ROOT);
-      if (pLow.contains("ala")) return "LAT_OF";
+      if (m.cls.ala()) return "LAT_OF";
       return (m.participationPerGame >= 0.08) ? "LAT_OF" : "LAT_DEF";
     }
 
@@ -1186,6 +1123,11 @@ public final class HeuristicsEngine {
         penaltyGoals, minutesPerGoal, minutesPlayed,
         goalsConceded, cleanSheets, penFaced, penSaved, idade, heightM);
 
+    // Evento JFR: begin() é barato; campos só são preenchidos em decided()
+    // se a gravação estiver ativa para este evento.
+    CompilerEvents.PlayerHeuristicDecision ev = new CompilerEvents.PlayerHeuristicDecision();
+    ev.begin();
+
     // Detecta perfil antecipadamente (usado tanto no fallback quanto no scored path)
     String profile = detectProfile(m);
 
@@ -1200,7 +1142,7 @@ public final class HeuristicsEngine {
             + idxToName(fallback[0]) + "/" + idxToName(fallback[1])
             + " for profile=" + profile);
       }
-      return fallback;
+      return decided(ev, HeuristicPath.FALLBACK, m, profile, null, fallback);
     }
 
     // Posição genérica com stats → resolve para subposição de scoring específica.
@@ -1208,9 +1150,11 @@ public final class HeuristicsEngine {
     // refletir a subposição resolvida. resolvedPos é calculado a partir do subperfil
     // resolvido para garantir consistência com a característica que será gravada.
     int resolvedPos = pos; // será sobrescrito para posições genéricas
+    String genericProfile = null;
     if (profile.startsWith("GENERIC_")) {
       if (DEBUG) System.out.println("[DEBUG] Generic profile '" + profile
           + "' resolved for scoring (pos=" + pos + ")");
+      genericProfile = profile;
       profile = resolveGenericToScoringProfile(profile, pos, m);
       resolvedPos = profileToPos(profile);
       if (DEBUG) System.out.println("[DEBUG] resolvedPos=" + resolvedPos
@@ -1292,7 +1236,8 @@ public final class HeuristicsEngine {
     }
 
     if (sorted.size() < 2) {
-      return getFallbackWeighted(profile, pos, m);
+      return decided(ev, HeuristicPath.INSUFFICIENT_SCORES, m, profile, genericProfile,
+          getFallbackWeighted(profile, pos, m));
     }
 
     int first  = sorted.get(0).getKey();
@@ -1348,7 +1293,8 @@ public final class HeuristicsEngine {
         if (DEBUG) System.out.println("[DEBUG] Low-confidence [" + profile
             + "] score=" + winScore + "<" + LOW_CONF_THRESHOLD
             + " → sorteio ponderado: " + chosen);
-        return new int[]{ pair[0], pair[1], resolvedPos };
+        return decided(ev, HeuristicPath.LOW_CONFIDENCE, m, profile, genericProfile,
+            new int[]{ pair[0], pair[1], resolvedPos });
       }
     }
     // ─────────────────────────────────────────────────────────────────────────
@@ -1358,14 +1304,17 @@ public final class HeuristicsEngine {
     String pair1 = idxToName(first) + "/" + idxToName(second);
     String pair2 = idxToName(second) + "/" + idxToName(first);
 
+    HeuristicPath path;
     if (allowed.contains(pair1) || allowed.contains(pair2)) {
       // Se apenas o par inverso está no allowed, usa a ordem canônica do allowed.
       // Ex.: allowed tem "Cru/Fin" mas scoring gerou first=Fin, second=Cru →
       //      sem swap teríamos "Fin/Cru"; com swap geramos "Cru/Fin". Correto.
       if (!allowed.contains(pair1) && allowed.contains(pair2)) {
         int tmp = first; first = second; second = tmp;
+        path = HeuristicPath.CANONICAL_SWAP;
         if (DEBUG) System.out.println("[DEBUG] Canonical swap: " + pair1 + " → " + idxToName(first) + "/" + idxToName(second));
       } else {
+        path = HeuristicPath.DIRECT;
         if (DEBUG) System.out.println("[DEBUG] Selected pair: " + pair1 + " (allowed)");
       }
     } else {
@@ -1405,16 +1354,39 @@ public final class HeuristicsEngine {
       if (foundAllowed) {
         first  = bestA;
         second = bestB;
+        path = HeuristicPath.ADJUSTED_TO_ALLOWED;
         if (DEBUG) System.out.println("[DEBUG] Adjusted to best allowed pair: "
             + idxToName(first) + "/" + idxToName(second));
       } else {
         // Nenhum par nos top-5 está no allowed list — usa fallback ponderado do perfil
         if (DEBUG) System.out.println("[DEBUG] No allowed pair in top-5; using weighted fallback for " + profile);
-        return getFallbackWeighted(profile, pos, m);
+        return decided(ev, HeuristicPath.NO_ALLOWED_PAIR, m, profile, genericProfile,
+            getFallbackWeighted(profile, pos, m));
       }
     }
 
-    return new int[] { first, second, resolvedPos };
+    return decided(ev, path, m, profile, genericProfile, new int[] { first, second, resolvedPos });
+  }
+
+  /**
+   * Ponto único de saída de pickTop2CharacteristicsByManual: conta o caminho em
+   * HeuristicCounters e fecha o evento JFR da decisão. Com o evento
+   * desabilitado, nenhuma String é montada.
+   */
+  private static int[] decided(CompilerEvents.PlayerHeuristicDecision ev, HeuristicPath path,
+                               Metrics m, String profile, String genericProfile, int[] result) {
+    HeuristicCounters.record(path, profile, genericProfile != null);
+    if (ev.shouldCommit()) {
+      ev.player = SEED_KEY.get();
+      ev.posText = m.posText;
+      ev.profile = profile;
+      ev.genericProfile = genericProfile;
+      ev.path = path.name();
+      ev.pair = idxToName(result[0]) + "/" + idxToName(result[1]);
+      ev.resolvedPos = result.length > 2 ? result[2] : m.pos;
+      ev.commit();
+    }
+    return result;
   }
 
   private static String idxToName(int idx) {
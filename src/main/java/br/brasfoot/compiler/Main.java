@@ -18,6 +18,62 @@ public final class Main {
             return;
         }
 
+        if (a.containsKey("--inspectDir")) {
+            Path dir = requirePath(a, "--inspectDir");
+            if (!Files.isDirectory(dir)) {
+                usageAndFail("--inspectDir is not a directory: " + dir);
+            }
+            BanBulkInspector.Format format;
+            try {
+                format = BanBulkInspector.parseFormat(a.get("--format"));
+            } catch (IllegalArgumentException e) {
+                usageAndFail("Invalid --format (ndjson|csv): " + a.get("--format"));
+                return;
+            }
+            Integer threads = optionalInt(a, "--threads");
+
+            BanBulkInspector.Summary s = BanBulkInspector.inspectDir(
+                dir, optionalPath(a, "--out"), format, threads != null ? threads : 0);
+            System.err.printf("inspectDir files=%d failed=%d players=%d juniors=%d ms=%d%n",
+                s.files(), s.failed(), s.players(), s.juniors(), s.elapsedMs());
+            return;
+        }
+
+        if (a.containsKey("--cacheMigrate")) {
+            Path dir = requirePath(a, "--cacheMigrate");
+            if (!Files.isDirectory(dir)) {
+                usageAndFail("--cacheMigrate is not a directory: " + dir);
+            }
+            CacheConfig target = CacheConfig.load(dir);
+            try {
+                if (a.get("--to") != null) target = target.withFormat(CacheFormat.parse(a.get("--to")));
+                if (a.get("--compression") != null) {
+                    target = target.withCompression(CacheCompression.parseMode(a.get("--compression")));
+                }
+                if (a.get("--layout") != null) target = target.withLayout(CacheLayout.parseLayout(a.get("--layout")));
+            } catch (IllegalArgumentException e) {
+                usageAndFail("Invalid --to (json|bin), --compression (none|deflate) or --layout (flat|sharded): "
+                    + e.getMessage());
+                return;
+            }
+
+            CacheMigrator.Summary s = CacheMigrator.migrate(dir, target);
+            System.err.printf("cacheMigrate files=%d converted=%d skipped=%d failed=%d bytes=%d->%d%n",
+                s.files(), s.converted(), s.skipped(), s.failed(), s.bytesBefore(), s.bytesAfter());
+            return;
+        }
+
+        if (a.containsKey("--cacheManifest")) {
+            Path dir = requirePath(a, "--cacheManifest");
+            if (!Files.isDirectory(dir)) {
+                usageAndFail("--cacheManifest is not a directory: " + dir);
+            }
+            CacheManifest m = CacheManifest.rebuild(dir);
+            System.err.printf("cacheManifest entries=%d%n", m.size());
+            m.close();
+            return;
+        }
+
         boolean hasInput = a.containsKey("--input");
         boolean hasInputDir = a.containsKey("--inputDir");
 
@@ -35,8 +91,12 @@ public final class Main {
             Path input = requirePath(a, "--input");
             Path out = requirePath(a, "--out");
 
-            BanCompiler.compileTeamJsonToBan(input, template, out, teamId, countryId, false);
+            CompileCost.Probe probe = CompileCost.start();
+            BanCompiler.CompileResult r = BanCompiler.compileTeamJsonToBan(input, template, out, teamId, countryId, false);
+            CompileCost.Sample cost = CompileCost.stop(probe, r.rosterSize());
             System.out.println("OK: " + out);
+            System.err.printf(Locale.ROOT, "cost roster=%d cpuMs=%.1f allocMb=%.1f%n",
+                r.rosterSize(), cost.cpuMs(), cost.allocMb());
             return;
         }
 
@@ -50,6 +110,10 @@ public final class Main {
 
         Files.createDirectories(outDir);
 
+        // Contadores de heurística valem para este lote (liga) apenas.
+        HeuristicCounters.snapshotAndReset();
+        CompileCost.snapshotAndReset();
+
         try (var stream = Files.list(inputDir)) {
             stream
                 .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json"))
@@ -60,13 +124,18 @@ public final class Main {
                         base = base.substring(0, base.length() - 5); // remove .json
                         Path out = outDir.resolve(base + ".ban");
 
-                        BanCompiler.compileTeamJsonToBan(p, template, out, teamId, countryId, false);
+                        CompileCost.Probe probe = CompileCost.start();
+                        BanCompiler.CompileResult r = BanCompiler.compileTeamJsonToBan(p, template, out, teamId, countryId, false);
+                        CompileCost.stop(probe, r.rosterSize());
                         System.out.println("OK: " + out);
                     } catch (Exception e) {
                         System.err.println("FAIL: " + p + " -> " + (e.getMessage() != null ? e.getMessage() : e));
                     }
                 });
         }
+
+        System.err.println("heuristics " + HeuristicCounters.snapshotAndReset());
+        System.err.println("cost " + CompileCost.snapshotAndReset());
     }
 
     // =========================
@@ -114,8 +183,11 @@ public final class Main {
     private static void usageAndFail(String msg) {
         System.err.println("Usage:");
         System.err.println("  --inspect <file.ban>");
+        System.err.println("  --inspectDir <dir> [--format ndjson|csv] [--out <file>] [--threads N]");
         System.err.println("  --input <team.json> [--template <template.ban>] --out <out.ban> [--teamId N] [--countryId N]");
         System.err.println("  --inputDir <dir> [--template <template.ban>] --outDir <dir> [--teamId N] [--countryId N]");
+        System.err.println("  --cacheMigrate <cacheDir> [--to json|bin] [--compression none|deflate] [--layout flat|sharded]");
+        System.err.println("  --cacheManifest <cacheDir>");
         if (msg != null && !msg.isBlank()) System.err.println("\n" + msg);
         throw new IllegalArgumentException(msg);
     }
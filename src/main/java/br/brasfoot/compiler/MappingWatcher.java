@@ -0,0 +1,84 @@
+package br.brasfoot.compiler;
+
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Observa o mapping.json de -Dbrasfoot.mappingFile e chama Mappings.reload()
+ * quando ele muda. Roda numa thread daemon própria: o parse e a montagem do
+ * snapshot nunca acontecem numa request de compilação.
+ *
+ * Ativado com -Dbrasfoot.mappingWatch=true. Editores costumam gravar em várias
+ * etapas (truncate + write, ou arquivo temporário + rename), então eventos são
+ * agrupados por DEBOUNCE_MS antes de recarregar; um arquivo inválido é apenas
+ * logado e o snapshot anterior continua valendo.
+ */
+public final class MappingWatcher {
+
+  public static final String WATCH_PROPERTY = "brasfoot.mappingWatch";
+
+  private static final long DEBOUNCE_MS = 500;
+
+  private MappingWatcher() {}
+
+  /** Inicia o watcher se as duas properties estiverem definidas. */
+  public static void startIfConfigured() {
+    String file = System.getProperty(Mappings.OVERRIDE_PROPERTY);
+    if (!Boolean.getBoolean(WATCH_PROPERTY) || file == null || file.isBlank()) return;
+
+    Path path = Path.of(file.trim()).toAbsolutePath();
+    Thread t = new Thread(() -> watch(path), "mapping-watcher");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  private static void watch(Path file) {
+    Path dir = file.getParent();
+    Path name = file.getFileName();
+    try (WatchService ws = FileSystems.getDefault().newWatchService()) {
+      dir.register(ws,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      System.err.println("[mapping] observando " + file);
+
+      while (true) {
+        WatchKey key = ws.take();
+        boolean touched = drain(key, name);
+
+        // Debounce: junta as gravações em sequência num único reload.
+        while (touched) {
+          WatchKey more = ws.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+          if (more == null) break;
+          drain(more, name);
+        }
+        if (!touched) continue;
+
+        try {
+          Mappings.reload(file);
+        } catch (Exception e) {
+          System.err.println("[mapping] reload falhou, mantendo snapshot v"
+              + Mappings.get().version() + ": " + e.getMessage());
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      System.err.println("[mapping] watcher encerrado: " + e.getMessage());
+    }
+  }
+
+  private static boolean drain(WatchKey key, Path name) {
+    boolean touched = false;
+    for (WatchEvent<?> ev : key.pollEvents()) {
+      if (ev.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(ev.context())) touched = true;
+    }
+    key.reset();
+    return touched;
+  }
+}
@@ -7,10 +7,17 @@ import com.google.gson.JsonObject;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.text.Normalizer;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * mapping.json esperado (como você está usando agora):
@@ -18,78 +25,232 @@ import java.util.Map;
  *   "posicoes": [{ "id": 0, "aliases": ["goleiro","gol","gk"] }, ...],
  *   "lados": [{ "id": 0, "aliases": ["direito","dir","right","r"] }, ...],
  *   "caracteristicas": [{ "id": 0, "aliases": ["colocação"] }, ...],
- *   "paises": [{ "id": 29, "nome": "Brasil" }, ...]
+ *   "paises": [{ "id": 29, "nome": "Brasil", "aliases": ["Brazil", "Brasilien"] }, ...]
  * }
  *
  * Resolve por alias/nome com normalização (lowercase + trim + remove acentos).
+ *
+ * Por padrão as tabelas vêm de MappingTables, gerada no build a partir do
+ * mapping.json (src/build/java/.../MappingTablesGenerator.java): nenhum JSON é
+ * lido na inicialização e as consultas não usam lock. Para testar um mapping
+ * sem rebuild: -Dbrasfoot.mappingFile=/caminho/mapping.json (lido com Gson).
+ *
+ * Cada instância é um snapshot imutável com versão e digest por seção. Um novo
+ * mapping é carregado fora do caminho das requests (endpoint admin ou
+ * MappingWatcher) via reload(), e trocado atomicamente: leitores só fazem uma
+ * leitura volátil em get() e continuam com o snapshot que já pegaram.
  */
 public final class Mappings {
 
+  /** System property com um mapping.json que substitui as tabelas geradas. */
+  public static final String OVERRIDE_PROPERTY = "brasfoot.mappingFile";
+
+  // Limiar de similaridade (Dice sobre trigramas) do casamento aproximado.
+  // Posições são rótulos curtos; países têm mais variação de grafia.
+  private static final double FUZZY_POSITION = 0.7;
+  private static final double FUZZY_COUNTRY = 0.75;
+
   private static final String RESOURCE = "/mapping.json";
   private static final Gson GSON = new Gson();
 
-  private static volatile Mappings INSTANCE;
-
-  private final Map<String, Integer> positions = new HashMap<>();
-  private final Map<String, Integer> sides = new HashMap<>();
-  private final Map<String, Integer> characteristics = new HashMap<>();
-  private final Map<String, Integer> countries = new HashMap<>();
+  private final KeyTable positions;
+  private final KeyTable sides;
+  private final KeyTable characteristics;
+  private final CountryIndex countries;
+  private final String source;
+  private final long version;
+  private final Map<String, String> digests;
+  private final String compileDigest;
+  private final FuzzyMatcher positionFuzzy;
+  private final FuzzyMatcher countryFuzzy;
+
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  private Mappings(KeyTable positions, KeyTable sides, KeyTable characteristics,
+                   CountryIndex countries, String source) {
+    this.positions = positions;
+    this.sides = sides;
+    this.characteristics = characteristics;
+    this.countries = countries;
+    this.source = source;
+    this.version = VERSIONS.incrementAndGet();
+
+    Map<String, String> d = new LinkedHashMap<>();
+    d.put("posicoes", digest(positions.keys, positions.ids));
+    d.put("lados", digest(sides.keys, sides.ids));
+    d.put("caracteristicas", digest(characteristics.keys, characteristics.ids));
+    d.put("paises", countries.digest());
+    this.digests = Collections.unmodifiableMap(d);
+    this.compileDigest = sha("posicoes=" + d.get("posicoes") + ";paises=" + d.get("paises"));
+
+    this.positionFuzzy = FuzzyMatcher.of("posicoes", positions.keys, positions.ids, FUZZY_POSITION);
+    this.countryFuzzy = countries.fuzzyMatcher(FUZZY_COUNTRY);
+  }
 
-  private Mappings() {
-    load();
+  // Inicialização preguiçosa via holder: sem synchronized no caminho quente.
+  private static final class Holder {
+    static final AtomicReference<Mappings> CURRENT = new AtomicReference<>(create());
   }
 
+  /** Snapshot atual. Quem precisa de consistência ao longo de uma compilação guarda a referência. */
   public static Mappings get() {
-    Mappings v = INSTANCE;
-    if (v == null) {
-      synchronized (Mappings.class) {
-        v = INSTANCE;
-        if (v == null) {
-          v = new Mappings();
-          INSTANCE = v;
+    return Holder.CURRENT.get();
+  }
+
+  /**
+   * Carrega o mapping.json em {@code path} (na thread de quem chama) e troca o
+   * snapshot atual. Se nenhuma seção mudou, mantém o snapshot (e a versão) atual.
+   * Erro de leitura/parse propaga e o snapshot atual continua valendo.
+   */
+  public static Mappings reload(Path path) {
+    return install(fromJson(readFileJson(path), path.toString()));
+  }
+
+  /** Recarrega do -Dbrasfoot.mappingFile; sem a property não há de onde recarregar. */
+  public static Mappings reload() {
+    String override = System.getProperty(OVERRIDE_PROPERTY);
+    if (override == null || override.isBlank()) {
+      throw new IllegalStateException("-D" + OVERRIDE_PROPERTY + " nao definido; nada para recarregar");
+    }
+    return reload(Path.of(override.trim()));
+  }
+
+  static Mappings install(Mappings next) {
+    while (true) {
+      Mappings cur = Holder.CURRENT.get();
+      if (cur.digests.equals(next.digests)) return cur;
+      if (Holder.CURRENT.compareAndSet(cur, next)) {
+        if (!cur.compileDigest().equals(next.compileDigest())) {
+          CompileResultCache.evictOtherMappings(next.compileDigest());
         }
+        System.err.println("[mapping] snapshot v" + next.version + " (" + next.source + ") " + next.digests);
+        return next;
       }
     }
-    return v;
+  }
+
+  private static Mappings create() {
+    String override = System.getProperty(OVERRIDE_PROPERTY);
+    if (override != null && !override.isBlank()) {
+      Path p = Path.of(override.trim());
+      return fromJson(readFileJson(p), p.toString());
+    }
+    return fromGeneratedTables();
   }
 
   // ===== API esperada pelo BanCompiler =====
 
   public Integer positionIdByNameOrAlias(String s) {
-    return lookup(positions, s);
+    return positions.lookup(s);
   }
 
   public Integer sideIdByNameOrAlias(String s) {
-    return lookup(sides, s);
+    return sides.lookup(s);
   }
 
   public Integer characteristicIdByNameOrAlias(String s) {
-    return lookup(characteristics, s);
+    return characteristics.lookup(s);
   }
 
   public Integer countryIdByNameOrAlias(String s) {
-    return lookup(countries, s);
+    return countries.resolve(s);
+  }
+
+  /** Posição por alias exato e, se não houver, pelo candidato mais parecido. */
+  public Integer positionIdApprox(String s) {
+    Integer id = positions.lookup(s);
+    return id != null ? id : positionFuzzy.match(s);
+  }
+
+  /** País por nome/alias exato e, se não houver, pelo candidato mais parecido. */
+  public Integer countryIdApprox(String s) {
+    Integer id = countries.resolve(s);
+    return id != null ? id : countryFuzzy.match(s);
+  }
+
+  /** Índice imutável de países (nomes + aliases pré-normalizados). */
+  public CountryIndex countries() {
+    return countries;
+  }
+
+  /** "generated" ou o caminho do mapping.json de override. */
+  public String source() {
+    return source;
+  }
+
+  /** Versão do snapshot no processo (cresce a cada troca). */
+  public long version() {
+    return version;
+  }
+
+  /** Digest (SHA-256 truncado) do conteúdo normalizado de cada seção. */
+  public Map<String, String> digests() {
+    return digests;
+  }
+
+  /**
+   * Digest das seções que influenciam a saída do BanCompiler: países
+   * (NationalityUtil) e posições (fallback de PositionUtil para rótulos que o
+   * PositionClassifier não reconhece). Lados/características do mapping não são
+   * consultados na compilação (SideResolver/FootCodes), então mudar aliases
+   * desses grupos não invalida resultados em cache.
+   */
+  public String compileDigest() {
+    return compileDigest;
+  }
+
+  public Map<String, Object> describe() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("version", version);
+    out.put("source", source);
+    out.put("compileDigest", compileDigest());
+    out.put("digests", digests);
+    out.put("countryKeys", countries.size());
+    return out;
   }
 
   // -------------------------
   // Load
   // -------------------------
 
-  private void load() {
-    JsonObject root = readResourceJson(RESOURCE);
+  static Mappings fromGeneratedTables() {
+    return new Mappings(
+        new KeyTable(MappingTables.POSITION_KEYS, MappingTables.POSITION_IDS),
+        new KeyTable(MappingTables.SIDE_KEYS, MappingTables.SIDE_IDS),
+        new KeyTable(MappingTables.CHARACTERISTIC_KEYS, MappingTables.CHARACTERISTIC_IDS),
+        CountryIndex.of(MappingTables.COUNTRY_KEYS, MappingTables.COUNTRY_IDS),
+        "generated");
+  }
 
+  static Mappings fromJson(JsonObject root, String source) {
     // Esses 3 grupos agora são baseados SÓ em aliases
-    loadAliasOnlyGroup(root, "posicoes", positions);
-    loadAliasOnlyGroup(root, "lados", sides);
-    loadAliasOnlyGroup(root, "caracteristicas", characteristics);
+    return new Mappings(
+        loadAliasOnlyGroup(root, "posicoes"),
+        loadAliasOnlyGroup(root, "lados"),
+        loadAliasOnlyGroup(root, "caracteristicas"),
+        // Países: nome + aliases (pt/en/de) num índice imutável
+        loadCountries(root),
+        source);
+  }
 
-    // Países: baseado em nome (e opcionalmente aliases se você adicionar no futuro)
-    loadCountries(root, countries);
+  /** mapping.json empacotado no classpath (mesma fonte das tabelas geradas). */
+  static JsonObject bundledJson() {
+    try (InputStream in = Mappings.class.getResourceAsStream(RESOURCE)) {
+      if (in == null) {
+        throw new IllegalStateException("Resource nao encontrado no classpath: " + RESOURCE);
+      }
+      return parseRoot(new String(in.readAllBytes(), StandardCharsets.UTF_8), RESOURCE);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Falha ao ler " + RESOURCE + ": " + e.getMessage(), e);
+    }
   }
 
-  private void loadAliasOnlyGroup(JsonObject root, String key, Map<String, Integer> out) {
+  private static KeyTable loadAliasOnlyGroup(JsonObject root, String key) {
+    Map<String, Integer> out = new LinkedHashMap<>();
     JsonArray arr = optArray(root, key);
-    if (arr == null) return;
+    if (arr == null) return KeyTable.of(out);
 
     for (JsonElement el : arr) {
       if (!el.isJsonObject()) continue;
@@ -107,11 +268,13 @@ public final class Mappings {
         }
       }
     }
+    return KeyTable.of(out);
   }
 
-  private void loadCountries(JsonObject root, Map<String, Integer> out) {
+  private static CountryIndex loadCountries(JsonObject root) {
+    CountryIndex.Builder b = CountryIndex.builder();
     JsonArray arr = optArray(root, "paises");
-    if (arr == null) return;
+    if (arr == null) return b.build();
 
     for (JsonElement el : arr) {
       if (!el.isJsonObject()) continue;
@@ -121,40 +284,65 @@ public final class Mappings {
       String nome = optString(o, "nome");
       if (id == null || nome == null || nome.isBlank()) continue;
 
-      putAllKeys(out, nome, id);
+      b.add(nome, id);
 
-      // opcional: se no futuro você quiser aliases para países, já suportamos:
       JsonArray aliases = optArray(o, "aliases");
       if (aliases != null) {
         for (JsonElement a : aliases) {
-          String alias = optString(a);
-          if (alias == null || alias.isBlank()) continue;
-          putAllKeys(out, alias, id);
+          b.add(optString(a), id);
         }
       }
     }
+    return b.build();
   }
 
   // -------------------------
   // Lookup / normalization
   // -------------------------
 
-  private static Integer lookup(Map<String, Integer> dict, String s) {
-    if (s == null) return null;
-    String k = norm(s);
-    if (k.isEmpty()) return null;
+  /**
+   * Chaves normalizadas ordenadas + ids paralelos; busca binária sem lock.
+   * Mesmo formato das tabelas geradas em MappingTables.
+   */
+  static final class KeyTable {
+    final String[] keys;
+    final int[] ids;
+
+    KeyTable(String[] keys, int[] ids) {
+      this.keys = keys;
+      this.ids = ids;
+    }
+
+    static KeyTable of(Map<String, Integer> dict) {
+      String[] keys = dict.keySet().toArray(new String[0]);
+      Arrays.sort(keys);
+      int[] ids = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) ids[i] = dict.get(keys[i]);
+      return new KeyTable(keys, ids);
+    }
+
+    Integer get(String k) {
+      int i = Arrays.binarySearch(keys, k);
+      return i >= 0 ? ids[i] : null;
+    }
 
-    Integer v = dict.get(k);
-    if (v != null) return v;
+    Integer lookup(String s) {
+      if (s == null) return null;
+      String k = norm(s);
+      if (k.isEmpty()) return null;
 
-    // fallback: remove acentos
-    String noAcc = deaccent(k);
-    if (!noAcc.equals(k)) {
-      v = dict.get(noAcc);
+      Integer v = get(k);
       if (v != null) return v;
-    }
 
-    return null;
+      // fallback: remove acentos
+      String noAcc = TextUtil.deaccent(k);
+      if (!noAcc.equals(k)) {
+        v = get(noAcc);
+        if (v != null) return v;
+      }
+
+      return null;
+    }
   }
 
   private static void putAllKeys(Map<String, Integer> dict, String rawKey, Integer id) {
@@ -163,7 +351,7 @@ public final class Mappings {
     String k1 = norm(rawKey);
     if (!k1.isEmpty()) dict.putIfAbsent(k1, id);
 
-    String k2 = deaccent(k1);
+    String k2 = TextUtil.deaccent(k1);
     if (!k2.isEmpty()) dict.putIfAbsent(k2, id);
   }
 
@@ -172,34 +360,44 @@ public final class Mappings {
     return s.trim().toLowerCase(Locale.ROOT);
   }
 
-  private static String deaccent(String s) {
-    if (s == null) return "";
-    String n = Normalizer.normalize(s, Normalizer.Form.NFD);
-    return n.replaceAll("\\p{M}+", "");
+  /** Digest de chaves ordenadas + ids: igual para tabelas geradas e JSON equivalente. */
+  static String digest(String[] sortedKeys, int[] ids) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < sortedKeys.length; i++) {
+      sb.append(sortedKeys[i]).append('\0').append(ids[i]).append('\n');
+    }
+    return sha(sb.toString());
+  }
+
+  private static String sha(String s) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)), 0, 8);
+    } catch (Exception e) {
+      throw new IllegalStateException("SHA-256 indisponivel", e);
+    }
   }
 
   // -------------------------
-  // JSON resource helpers
+  // JSON helpers
   // -------------------------
 
-  private static JsonObject readResourceJson(String resourcePath) {
-    try (InputStream in = Mappings.class.getResourceAsStream(resourcePath)) {
-      if (in == null) {
-        throw new IllegalStateException("Resource nao encontrado no classpath: " + resourcePath);
-      }
-      byte[] bytes = in.readAllBytes();
-      String raw = new String(bytes, StandardCharsets.UTF_8);
-
-      JsonElement el = GSON.fromJson(raw, JsonElement.class);
-      if (el == null || !el.isJsonObject()) {
-        throw new IllegalStateException("mapping.json invalido: nao eh objeto JSON");
-      }
-      return el.getAsJsonObject();
+  private static JsonObject readFileJson(Path path) {
+    try {
+      return parseRoot(Files.readString(path, StandardCharsets.UTF_8), path.toString());
     } catch (RuntimeException e) {
       throw e;
     } catch (Exception e) {
-      throw new IllegalStateException("Falha ao ler " + resourcePath + ": " + e.getMessage(), e);
+      throw new IllegalStateException("Falha ao ler " + path + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static JsonObject parseRoot(String raw, String what) {
+    JsonElement el = GSON.fromJson(raw, JsonElement.class);
+    if (el == null || !el.isJsonObject()) {
+      throw new IllegalStateException("mapping.json invalido (" + what + "): nao eh objeto JSON");
     }
+    return el.getAsJsonObject();
   }
 
   private static JsonArray optArray(JsonObject o, String k) {
@@ -221,4 +419,4 @@ public final class Mappings {
     if (el == null || el.isJsonNull()) return null;
     try { return el.getAsString(); } catch (Exception ignored) { return null; }
   }
-}
\ No newline at end of file
+}
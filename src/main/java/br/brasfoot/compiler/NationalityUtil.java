@@ -4,8 +4,6 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import java.util.Locale;
-
 public final class NationalityUtil {
 
   private NationalityUtil() {}
@@ -57,24 +55,13 @@ public final class NationalityUtil {
     return null;
   }
 
+  /**
+   * Id do país no Brasfoot: uma consulta ao CountryIndex (nomes e aliases
+   * pt/en/de vêm do mapping.json) e, se não bater, o nome mais parecido pelo
+   * índice de trigramas. null se não reconhecido.
+   */
   public static Integer resolveCountryId(String natName) {
     if (natName == null || natName.isBlank()) return null;
-
-    Integer id = Mappings.get().countryIdByNameOrAlias(natName);
-    if (id != null) return id;
-
-    String noAcc = TextUtil.deaccent(natName);
-    if (!noAcc.equals(natName)) {
-      id = Mappings.get().countryIdByNameOrAlias(noAcc);
-      if (id != null) return id;
-    }
-
-    String lowered = natName.trim().toLowerCase(Locale.ROOT);
-    if (lowered.equals("brazil")) return Mappings.get().countryIdByNameOrAlias("Brasil");
-    if (lowered.equals("uruguay")) return Mappings.get().countryIdByNameOrAlias("Uruguai");
-    if (lowered.equals("paraguay")) return Mappings.get().countryIdByNameOrAlias("Paraguai");
-    if (lowered.equals("argentina")) return Mappings.get().countryIdByNameOrAlias("Argentina");
-
-    return null;
+    return Mappings.get().countryIdApprox(natName);
   }
-}
\ No newline at end of file
+}
@@ -1,7 +1,6 @@
 // PlayerHeuristics.java
 package br.brasfoot.compiler;
 
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Locale;
 
@@ -57,7 +56,7 @@ public final class PlayerHeuristics {
     double jsgJ = ratio(cleanSheets, apps);
     double gsJ = ratio(goalsConceded, apps);
 
-    String p = deaccent(posText == null ? "" : posText).toLowerCase(Locale.ROOT);
+    String p = TextUtil.deaccent(posText == null ? "" : posText).toLowerCase(Locale.ROOT);
 
     // -------------------------
     // GOLEIRO
@@ -202,9 +201,9 @@ public final class PlayerHeuristics {
   private static boolean hasAnySecondary(ArrayList<String> secondary, String... needles) {
     if (secondary == null || secondary.isEmpty()) return false;
     for (String s : secondary) {
-      String t = deaccent(s).toLowerCase(Locale.ROOT);
+      String t = TextUtil.deaccent(s).toLowerCase(Locale.ROOT);
       for (String n : needles) {
-        if (t.contains(deaccent(n).toLowerCase(Locale.ROOT))) return true;
+        if (t.contains(TextUtil.deaccent(n).toLowerCase(Locale.ROOT))) return true;
       }
     }
     return false;
@@ -223,10 +222,4 @@ public final class PlayerHeuristics {
     if (den <= 0) return 0.0;
     return (double) num / (double) den;
   }
-
-  private static String deaccent(String s) {
-    if (s == null) return null;
-    String n = Normalizer.normalize(s, Normalizer.Form.NFD);
-    return n.replaceAll("\\p{M}+", "");
-  }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package br.brasfoot.compiler;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classificação única do texto de posição do Transfermarkt.
+ *
+ * O mesmo rótulo ("Lateral Esq.", "Meia Central", "Atacante"...) era reanalisado
+ * em vários pontos por jogador: PositionUtil (grupo + lado), SideResolver,
+ * BanCompiler.positionImpliesSide (NFD completo) e HeuristicsEngine (categoria
+ * genérica + tokens de perfil). Como o Transfermarkt produz poucas dezenas de
+ * rótulos distintos, cada rótulo bruto é classificado uma vez e o resultado
+ * (internado) é compartilhado por todos esses pontos.
+ *
+ * Cada campo reproduz exatamente a normalização da verificação que substitui
+ * (lowercase puro, lowercase+trim ou NFD sem acentos), para não mudar saída.
+ */
+public final class PositionClassifier {
+
+  /**
+   * Resultado da classificação de um rótulo de posição.
+   *
+   * group           — 0=Goleiro 1=Lateral 2=Zagueiro 3=Meia 4=Atacante (fallback 4)
+   * unrecognized    — nenhum token reconheceu o rótulo; group é o fallback 4
+   * genericCategory — GENERIC_DEF / GENERIC_MID / GENERIC_ATK, ou null se houver subposição
+   * impliesSide     — o texto (sem acentos) indica lado explícito ("lateral esq", "ponta dir", "lw"...)
+   * sideHint        — "L" / "R" se o texto contém "esq" / "dir"; null caso contrário
+   * demais flags    — tokens usados pela detecção de perfil do HeuristicsEngine
+   */
+  public record Classification(
+      int group,
+      boolean unrecognized,
+      String genericCategory,
+      boolean impliesSide,
+      String sideHint,
+      boolean volante,
+      boolean zagueiro,
+      boolean meia,
+      boolean meiaAtacante,
+      boolean meiaOfensivo,
+      boolean meiaCentral,
+      boolean meiaLateral,
+      boolean centroavante,
+      boolean ponta,
+      boolean extremo,
+      boolean atacante,
+      boolean segundo,
+      boolean segundoAtacante,
+      boolean ala
+  ) {}
+
+  // Limite de segurança: entradas lixo (ex.: texto livre) não devem crescer o cache
+  // sem fim. Acima do limite, classifica sem memorizar.
+  private static final int MAX_CACHED = 4096;
+
+  private static final ConcurrentHashMap<String, Classification> BY_LABEL = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Classification, Classification> INTERNED = new ConcurrentHashMap<>();
+
+  private static final Classification EMPTY = intern(compute(""));
+
+  private PositionClassifier() {}
+
+  /** Classifica o rótulo bruto (null é tratado como ""). */
+  public static Classification classify(String posText) {
+    if (posText == null || posText.isEmpty()) return EMPTY;
+
+    Classification c = BY_LABEL.get(posText);
+    if (c != null) return c;
+
+    c = intern(compute(posText));
+    if (BY_LABEL.size() < MAX_CACHED) {
+      Classification prev = BY_LABEL.putIfAbsent(posText, c);
+      if (prev != null) c = prev;
+    }
+    return c;
+  }
+
+  /** Quantidade de rótulos distintos memorizados (diagnóstico). */
+  public static int cachedLabels() {
+    return BY_LABEL.size();
+  }
+
+  private static Classification intern(Classification c) {
+    Classification prev = INTERNED.putIfAbsent(c, c);
+    return prev != null ? prev : c;
+  }
+
+  // -------------------------
+  // Classificação
+  // -------------------------
+
+  private static Classification compute(String posText) {
+    String t = posText.toLowerCase(Locale.ROOT);
+    int group = group(t);
+
+    return new Classification(
+        group < 0 ? 4 : group,
+        group < 0,
+        genericCategory(t.trim()),
+        impliesSide(posText),
+        t.contains("esq") ? "L" : (t.contains("dir") ? "R" : null),
+        t.contains("volante"),
+        t.contains("zagueiro"),
+        t.contains("meia"),
+        t.contains("meia atacante"),
+        t.contains("meia ofensivo") || t.contains("meia atacante"),
+        t.contains("meia central"),
+        meiaLateral(t),
+        t.contains("centroavante") || t.contains("9"),
+        t.contains("ponta"),
+        t.contains("extremo"),
+        t.contains("atacante"),
+        t.contains("segundo"),
+        t.contains("segundo atacante") || t.contains("recu"),
+        t.contains("ala")
+    );
+  }
+
+  /**
+   * Grupo de posição do Brasfoot. A verificação de posições GENÉRICAS
+   * ("Defensor", "Meio-Campo", "Forward"...) vem antes do fallback final,
+   * para que um Defensor não seja classificado como Atacante.
+   * -1 = não reconhecido (compute aplica o fallback 4).
+   */
+  private static int group(String t) {
+    // ── GOLEIRO ──────────────────────────────────────────────────────────────
+    if (t.contains("gole") || t.contains("goalkeeper") || t.contains("torwart")) return 0;
+
+    // ── ZAGUEIRO (subposição específica) ─────────────────────────────────────
+    if (t.contains("zague")
+        || t.contains("innenverteidiger")
+        || t.equals("cb")) return 2;
+
+    // ── LATERAL (subposição específica) ──────────────────────────────────────
+    // Cobre "lateral dir", "lateral esq", "ala", "outside back", etc.
+    if (t.contains("lateral")
+        || t.contains("ala")
+        || t.contains("außenverteidiger")
+        || t.contains("wing back")) return 1;
+
+    // ── MEIO-CAMPO (subposições específicas) ─────────────────────────────────
+    if (t.contains("volante")) return 3;
+    if (t.contains("meia"))    return 3;
+
+    // ── ATAQUE (subposições específicas) ─────────────────────────────────────
+    if (t.contains("ponta"))         return 4;
+    if (t.contains("centroavante"))  return 4;
+    if (t.contains("mittelstürmer")) return 4;
+    if (t.contains("centre-forward")) return 4;
+    if (t.contains("atac"))          return 4;
+
+    // ── Genéricos do Transfermarkt ───────────────────────────────────────────
+    // "Defensor" / "Defender"   → 2 (Zagueiro) — default conservador para defesa
+    // "Meio-Campo" / "Midfield" → 3 (Meia)
+    // "Forward" / "Stürmer"     → 4 (Atacante)
+    // Nota: "meio-campo" NÃO contém "meia", então sem esta verificação cai no fallback 4!
+    switch (t) {
+      case "defensor", "defensores", "defender", "defenders", "abwehr", "verteidiger":
+        return 2;
+      case "meio-campo", "meio campo", "midfield", "mittelfeld":
+        return 3;
+      default:
+        // Fallback final (4 por compatibilidade histórica) fica a cargo de
+        // compute/PositionUtil, que antes tentam o mapping.json.
+        return -1;
+    }
+  }
+
+  /**
+   * Categoria posicional GENÉRICA (sem subposição). Recebe o texto em
+   * lowercase + trim. Os tokens negativos garantem que "Lateral Defensivo"
+   * não seja confundido com "Defensor".
+   */
+  private static String genericCategory(String p) {
+    if (p.isEmpty()) return null;
+
+    boolean isDefToken = p.equals("defensor") || p.equals("defensores")
+        || p.equals("defender") || p.equals("defenders")
+        || p.equals("abwehr") || p.equals("verteidiger");
+    boolean hasSpecificDef = p.contains("lateral") || p.contains("zagueiro")
+        || p.contains("ala") || p.contains("back") || p.contains("cb")
+        || p.contains("innenverteidiger") || p.contains("außenverteidiger");
+    if (isDefToken && !hasSpecificDef) return "GENERIC_DEF";
+
+    boolean isMidToken = p.equals("meio-campo") || p.equals("meio campo")
+        || p.equals("midfield") || p.equals("mittelfeld");
+    boolean hasSpecificMid = p.contains("volante") || p.contains("central")
+        || p.contains("ofensivo") || p.contains("esquerda") || p.contains("direita")
+        || p.contains("defensivo") || p.contains("attacking") || p.contains("defensive");
+    if (isMidToken && !hasSpecificMid) return "GENERIC_MID";
+
+    boolean isAtkToken = p.equals("atacante") || p.equals("forward")
+        || p.equals("stürmer") || p.equals("sturmer") || p.equals("forwards");
+    boolean hasSpecificAtk = p.contains("ponta") || p.contains("centroavante")
+        || p.contains("segundo") || p.contains("extremo") || p.contains("winger")
+        || p.contains("centre-forward") || p.contains("mittelstürmer");
+    if (isAtkToken && !hasSpecificAtk) return "GENERIC_ATK";
+
+    return null;
+  }
+
+  /** Meia Esquerda / Meia Direita (subposição lateral de meio-campo). */
+  private static boolean meiaLateral(String p) {
+    return p.contains("meia esquerda")
+        || p.contains("meia direita")
+        || p.contains("left mid")
+        || p.contains("right mid")
+        || p.equals("meia esq")
+        || p.equals("meia dir");
+  }
+
+  /**
+   * Texto (sem acentos, minúsculas) indica lado explícito — ex.: "lateral esq",
+   * "ponta dir", "lw", "rw". Posições neutras ("Atacante", "Zagueiro") → false.
+   */
+  private static boolean impliesSide(String posText) {
+    if (posText.isBlank()) return false;
+
+    String p = TextUtil.deaccent(posText).toLowerCase(Locale.ROOT);
+
+    if (p.contains("lateral esq") || p.contains("lateral dir")) return true;
+    if (p.contains("ponta esq")   || p.contains("ponta dir"))   return true;
+    if (p.contains("left wing")   || p.contains("right wing"))  return true;
+    if (p.contains("meia esq")    || p.contains("meia dir"))    return true;
+    if (p.contains("ala esq")     || p.contains("ala dir"))     return true;
+    if (p.contains("extremo esq") || p.contains("extremo dir")) return true;
+    // Winger abreviado como token isolado
+    if (p.equals("lw") || p.equals("rw"))           return true;
+    if (p.startsWith("lw ") || p.startsWith("rw ")) return true;
+    if (p.endsWith(" lw") || p.endsWith(" rw"))     return true;
+    return false;
+  }
+}
@@ -5,7 +5,6 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import java.util.ArrayList;
-import java.util.Locale;
 
 public final class PositionUtil {
 
@@ -78,79 +77,18 @@ public final class PositionUtil {
    * ("Defensor", "Meio-Campo", "Forward", etc.) deve ocorrer ANTES
    * do fallback final, para evitar que um Defensor seja classificado
    * como Atacante dentro do Brasfoot.
+   *
+   * Rótulos que nenhum token reconhece passam pelos aliases de "posicoes"
+   * do mapping.json (exato e aproximado) antes do fallback 4.
    */
   public static int mapPositionFromMapping(String posText) {
-    String t = normalize(posText);
-
-    // ── GOLEIRO ──────────────────────────────────────────────────────────────
-    if (t.contains("gole") || t.contains("goalkeeper") || t.contains("torwart")) return 0;
-
-    // ── ZAGUEIRO (subposição específica) ─────────────────────────────────────
-    if (t.contains("zague")
-        || t.contains("innenverteidiger")
-        || t.equals("cb")) return 2;
-
-    // ── LATERAL (subposição específica) ──────────────────────────────────────
-    // Cobre "lateral dir", "lateral esq", "ala", "outside back", etc.
-    if (t.contains("lateral")
-        || t.contains("ala")
-        || t.contains("außenverteidiger")
-        || t.contains("wing back")) return 1;
-
-    // ── MEIO-CAMPO (subposições específicas) ─────────────────────────────────
-    if (t.contains("volante")) return 3;
-    if (t.contains("meia"))    return 3;
-
-    // ── ATAQUE (subposições específicas) ─────────────────────────────────────
-    if (t.contains("ponta"))         return 4;
-    if (t.contains("centroavante"))  return 4;
-    if (t.contains("mittelstürmer")) return 4;
-    if (t.contains("centre-forward")) return 4;
-    if (t.contains("seg") && t.contains("atac")) return 4;
-    if (t.contains("atac"))          return 4;
-
-    // =========================================================================
-    // Posições GENÉRICAS do Transfermarkt (sem subposição especificada).
-    //
-    // Essas verificações DEVEM vir antes do fallback final (return 4) para
-    // evitar que "Defensor" e "Meio-Campo" sejam tratados como Atacantes.
-    //
-    // Critério de mapeamento para o Brasfoot:
-    //   "Defensor" / "Defender"   → 2 (Zagueiro) — default conservador para defesa
-    //   "Meio-Campo" / "Midfield" → 3 (Meia)
-    //   "Atacante" / "Forward"    → 4 (Atacante)  — já seria coberto pelo fallback,
-    //                                                mas deixamos explícito
-    // =========================================================================
-
-    // Defensor genérico
-    // Tokens: "defensor", "defensores", "defender", "defenders", "abwehr", "verteidiger"
-    // Rejeita compostos já tratados acima ("innenverteidiger", "außenverteidiger")
-    if (t.equals("defensor")
-        || t.equals("defensores")
-        || t.equals("defender")
-        || t.equals("defenders")
-        || t.equals("abwehr")
-        || t.equals("verteidiger")) return 2;
-
-    // Meio-campo genérico
-    // Tokens: "meio-campo", "meio campo", "midfield", "mittelfeld"
-    // Nota: "meio-campo" NÃO contém "meia", então sem esta verificação cai no fallback 4!
-    if (t.equals("meio-campo")
-        || t.equals("meio campo")
-        || t.equals("midfield")
-        || t.equals("mittelfeld")) return 3;
-
-    // Atacante genérico — explícito para clareza
-    // Tokens: "forward", "forwards", "stürmer", "sturmer"
-    if (t.equals("forward")
-        || t.equals("forwards")
-        || t.equals("stürmer")
-        || t.equals("sturmer")) return 4;
-
-    // ── Fallback final ───────────────────────────────────────────────────────
-    // Qualquer texto não reconhecido. Mantido como 4 por compatibilidade histórica,
-    // mas idealmente nunca deve ser atingido para posições válidas do Transfermarkt.
-    return 4;
+    PositionClassifier.Classification c = PositionClassifier.classify(posText);
+    if (!c.unrecognized() || posText == null || posText.isBlank()) return c.group();
+
+    // Rótulo que os tokens não reconhecem (alemão, inglês, erro de digitação):
+    // alias exato do mapping.json, depois o mais parecido; senão o fallback 4.
+    Integer id = Mappings.get().positionIdApprox(posText);
+    return id != null ? id : c.group();
   }
 
   // -----------------
@@ -158,15 +96,7 @@ public final class PositionUtil {
   // -----------------
 
   private static String inferSideHint(String pos) {
-    String t = normalize(pos);
-    if (t.contains("esq")) return "L";
-    if (t.contains("dir")) return "R";
-    return null;
-  }
-
-  private static String normalize(String s) {
-    if (s == null) return "";
-    return s.toLowerCase(Locale.ROOT);
+    return PositionClassifier.classify(pos).sideHint();
   }
 
   private static JsonObject asObj(JsonElement el) {
@@ -0,0 +1,253 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formato binário dos elencos do TransfermarktCache (CacheFormat.BIN).
+ *
+ * <pre>
+ * "BFRS" | versão u8
+ * varint nStrings | (varint len, UTF-8)*         tabela de strings (chaves + valores)
+ * varint nRecords | (varint len, valor)*         um registro por jogador
+ * </pre>
+ *
+ * Valores: tag u8 + payload — NULL, FALSE, TRUE, INT (varint zigzag),
+ * NUM (índice de string: o texto original do número, lido de volta como
+ * BigDecimal — mesmo valor, sem perda de precisão), STR (índice),
+ * ARR (varint n + valores), OBJ (varint n + (índice da chave, valor)*).
+ *
+ * As chaves ("minutesPlayed", "position", "nationality"...) e valores repetidos
+ * ("Brasil", "Atacante", "Destro") entram uma vez na tabela; na leitura cada
+ * índice vira a mesma instância de String para todos os jogadores.
+ */
+final class RosterCodec {
+
+  static final byte[] MAGIC = {'B', 'F', 'R', 'S'};
+  static final int VERSION = 1;
+
+  private static final int T_NULL = 0;
+  private static final int T_FALSE = 1;
+  private static final int T_TRUE = 2;
+  private static final int T_INT = 3;
+  private static final int T_NUM = 4;
+  private static final int T_STR = 5;
+  private static final int T_ARR = 6;
+  private static final int T_OBJ = 7;
+
+  private RosterCodec() {}
+
+  // -------------------------
+  // Encode
+  // -------------------------
+
+  static byte[] encode(JsonArray players) {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    Out records = new Out(8192);
+    Out rec = new Out(512);
+
+    for (JsonElement p : players) {
+      rec.reset();
+      writeValue(rec, p, strings);
+      records.varint(rec.size());
+      records.write(rec.buf(), 0, rec.size());
+    }
+
+    Out out = new Out(records.size() + strings.size() * 12 + 16);
+    out.write(MAGIC, 0, MAGIC.length);
+    out.write(VERSION);
+    out.varint(strings.size());
+    for (String s : strings.keySet()) {
+      byte[] b = s.getBytes(StandardCharsets.UTF_8);
+      out.varint(b.length);
+      out.write(b, 0, b.length);
+    }
+    out.varint(players.size());
+    out.write(records.buf(), 0, records.size());
+    return out.toByteArray();
+  }
+
+  private static void writeValue(Out out, JsonElement el, Map<String, Integer> strings) {
+    if (el == null || el.isJsonNull()) {
+      out.write(T_NULL);
+    } else if (el.isJsonPrimitive()) {
+      JsonPrimitive p = el.getAsJsonPrimitive();
+      if (p.isBoolean()) {
+        out.write(p.getAsBoolean() ? T_TRUE : T_FALSE);
+      } else if (p.isNumber()) {
+        String text = p.getAsString();
+        Long exact = exactLong(text);
+        if (exact != null) {
+          out.write(T_INT);
+          out.varint((exact << 1) ^ (exact >> 63));
+        } else {
+          out.write(T_NUM);
+          out.varint(index(strings, text));
+        }
+      } else {
+        out.write(T_STR);
+        out.varint(index(strings, p.getAsString()));
+      }
+    } else if (el.isJsonArray()) {
+      JsonArray a = el.getAsJsonArray();
+      out.write(T_ARR);
+      out.varint(a.size());
+      for (JsonElement e : a) writeValue(out, e, strings);
+    } else {
+      JsonObject o = el.getAsJsonObject();
+      out.write(T_OBJ);
+      out.varint(o.size());
+      for (Map.Entry<String, JsonElement> e : o.entrySet()) {
+        out.varint(index(strings, e.getKey()));
+        writeValue(out, e.getValue(), strings);
+      }
+    }
+  }
+
+  /** Só inteiros cujo texto volta idêntico ("7", "-3"); "7.0", "1e3" vão como texto. */
+  private static Long exactLong(String text) {
+    try {
+      long v = Long.parseLong(text);
+      return Long.toString(v).equals(text) ? v : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static int index(Map<String, Integer> strings, String s) {
+    Integer i = strings.get(s);
+    if (i == null) {
+      i = strings.size();
+      strings.put(s, i);
+    }
+    return i;
+  }
+
+  // -------------------------
+  // Decode
+  // -------------------------
+
+  /** Lê um arquivo inteiro (buffer mapeado ou em heap) a partir da posição atual. */
+  static JsonArray decode(ByteBuffer in) {
+    try {
+      for (byte m : MAGIC) {
+        if (in.get() != m) throw new IllegalArgumentException("cache binario invalido: magic");
+      }
+      int version = in.get() & 0xFF;
+      if (version != VERSION) {
+        throw new IllegalArgumentException("cache binario: versao nao suportada " + version);
+      }
+
+      String[] strings = new String[count(in)];
+      for (int i = 0; i < strings.length; i++) {
+        int len = count(in);
+        byte[] b = new byte[len];
+        in.get(b);
+        strings[i] = new String(b, StandardCharsets.UTF_8);
+      }
+
+      int n = count(in);
+      JsonArray players = new JsonArray(n);
+      for (int i = 0; i < n; i++) {
+        int len = count(in);
+        int end = in.position() + len;
+        players.add(readValue(in, strings));
+        if (in.position() != end) throw new IllegalArgumentException("cache binario: registro " + i + " corrompido");
+      }
+      return players;
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("cache binario truncado/corrompido", e);
+    }
+  }
+
+  private static JsonElement readValue(ByteBuffer in, String[] strings) {
+    int tag = in.get();
+    switch (tag) {
+      case T_NULL:  return JsonNull.INSTANCE;
+      case T_FALSE: return new JsonPrimitive(false);
+      case T_TRUE:  return new JsonPrimitive(true);
+      case T_INT: {
+        long z = varlong(in);
+        return new JsonPrimitive((z >>> 1) ^ -(z & 1));
+      }
+      case T_NUM:   return new JsonPrimitive(new BigDecimal(strings[index(in)]));
+      case T_STR:   return new JsonPrimitive(strings[index(in)]);
+      case T_ARR: {
+        int n = count(in);
+        JsonArray a = new JsonArray(n);
+        for (int i = 0; i < n; i++) a.add(readValue(in, strings));
+        return a;
+      }
+      case T_OBJ: {
+        int n = count(in);
+        JsonObject o = new JsonObject();
+        for (int i = 0; i < n; i++) {
+          String k = strings[index(in)];
+          o.add(k, readValue(in, strings));
+        }
+        return o;
+      }
+      default:
+        throw new IllegalArgumentException("cache binario: tag invalida " + tag);
+    }
+  }
+
+  /**
+   * Varint usado como tamanho/quantidade: cada item ocupa ao menos 1 byte, então
+   * não pode passar do que resta no buffer (arquivo corrompido não aloca GBs).
+   */
+  private static int count(ByteBuffer in) {
+    long v = varlong(in);
+    if (v < 0 || v > in.remaining()) throw new IllegalArgumentException("cache binario: contagem invalida " + v);
+    return (int) v;
+  }
+
+  private static int index(ByteBuffer in) {
+    long v = varlong(in);
+    if (v < 0 || v > Integer.MAX_VALUE) throw new IllegalArgumentException("cache binario: indice invalido " + v);
+    return (int) v;
+  }
+
+  private static long varlong(ByteBuffer in) {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.get();
+      v |= (long) (b & 0x7F) << shift;
+      if (b >= 0) return v;
+    }
+    throw new IllegalArgumentException("cache binario: varint longo demais");
+  }
+
+  // -------------------------
+  // Buffer de escrita
+  // -------------------------
+
+  private static final class Out extends ByteArrayOutputStream {
+    Out(int size) {
+      super(size);
+    }
+
+    byte[] buf() {
+      return buf;
+    }
+
+    void varint(long v) {
+      while ((v & ~0x7FL) != 0) {
+        write((int) ((v & 0x7F) | 0x80));
+        v >>>= 7;
+      }
+      write((int) v);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+
+import java.io.IOException;
+
+/**
+ * Fonte de elencos para TransfermarktCache.getOrLoad: scraper, outro cache,
+ * serviço remoto... Pode ser lenta; o cache garante que roda no máximo uma vez
+ * por time ao mesmo tempo e, com TTL, fora do caminho da compilação.
+ */
+@FunctionalInterface
+public interface RosterLoader {
+
+  /** Elenco do time, no formato do JSON do scraper (array de jogadores). */
+  JsonArray load(TeamIdentity team) throws IOException;
+}
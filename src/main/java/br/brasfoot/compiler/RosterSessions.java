@@ -0,0 +1,262 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sessões de edição de elenco: o JSON do time (e o template, se houver) sobe
+ * uma vez e fica decodificado em memória; depois o cliente manda só as
+ * mudanças (add/remove/modify de jogador por "id") e recompila. A nacionalidade
+ * e as características de cada jogador (BanCompiler.PlayerTraits) ficam
+ * guardadas por jogador; como o patch troca o objeto de quem muda, a
+ * recompilação só roda o HeuristicsEngine para jogadores novos ou alterados.
+ *
+ * Operações de {@link Session#patch}:
+ * <pre>
+ * {"op": "add",    "player": {...}}              jogador novo (id ainda não usado)
+ * {"op": "remove", "id": X}
+ * {"op": "modify", "id": X, "player": {...}}     merge: campo null remove, objeto substitui
+ * </pre>
+ *
+ * Sessões paradas há mais de brasfoot.session.idleSeconds (padrão 900) são
+ * descartadas; acima de brasfoot.session.max (padrão 64) sai a parada há mais
+ * tempo. Sessão descartada = 404: o cliente sobe o elenco de novo.
+ */
+public final class RosterSessions {
+
+  private static final long IDLE_NANOS =
+      TimeUnit.SECONDS.toNanos(Long.getLong("brasfoot.session.idleSeconds", 900));
+  private static final int MAX_SESSIONS = Integer.getInteger("brasfoot.session.max", 64);
+
+  private static final ConcurrentHashMap<String, Session> BY_ID = new ConcurrentHashMap<>();
+  private static final SecureRandom IDS = new SecureRandom();
+  private static final LongAdder CREATED = new LongAdder();
+  private static final LongAdder EVICTED = new LongAdder();
+  private static final LongAdder TRAITS_COMPUTED = new LongAdder();
+
+  public record PatchResult(int players, int added, int removed, int modified) {}
+
+  private RosterSessions() {}
+
+  /**
+   * Abre uma sessão com o elenco já decodificado (array de jogadores ou objeto
+   * com "roster"/"players"). {@code template} null = time criado do zero; já
+   * deve ter passado pelo BanStreamReader.
+   */
+  public static Session create(JsonElement root, byte[] template, String label) {
+    JsonArray players = playersOf(root);
+    if (players == null) throw new IllegalArgumentException("JSON sem lista de jogadores (array, roster ou players)");
+    evictIdle();
+    while (BY_ID.size() >= MAX_SESSIONS && evictOldest()) {
+      // abre espaço para a nova
+    }
+    Session s = new Session(newId(), root, players, template, label);
+    BY_ID.put(s.id, s);
+    CREATED.increment();
+    return s;
+  }
+
+  /** Sessão viva (e marca o acesso), ou null. */
+  public static Session get(String id) {
+    evictIdle();
+    Session s = (id == null) ? null : BY_ID.get(id);
+    if (s != null) s.touch();
+    return s;
+  }
+
+  public static boolean remove(String id) {
+    return id != null && BY_ID.remove(id) != null;
+  }
+
+  public static Map<String, Object> snapshot() {
+    evictIdle();
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("active", BY_ID.size());
+    out.put("max", MAX_SESSIONS);
+    out.put("idleSeconds", TimeUnit.NANOSECONDS.toSeconds(IDLE_NANOS));
+    out.put("created", CREATED.sum());
+    out.put("evicted", EVICTED.sum());
+    out.put("traitsComputed", TRAITS_COMPUTED.sum());
+    return out;
+  }
+
+  /** Mesma resolução do BanCompiler: o próprio array, ou roster/players do objeto. */
+  private static JsonArray playersOf(JsonElement root) {
+    if (root == null || root.isJsonNull()) return null;
+    if (root.isJsonArray()) return root.getAsJsonArray();
+    if (!root.isJsonObject()) return null;
+    JsonArray fromRoster = JsonUtil.getArray(root.getAsJsonObject(), "roster");
+    return (fromRoster != null) ? fromRoster : JsonUtil.getArray(root.getAsJsonObject(), "players");
+  }
+
+  private static String newId() {
+    byte[] b = new byte[16];
+    IDS.nextBytes(b);
+    return HexFormat.of().formatHex(b);
+  }
+
+  private static void evictIdle() {
+    long now = System.nanoTime();
+    BY_ID.values().removeIf(s -> {
+      boolean idle = now - s.lastAccess > IDLE_NANOS;
+      if (idle) EVICTED.increment();
+      return idle;
+    });
+  }
+
+  private static boolean evictOldest() {
+    Session oldest = null;
+    for (Session s : BY_ID.values()) {
+      if (oldest == null || s.lastAccess < oldest.lastAccess) oldest = s;
+    }
+    if (oldest == null || !BY_ID.remove(oldest.id, oldest)) return false;
+    EVICTED.increment();
+    return true;
+  }
+
+  /** Um elenco em edição. Patch e compilação são serializados por sessão. */
+  public static final class Session {
+
+    private final String id;
+    private final JsonElement root;
+    private final JsonArray players;
+    private final byte[] template;
+    private final String label;
+    // por identidade do JsonObject: patch nunca altera um jogador no lugar
+    private final Map<JsonObject, BanCompiler.PlayerTraits> traits = new IdentityHashMap<>();
+    private String traitsDigest;
+    private volatile long lastAccess = System.nanoTime();
+
+    private Session(String id, JsonElement root, JsonArray players, byte[] template, String label) {
+      this.id = id;
+      this.root = root;
+      this.players = players;
+      this.template = template;
+      this.label = label;
+    }
+
+    public String id() {
+      return id;
+    }
+
+    public synchronized int size() {
+      return players.size();
+    }
+
+    private void touch() {
+      lastAccess = System.nanoTime();
+    }
+
+    /** Aplica todas as operações ou nenhuma (IllegalArgumentException na primeira inválida). */
+    public synchronized PatchResult patch(JsonArray ops) {
+      touch();
+      List<JsonElement> work = new ArrayList<>(players.size() + ops.size());
+      for (JsonElement el : players) work.add(el);
+      Map<String, Integer> byId = new HashMap<>();
+      for (int i = 0; i < work.size(); i++) {
+        String k = idKey(work.get(i));
+        if (k != null) byId.putIfAbsent(k, i);
+      }
+
+      int added = 0, removed = 0, modified = 0;
+      List<JsonElement> replaced = new ArrayList<>();
+      for (int n = 0; n < ops.size(); n++) {
+        JsonElement opEl = ops.get(n);
+        if (!opEl.isJsonObject()) throw new IllegalArgumentException("op " + n + ": esperado objeto");
+        JsonObject op = opEl.getAsJsonObject();
+        String kind = JsonUtil.getString(op, "op");
+        JsonElement player = op.get("player");
+        if ("add".equals(kind)) {
+          if (player == null || !player.isJsonObject()) throw new IllegalArgumentException("op " + n + ": add sem player");
+          String k = idKey(player);
+          if (k != null && byId.get(k) != null) throw new IllegalArgumentException("op " + n + ": id " + k + " ja existe");
+          if (k != null) byId.put(k, work.size());
+          work.add(player.deepCopy());
+          added++;
+        } else if ("remove".equals(kind) || "modify".equals(kind)) {
+          String k = idKey(op);
+          Integer at = (k == null) ? null : byId.get(k);
+          if (at == null) throw new IllegalArgumentException("op " + n + ": jogador " + op.get("id") + " nao encontrado");
+          replaced.add(work.get(at));
+          if ("remove".equals(kind)) {
+            work.set(at, null);
+            byId.remove(k);
+            removed++;
+          } else {
+            if (player == null || !player.isJsonObject()) throw new IllegalArgumentException("op " + n + ": modify sem player");
+            // cópia: o objeto antigo continua intacto se uma op seguinte falhar
+            JsonObject p = work.get(at).getAsJsonObject().deepCopy();
+            for (Map.Entry<String, JsonElement> e : player.getAsJsonObject().entrySet()) {
+              if (e.getKey().equals("id")) continue;
+              if (e.getValue().isJsonNull()) p.remove(e.getKey());
+              else p.add(e.getKey(), e.getValue().deepCopy());
+            }
+            work.set(at, p);
+            modified++;
+          }
+        } else {
+          throw new IllegalArgumentException("op " + n + ": op desconhecida " + kind);
+        }
+      }
+
+      while (players.size() > 0) players.remove(players.size() - 1);
+      for (JsonElement el : work) {
+        if (el != null) players.add(el);
+      }
+      // características de quem saiu ou mudou não servem mais
+      for (JsonElement old : replaced) traits.remove(old);
+      return new PatchResult(players.size(), added, removed, modified);
+    }
+
+    /**
+     * Compila o estado atual. Só jogadores com JSON novo passam pelo
+     * HeuristicsEngine; o resto vem da memória da sessão (descartada quando o
+     * mapping muda).
+     */
+    public synchronized List<BanCompiler.CompileResult> compile(List<BanCompiler.Variant> variants) throws IOException {
+      touch();
+      String digest = Mappings.get().compileDigest();
+      if (!digest.equals(traitsDigest)) {
+        traits.clear();
+        traitsDigest = digest;
+      }
+      int before = traits.size();
+      List<BanCompiler.CompileResult> out = BanCompiler.compileVariants(root, label, template, variants, traits);
+      TRAITS_COMPUTED.add(traits.size() - before);
+      return out;
+    }
+
+    /** Atalho para uma saída só, lida de volta como bytes. */
+    public byte[] compileBan(Integer teamIdOverride, Integer countryIdOverride, boolean competitive) throws IOException {
+      Path tmp = Files.createTempFile("bf-session-", ".ban");
+      try {
+        compile(List.of(new BanCompiler.Variant(tmp, teamIdOverride, countryIdOverride, competitive)));
+        return Files.readAllBytes(tmp);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+
+    private static String idKey(JsonElement el) {
+      if (el == null || !el.isJsonObject()) return null;
+      JsonElement id = el.getAsJsonObject().get("id");
+      return (id == null || !id.isJsonPrimitive()) ? null : id.getAsString();
+    }
+  }
+}
@@ -17,6 +17,11 @@ public final class SafeDeserialization {
     return LAST_REJECTED.get();
   }
 
+  /** Registra uma classe rejeitada fora do ObjectInputFilter (ex.: BanStreamReader). */
+  static void recordRejected(String className) {
+    LAST_REJECTED.set(className);
+  }
+
   public static ObjectInputFilter createFilter() {
     return info -> {
       Class<?> clazz = info.serialClass();
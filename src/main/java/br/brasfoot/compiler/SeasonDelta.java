@@ -0,0 +1,239 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Temporada guardada como diferença contra a temporada base do mesmo time
+ * (delta=true em cache.properties; ver TransfermarktCache).
+ *
+ * Jogadores são casados pelo "id" do Transfermarkt. Cada operação do delta é:
+ * <pre>
+ * {"id": X}                                   igual ao da base
+ * {"id": X, "s": {..}, "u": [..], "d": {..}}  campos trocados / removidos / objetos com diff
+ * {"full": {...}}                             jogador novo, sem id ou com id repetido
+ * </pre>
+ * Um objeto cujas chaves mudaram de ordem vai inteiro em "s" (ou "full"),
+ * então a reconstrução devolve exatamente o que foi gravado, inclusive a
+ * ordem das chaves e os null.
+ *
+ * No disco o delta vai num cabeçalho próprio, fora da compressão:
+ * <pre>
+ * "BFDL" | versão u8 | temporada base i32 BE | payload (ops no formato do diretório, talvez comprimido)
+ * </pre>
+ */
+final class SeasonDelta {
+
+  static final byte[] MAGIC = {'B', 'F', 'D', 'L'};
+  static final int VERSION = 1;
+  static final int HEADER = MAGIC.length + 1 + 4;
+
+  private final int baseSeason;
+  private final JsonArray ops;
+
+  SeasonDelta(int baseSeason, JsonArray ops) {
+    this.baseSeason = baseSeason;
+    this.ops = Objects.requireNonNull(ops, "ops");
+  }
+
+  int baseSeason() {
+    return baseSeason;
+  }
+
+  JsonArray ops() {
+    return ops;
+  }
+
+  // -------------------------
+  // Diff / apply
+  // -------------------------
+
+  static SeasonDelta diff(int baseSeason, JsonArray base, JsonArray current) {
+    Map<String, JsonObject> byId = indexById(base);
+    Set<String> seen = new HashSet<>();
+
+    JsonArray ops = new JsonArray(current.size());
+    for (JsonElement el : current) {
+      JsonElement id = idOf(el);
+      String key = id == null ? null : key(id);
+      JsonObject prev = key == null ? null : byId.get(key);
+      if (prev == null || !seen.add(key)) {
+        ops.add(full(el));
+        continue;
+      }
+      JsonObject patch = diffObject(prev, el.getAsJsonObject());
+      if (patch == null) {
+        ops.add(full(el));
+        continue;
+      }
+      JsonObject op = new JsonObject();
+      op.add("id", id);
+      for (Map.Entry<String, JsonElement> e : patch.entrySet()) op.add(e.getKey(), e.getValue());
+      ops.add(op);
+    }
+    return new SeasonDelta(baseSeason, ops);
+  }
+
+  /** Reconstrói a temporada; {@code base} não é alterado. */
+  JsonArray apply(JsonArray base) {
+    Map<String, JsonObject> byId = indexById(base);
+    JsonArray out = new JsonArray(ops.size());
+    for (JsonElement el : ops) {
+      JsonObject op = el.getAsJsonObject();
+      if (op.has("full")) {
+        out.add(op.get("full").deepCopy());
+        continue;
+      }
+      JsonObject prev = byId.get(key(op.get("id")));
+      if (prev == null) throw new IllegalArgumentException("delta: jogador " + op.get("id") + " ausente na base " + baseSeason);
+      JsonObject p = prev.deepCopy();
+      applyObject(p, op);
+      out.add(p);
+    }
+    return out;
+  }
+
+  /** Quantos jogadores vieram inteiros (sem base correspondente). */
+  int fullCount() {
+    int n = 0;
+    for (JsonElement el : ops) if (el.getAsJsonObject().has("full")) n++;
+    return n;
+  }
+
+  private static JsonObject full(JsonElement el) {
+    JsonObject op = new JsonObject();
+    op.add("full", el);
+    return op;
+  }
+
+  /** Só ids únicos na base; duplicados não servem de âncora. */
+  private static Map<String, JsonObject> indexById(JsonArray players) {
+    Map<String, JsonObject> byId = new HashMap<>();
+    Set<String> dup = new HashSet<>();
+    for (JsonElement el : players) {
+      JsonElement id = idOf(el);
+      if (id == null) continue;
+      String k = key(id);
+      if (byId.put(k, el.getAsJsonObject()) != null) dup.add(k);
+    }
+    byId.keySet().removeAll(dup);
+    return byId;
+  }
+
+  private static JsonElement idOf(JsonElement el) {
+    if (el == null || !el.isJsonObject()) return null;
+    JsonElement id = el.getAsJsonObject().get("id");
+    return (id == null || !id.isJsonPrimitive()) ? null : id;
+  }
+
+  /**
+   * Chave de mapa para o id: JsonPrimitive de Long (RosterCodec) e de
+   * LazilyParsedNumber (JSON) são equals mas têm hashCode diferente.
+   */
+  private static String key(JsonElement id) {
+    JsonPrimitive p = id.getAsJsonPrimitive();
+    return (p.isNumber() ? "n:" : "s:") + p.getAsString();
+  }
+
+  /** Patch (s/u/d) de a para b, vazio se iguais; null se a ordem das chaves mudou. */
+  private static JsonObject diffObject(JsonObject a, JsonObject b) {
+    List<String> aKeys = new ArrayList<>(a.keySet());
+    List<String> bKeys = new ArrayList<>(b.keySet());
+    List<String> kept = new ArrayList<>(aKeys);
+    kept.retainAll(bKeys);
+    List<String> bOld = new ArrayList<>(bKeys);
+    bOld.retainAll(aKeys);
+    // chaves novas só no fim, e as antigas na mesma ordem: senão não há como reconstruir igual
+    if (!kept.equals(bOld) || !bKeys.subList(0, bOld.size()).equals(bOld)) return null;
+
+    JsonObject set = new JsonObject();
+    JsonObject nested = new JsonObject();
+    JsonArray unset = new JsonArray();
+    for (String k : aKeys) {
+      if (!b.has(k)) unset.add(k);
+    }
+    for (String k : bKeys) {
+      JsonElement va = a.get(k);
+      JsonElement vb = b.get(k);
+      if (va != null && va.equals(vb)) continue;
+      if (va != null && va.isJsonObject() && vb.isJsonObject()) {
+        JsonObject sub = diffObject(va.getAsJsonObject(), vb.getAsJsonObject());
+        if (sub != null) {
+          nested.add(k, sub);
+          continue;
+        }
+      }
+      set.add(k, vb);
+    }
+
+    JsonObject patch = new JsonObject();
+    if (set.size() > 0) patch.add("s", set);
+    if (unset.size() > 0) patch.add("u", unset);
+    if (nested.size() > 0) patch.add("d", nested);
+    return patch;
+  }
+
+  private static void applyObject(JsonObject target, JsonObject patch) {
+    JsonElement u = patch.get("u");
+    if (u != null) for (JsonElement k : u.getAsJsonArray()) target.remove(k.getAsString());
+    JsonElement s = patch.get("s");
+    if (s != null) {
+      for (Map.Entry<String, JsonElement> e : s.getAsJsonObject().entrySet()) target.add(e.getKey(), e.getValue().deepCopy());
+    }
+    JsonElement d = patch.get("d");
+    if (d != null) {
+      for (Map.Entry<String, JsonElement> e : d.getAsJsonObject().entrySet()) {
+        JsonElement cur = target.get(e.getKey());
+        if (cur == null || !cur.isJsonObject()) {
+          throw new IllegalArgumentException("delta: campo " + e.getKey() + " nao e objeto na base");
+        }
+        applyObject(cur.getAsJsonObject(), e.getValue().getAsJsonObject());
+      }
+    }
+  }
+
+  // -------------------------
+  // Cabeçalho
+  // -------------------------
+
+  static boolean isDelta(ByteBuffer buf) {
+    if (buf.remaining() < HEADER) return false;
+    int p = buf.position();
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buf.get(p + i) != MAGIC[i]) return false;
+    }
+    return true;
+  }
+
+  /** Temporada base de um arquivo delta (posição inalterada), ou -1 se não for delta. */
+  static int baseSeasonOf(ByteBuffer buf) {
+    if (!isDelta(buf)) return -1;
+    return buf.getInt(buf.position() + MAGIC.length + 1);
+  }
+
+  /** Consome o cabeçalho e devolve a temporada base. */
+  static int readHeader(ByteBuffer buf) {
+    if (!isDelta(buf)) throw new IllegalArgumentException("delta invalido: magic");
+    buf.position(buf.position() + MAGIC.length);
+    int v = buf.get() & 0xFF;
+    if (v != VERSION) throw new IllegalArgumentException("delta: versao nao suportada " + v);
+    return buf.getInt();
+  }
+
+  static byte[] withHeader(int baseSeason, byte[] payload) {
+    ByteBuffer b = ByteBuffer.allocate(HEADER + payload.length);
+    b.put(MAGIC).put((byte) VERSION).putInt(baseSeason).put(payload);
+    return b.array();
+  }
+}
@@ -30,16 +30,14 @@ public final class SideResolver {
     }
 
     // 2) posText com “Esq/Dir”
-    String p = normalize(posText);
-    if (p.contains("esq")) return 1;
-    if (p.contains("dir")) return 0;
+    int fromPos = sideFromHint(PositionClassifier.classify(posText).sideHint());
+    if (fromPos >= 0) return fromPos;
 
     // 3) secundárias (quando a posição principal é “central” mas secundária indica lado)
     if (secondaryPositions != null) {
       for (String s : secondaryPositions) {
-        String t = normalize(s);
-        if (t.contains("esq")) return 1;
-        if (t.contains("dir")) return 0;
+        int fromSec = sideFromHint(PositionClassifier.classify(s).sideHint());
+        if (fromSec >= 0) return fromSec;
       }
     }
 
@@ -52,6 +50,13 @@ public final class SideResolver {
     return 0;
   }
 
+  /** "L" → 1, "R" → 0, sem dica → -1. */
+  private static int sideFromHint(String hint) {
+    if ("L".equals(hint)) return 1;
+    if ("R".equals(hint)) return 0;
+    return -1;
+  }
+
   private static String normalize(String s) {
     if (s == null) return "";
     return s.toLowerCase(Locale.ROOT).trim();
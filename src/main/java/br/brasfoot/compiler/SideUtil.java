@@ -1,6 +1,5 @@
 package br.brasfoot.compiler;
 
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Locale;
 
@@ -52,7 +51,7 @@ public final class SideUtil {
   /** 0=destro, 1=canhoto, 2=ambidestro, -1=desconhecido */
   private static int parseFootStrict(String foot) {
     if (foot == null) return -1;
-    String s = deaccent(foot).trim().toLowerCase(Locale.ROOT);
+    String s = TextUtil.deaccent(foot).trim().toLowerCase(Locale.ROOT);
     if (s.isBlank()) return -1;
 
     if (s.contains("ambi") || s.contains("both") || s.contains("two-foot") || s.contains("two foot")) return 2;
@@ -71,7 +70,7 @@ public final class SideUtil {
 
   private static boolean isAmbidextrous(String foot) {
     if (foot == null) return false;
-    String s = deaccent(foot).trim().toLowerCase(Locale.ROOT);
+    String s = TextUtil.deaccent(foot).trim().toLowerCase(Locale.ROOT);
     return s.contains("ambi") || s.contains("both") || s.contains("two-foot") || s.contains("two foot");
   }
 
@@ -82,7 +81,7 @@ public final class SideUtil {
   private static int parseBrasfootSideFromText(String any) {
     if (any == null) return -1;
 
-    String s = deaccent(any).trim().toLowerCase(Locale.ROOT);
+    String s = TextUtil.deaccent(any).trim().toLowerCase(Locale.ROOT);
     if (s.isBlank()) return -1;
 
     if (s.contains("direit") || s.equals("r") || s.equals("right") || s.equals("destro") || s.contains("rechts")) return 0;
@@ -108,10 +107,4 @@ public final class SideUtil {
 
     return -1;
   }
-
-  private static String deaccent(String s) {
-    if (s == null) return null;
-    String n = Normalizer.normalize(s, Normalizer.Form.NFD);
-    return n.replaceAll("\\p{M}+", "");
-  }
 }
\ No newline at end of file
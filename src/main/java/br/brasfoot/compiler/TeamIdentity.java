@@ -1,7 +1,6 @@
 package br.brasfoot.compiler;
 
 import java.net.URI;
-import java.text.Normalizer;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -18,16 +17,25 @@ public record TeamIdentity(String country, int teamId, int season, String slug)
 
   private static final Pattern TEAM_ID = Pattern.compile("/verein/(\\d+)", Pattern.CASE_INSENSITIVE);
   private static final Pattern SEASON_ID = Pattern.compile("/saison_id/(\\d+)", Pattern.CASE_INSENSITIVE);
+  // country vira diretório do cache (<country>/<teamId>/...): sem separador,
+  // sem "."/".." e sem caminho absoluto. Hosts como www.transfermarkt.co.uk passam.
+  private static final Pattern COUNTRY = Pattern.compile("[a-z0-9][a-z0-9.-]{0,63}");
 
   public TeamIdentity {
     Objects.requireNonNull(country, "country");
     Objects.requireNonNull(slug, "slug");
     if (country.isBlank()) throw new IllegalArgumentException("country vazio");
+    if (!isValidCountry(country)) throw new IllegalArgumentException("country inválido: " + country);
     if (slug.isBlank()) throw new IllegalArgumentException("slug vazio");
     if (teamId <= 0) throw new IllegalArgumentException("teamId inválido: " + teamId);
     if (season <= 0) throw new IllegalArgumentException("season inválido: " + season);
   }
 
+  /** Minúsculas, dígitos, "." e "-", começando por letra/dígito, sem "..". */
+  public static boolean isValidCountry(String country) {
+    return country != null && COUNTRY.matcher(country).matches() && !country.contains("..");
+  }
+
   public static TeamIdentity fromTeamUrl(String teamUrl) {
     if (teamUrl == null || teamUrl.isBlank()) {
       throw new IllegalArgumentException("teamUrl é obrigatório.");
@@ -90,7 +98,7 @@ public record TeamIdentity(String country, int teamId, int season, String slug)
 
   private static String toSafeSlug(String s) {
     String t = s.toLowerCase(Locale.ROOT);
-    t = Normalizer.normalize(t, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    t = TextUtil.deaccent(t);
     t = t.replaceAll("[^a-z0-9\\-]+", "-");
     t = t.replaceAll("-{2,}", "-");
     t = t.replaceAll("(^-+|-+$)", "");
@@ -2,15 +2,62 @@ package br.brasfoot.compiler;
 
 import java.text.Normalizer;
 import java.util.Locale;
+import java.util.regex.Pattern;
 
 public final class TextUtil {
 
   private TextUtil() {}
 
+  // Tabela de dobra para Latin-1 Supplement + Latin Extended-A/B (U+0080..U+024F):
+  // FOLD[c - 0x80] = resultado de NFD + remoção de marcas para o caractere c.
+  // Calculada uma vez com o próprio Normalizer, então é idêntica ao caminho lento.
+  private static final char FOLD_FIRST = 0x80;
+  private static final char FOLD_LAST = 0x24F;
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final String[] FOLD = buildFoldTable();
+
+  /**
+   * Remove acentos (NFD + remoção de \p{M}).
+   *
+   * Caminho rápido: texto ASCII volta como está (sem alocação); texto só com
+   * Latin/Latin-1 é dobrado pela tabela. Qualquer caractere acima de U+024F
+   * (marcas combinantes soltas, outros alfabetos) cai no caminho lento original.
+   */
   public static String deaccent(String s) {
     if (s == null) return null;
+
+    int n = s.length();
+    int i = 0;
+    while (i < n && s.charAt(i) < FOLD_FIRST) i++;
+    if (i == n) return s;
+
+    StringBuilder sb = new StringBuilder(n).append(s, 0, i);
+    for (int j = i; j < n; j++) {
+      char c = s.charAt(j);
+      if (c < FOLD_FIRST) {
+        sb.append(c);
+      } else if (c <= FOLD_LAST) {
+        sb.append(FOLD[c - FOLD_FIRST]);
+      } else {
+        return deaccentSlow(s);
+      }
+    }
+    return sb.toString();
+  }
+
+  /** Implementação de referência (usada fora da faixa da tabela e para montá-la). */
+  static String deaccentSlow(String s) {
+    if (s == null) return null;
     String n = Normalizer.normalize(s, Normalizer.Form.NFD);
-    return n.replaceAll("\\p{M}+", "");
+    return MARKS.matcher(n).replaceAll("");
+  }
+
+  private static String[] buildFoldTable() {
+    String[] t = new String[FOLD_LAST - FOLD_FIRST + 1];
+    for (char c = FOLD_FIRST; c <= FOLD_LAST; c++) {
+      t[c - FOLD_FIRST] = deaccentSlow(String.valueOf(c));
+    }
+    return t;
   }
 
   public static String safe(String s) {
@@ -5,56 +5,958 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
-import java.io.Writer;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Cache determinístico:
- * cache/transfermarkt/<country>/<teamId>/<season>.json
+ * cache/transfermarkt/<country>/<teamId>/<season>.json   (ou .bin)
+ * cache/transfermarkt/<country>/<h1>/<h2>/<teamId>/<season>.json   (layout=sharded)
+ *
+ * O formato é escolhido por diretório em cache.properties (CacheConfig):
+ * JSON indentado (padrão) ou binário com tabela de strings (RosterCodec),
+ * lido por FileChannel mapeado. A leitura aceita o outro formato quando o
+ * arquivo do formato configurado não existe (árvore no meio de uma migração;
+ * ver CacheMigrator / --cacheMigrate). O mesmo vale para o layout de
+ * diretórios (CacheLayout): com layout=sharded, arquivos ainda no layout
+ * antigo continuam sendo lidos até a migração terminar.
+ *
+ * Com compression=deflate os arquivos são comprimidos com dicionário
+ * pré-definido (CacheCompression); a leitura reconhece pelo magic.
+ *
+ * Com camada em memória: times lidos ficam parseados numa LRU limitada pelo
+ * tamanho do payload descomprimido (peso aproximado do elenco parseado). Cada leitura
+ * ainda confere mtime + tamanho do arquivo (um stat, sem abrir), então edições
+ * externas no cache são vistas na próxima leitura. read() devolve uma cópia:
+ * quem chama pode alterar o JsonArray sem contaminar o que está em memória.
+ *
+ * Escritas são atômicas: temporário no mesmo diretório + fsync + ATOMIC_MOVE
+ * (writeAtomic), então leitores e crashes nunca veem um arquivo pela metade.
+ * Leitura e escrita do mesmo time passam por um lock listrado pela chave
+ * <country>/<teamId> (lockFor; todas as temporadas, por causa dos deltas):
+ * dois writers do mesmo time não correm,
+ * e jobs em paralelo em times diferentes quase nunca disputam o mesmo lock.
+ *
+ * Índice em memória (CacheManifest, manifest.idx na raiz): exists(), seasons()
+ * e teams() respondem sem tocar no sistema de arquivos, e read() vai direto
+ * ao arquivo no formato registrado. Arquivos colocados por fora do cache só
+ * aparecem em exists()/listagens depois de --cacheManifest (rebuild); read()
+ * ainda os encontra pelo caminho antigo (stat dos formatos).
+ *
+ * Com delta=true (CacheConfig) cada temporada é gravada como diferença
+ * (SeasonDelta) contra a temporada inteira mais próxima do mesmo time —
+ * topologia estrela, um nível só. Depois de rebaseEvery deltas contra a mesma
+ * base, ou se o delta não ficar bem menor que o arquivo inteiro, a temporada
+ * vai inteira e passa a servir de base. Reescrever uma base primeiro grava
+ * inteiras as temporadas que dependem dela e depois refaz os deltas, então o
+ * disco nunca fica com um delta apontando para a base errada. A leitura de
+ * delta reaproveita a base parseada da camada em memória. Leitura reconhece
+ * delta pelo magic, com ou sem delta=true.
+ *
+ * Com um RosterLoader, getOrLoad(team) busca o que falta: cargas simultâneas do
+ * mesmo time viram uma só (single-flight), e com TTL um elenco velho (escrito
+ * há mais que o TTL) é devolvido na hora enquanto a atualização
+ * roda em background — a compilação nunca espera a fonte lenta se já houver
+ * alguma versão em disco.
  */
-public final class TransfermarktCache {
+public final class TransfermarktCache implements AutoCloseable {
+
+  /** Limite padrão da camada em memória, em bytes de JSON no disco. */
+  public static final long DEFAULT_MEMORY_BYTES =
+      Long.getLong("brasfoot.tmCache.memoryBytes", 64L * 1024 * 1024);
+
+  /**
+   * Bytes gravados por jogador, para estimar o elenco sem abrir o arquivo
+   * (palmeiras.json dos testes: JSON indentado ~580, BIN ~115, comprimido ~62).
+   */
+  private static final int JSON_BYTES_PER_PLAYER = 600;
+  private static final int BIN_BYTES_PER_PLAYER = 120;
+  private static final int COMPRESSED_BYTES_PER_PLAYER = 64;
+  /** Elenco presumido quando não há entrada (o loader ainda vai buscar). */
+  private static final int TYPICAL_ROSTER = 40;
+
+  /** Atualizações em background simultâneas (por instância; as threads param em close()). */
+  private static final int REFRESH_THREADS = Integer.getInteger("brasfoot.tmCache.refreshThreads", 2);
 
   private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+  // Deltas não são editados à mão; null precisa sobreviver ("s": {"campo": null}).
+  private static final Gson DELTA_GSON = new GsonBuilder().serializeNulls().create();
+
+  /** Arquivos do lock entre processos (lockAcrossProcesses); fora de qualquer layout. */
+  static final String LOCK_DIR = ".locks";
+
+  // Potência de 2; estático porque várias instâncias podem apontar pro mesmo diretório.
+  private static final int STRIPES = 64;
+  private static final ReentrantReadWriteLock[] LOCKS = new ReentrantReadWriteLock[STRIPES];
+  static {
+    for (int i = 0; i < STRIPES; i++) LOCKS[i] = new ReentrantReadWriteLock();
+  }
 
   private final Path baseDir;
+  // relido quando cache.properties muda (CacheMigrator de outro processo): ver refreshConfig()
+  private volatile CacheConfig config;
+  private volatile ConfigStamp configStamp;
+  private final MemoryTier memory;
+  private final CacheManifest manifest;
+
+  private final RosterLoader loader;
+  private final Duration ttl;
+  private final ExecutorService refresher;
+  private final ConcurrentHashMap<Path, CompletableFuture<JsonArray>> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder staleServed = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
 
   public TransfermarktCache(Path baseDir) {
+    this(baseDir, DEFAULT_MEMORY_BYTES);
+  }
+
+  /** {@code memoryBytes} = 0 desliga a camada em memória. */
+  public TransfermarktCache(Path baseDir, long memoryBytes) {
+    this(baseDir, memoryBytes, null, Duration.ZERO);
+  }
+
+  /**
+   * Cache com fonte para getOrLoad. {@code ttl} = ZERO: o que está em disco
+   * nunca envelhece (só o que falta é carregado).
+   */
+  public TransfermarktCache(Path baseDir, long memoryBytes, RosterLoader loader, Duration ttl) {
     this.baseDir = Objects.requireNonNull(baseDir, "baseDir").toAbsolutePath().normalize();
+    this.configStamp = ConfigStamp.of(this.baseDir);
+    this.config = CacheConfig.load(this.baseDir);
+    this.memory = new MemoryTier(memoryBytes);
+    try {
+      this.manifest = CacheManifest.open(this.baseDir);
+    } catch (IOException e) {
+      throw new IllegalStateException("Falha ao abrir manifest de " + this.baseDir + ": " + e.getMessage(), e);
+    }
+    this.loader = loader;
+    this.ttl = Objects.requireNonNull(ttl, "ttl");
+    this.refresher = (loader == null) ? null : Executors.newFixedThreadPool(REFRESH_THREADS, r -> {
+      Thread t = new Thread(r, "tm-refresh");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  private static volatile TransfermarktCache shared;
+
+  /**
+   * Cache do servidor (/compile/cached e warmup), configurado por properties:
+   * -Dbrasfoot.tmCache.dir (obrigatória; sem ela devolve null),
+   * -Dbrasfoot.tmCache.sourceDir (DirectoryRosterLoader para o que faltar) e
+   * -Dbrasfoot.tmCache.ttlSeconds (0 = nunca envelhece).
+   */
+  public static TransfermarktCache shared() {
+    TransfermarktCache c = shared;
+    if (c != null) return c;
+    String dir = System.getProperty("brasfoot.tmCache.dir");
+    if (dir == null || dir.isBlank()) return null;
+    synchronized (TransfermarktCache.class) {
+      if (shared == null) {
+        String source = System.getProperty("brasfoot.tmCache.sourceDir");
+        RosterLoader loader = (source == null || source.isBlank()) ? null : new DirectoryRosterLoader(Path.of(source.trim()));
+        Duration ttl = Duration.ofSeconds(Long.getLong("brasfoot.tmCache.ttlSeconds", 0L));
+        shared = new TransfermarktCache(Path.of(dir.trim()), DEFAULT_MEMORY_BYTES, loader, ttl);
+      }
+      return shared;
+    }
   }
 
   public Path baseDir() {
     return baseDir;
   }
 
+  public CacheConfig config() {
+    return config;
+  }
+
+  /** mtime + tamanho de cache.properties (null se ausente). */
+  private record ConfigStamp(long mtime, long size) {
+    static ConfigStamp of(Path baseDir) {
+      try {
+        BasicFileAttributes a = Files.readAttributes(baseDir.resolve(CacheConfig.FILE), BasicFileAttributes.class);
+        return new ConfigStamp(a.lastModifiedTime().toMillis(), a.size());
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Relê cache.properties se mudou desde a última leitura (um stat). Chamado
+   * em toda escrita, já com o lock do time: o CacheMigrator grava a
+   * configuração nova antes de converter, então a escrita seguinte do servidor
+   * já sai no formato/layout novo.
+   */
+  private CacheConfig refreshConfig() {
+    ConfigStamp now = ConfigStamp.of(baseDir);
+    if (!Objects.equals(now, configStamp)) {
+      synchronized (this) {
+        if (!Objects.equals(now, configStamp)) {
+          config = CacheConfig.load(baseDir);
+          configStamp = now;
+        }
+      }
+    }
+    return config;
+  }
+
   public Path resolveJsonPath(TeamIdentity team) {
+    return resolvePath(team, CacheFormat.JSON);
+  }
+
+  /** Caminho do time no formato configurado do diretório. */
+  public Path resolvePath(TeamIdentity team) {
+    return resolvePath(team, config.format());
+  }
+
+  public Path resolvePath(TeamIdentity team, CacheFormat format) {
+    return resolvePath(team, format, config.layout());
+  }
+
+  public Path resolvePath(TeamIdentity team, CacheFormat format, CacheLayout layout) {
     Objects.requireNonNull(team, "team");
-    return baseDir
-        .resolve(team.country())
-        .resolve(String.valueOf(team.teamId()))
-        .resolve(team.season() + ".json");
+    return layout.resolve(baseDir, team.country(), team.teamId(), team.season(), format);
   }
 
+  /** Pelo manifest; só olha o disco (o próprio manifest) quando não acha. */
   public boolean exists(TeamIdentity team) {
-    return Files.isRegularFile(resolveJsonPath(team));
+    Objects.requireNonNull(team, "team");
+    if (manifest.get(team) != null) return true;
+    try {
+      return manifest.catchUp() && manifest.get(team) != null;
+    } catch (IOException e) {
+      return locateOnDisk(team) != null;
+    }
+  }
+
+  /** Temporadas em cache de um time (manifest), em ordem. */
+  public List<Integer> seasons(String country, int teamId) {
+    return manifest.seasons(country, teamId);
+  }
+
+  /** Times com alguma temporada em cache no país (manifest), em ordem. */
+  public List<Integer> teams(String country) {
+    return manifest.teams(country);
+  }
+
+  /** Entrada do manifest (tamanho, hash, hora da escrita) ou null. */
+  public CacheManifest.Entry manifestEntry(TeamIdentity team) {
+    return manifest.get(team);
+  }
+
+  /**
+   * Versão do conteúdo do time (hash do manifest; delta combina com o da base),
+   * ou -1 se não houver entrada. Muda a cada escrita que altera o elenco: serve
+   * de chave para o que é derivado dele (ex.: CompileResultCache).
+   */
+  public long version(TeamIdentity team) {
+    CacheManifest.Entry e = manifest.get(team);
+    if (e == null) return -1;
+    if (e.baseSeason() < 0) return e.hash();
+    CacheManifest.Entry base = manifest.get(seasonOf(team, e.baseSeason()));
+    return base == null ? -1 : 31 * e.hash() + base.hash();
+  }
+
+  /**
+   * Jogadores que uma leitura do time vai decodificar, sem tocar no disco (o
+   * AdmissionControl cobra antes de ler): exato se o elenco está na camada em
+   * memória, senão pelo tamanho gravado no manifest — de um delta, pelo da base.
+   */
+  public int estimatedPlayers(TeamIdentity team) {
+    int cached = memory.sizeOf(team);
+    if (cached >= 0) return cached;
+    CacheManifest.Entry e = manifest.get(team);
+    if (e != null && e.baseSeason() >= 0) e = manifest.get(seasonOf(team, e.baseSeason()));
+    if (e == null) return TYPICAL_ROSTER;
+    int perPlayer = e.compressed() ? COMPRESSED_BYTES_PER_PLAYER
+        : e.format() == CacheFormat.BIN ? BIN_BYTES_PER_PLAYER : JSON_BYTES_PER_PLAYER;
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, e.size() / perPlayer));
   }
 
   public JsonArray read(TeamIdentity team) throws IOException {
-    Path p = resolveJsonPath(team);
-    try (Reader r = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
-      return GSON.fromJson(r, JsonArray.class);
+    Lock lock = lockFor(entryKey(team)).readLock();
+    lock.lock();
+    try {
+      return readLocked(team);
+    } finally {
+      lock.unlock();
     }
   }
 
+  private JsonArray readLocked(TeamIdentity team) throws IOException {
+    return readLocked(team, false);
+  }
+
+  private JsonArray readLocked(TeamIdentity team, boolean asBase) throws IOException {
+    Path p = locate(team);
+
+    // stat antes de ler: se o arquivo mudar no meio, a entrada fica com o
+    // carimbo antigo e a próxima leitura recarrega.
+    BasicFileAttributes attrs = p == null ? null : statOrNull(p);
+    if (attrs == null) {
+      // manifest desatualizado (migração, arquivo apagado por fora): procura no disco
+      refreshConfig();
+      p = locateOnDisk(team);
+      attrs = p == null ? null : statOrNull(p);
+      if (attrs == null) {
+        memory.invalidate(team);
+        manifest.recordDelete(team);
+        throw new NoSuchFileException(resolvePath(team).toString());
+      }
+    }
+    long mtime = attrs.lastModifiedTime().toMillis();
+    long size = attrs.size();
+
+    JsonArray hit = memory.get(team, mtime, size);
+    if (hit != null) return hit.deepCopy();
+
+    Decoded d = decodeStored(p, formatOf(p));
+    JsonArray players = d.players();
+    long weight = d.rawBytes();
+    if (d.delta() != null) {
+      int base = d.delta().baseSeason();
+      if (asBase || base == team.season()) throw new IOException(p + ": delta aponta para outro delta/si mesmo (" + base + ")");
+      TeamIdentity baseTeam = seasonOf(team, base);
+      JsonArray basePlayers;
+      try {
+        basePlayers = readLocked(baseTeam, true);
+      } catch (NoSuchFileException e) {
+        throw new IOException(p + ": base " + base + " do delta nao encontrada", e);
+      }
+      try {
+        players = d.delta().apply(basePlayers);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+        throw new IOException(p + ": " + e.getMessage(), e);
+      }
+      // o elenco reconstruído pesa mais ou menos o mesmo que a base
+      weight = Math.max(weight, memory.weightOf(baseTeam));
+    }
+    if (players != null) memory.put(team, players.deepCopy(), mtime, size, weight);
+    return players;
+  }
+
   public void write(TeamIdentity team, JsonArray players) throws IOException {
     Objects.requireNonNull(players, "players");
-    Path p = resolveJsonPath(team);
-    Files.createDirectories(p.getParent());
-    try (Writer w = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
-      GSON.toJson(players, w);
+    // Codifica fora do lock: só a troca do arquivo precisa ser exclusiva.
+    CacheFormat encodedAs = config.format();
+    byte[] raw = encodeRaw(players, encodedAs);
+    JsonArray copy = players.deepCopy();
+
+    Lock lock = lockFor(entryKey(team)).writeLock();
+    lock.lock();
+    try (FileChannel ignored = lockAcrossProcesses(baseDir, team.country(), team.teamId())) {
+      // uma configuração só do começo ao fim da escrita, mesmo que mude no meio
+      CacheConfig cfg = refreshConfig();
+      if (cfg.format() != encodedAs) raw = encodeRaw(players, cfg.format());
+      List<CacheManifest.Entry> dependents = dependentsOf(team);
+      if (!cfg.delta() && dependents.isEmpty()) {
+        store(team, cfg, full(cfg, raw), copy, raw.length);
+        return;
+      }
+      writeWithDeltas(team, cfg, copy, raw, dependents);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Grava o arquivo do time e atualiza manifest/memória. Chamado com o lock do time. */
+  private void store(TeamIdentity team, CacheConfig cfg, byte[] bytes, JsonArray players, long weight)
+      throws IOException {
+    Path p = resolvePath(team, cfg.format(), cfg.layout());
+    writeAtomic(p, bytes);
+
+    // Cópia no outro formato/layout ficou velha: a leitura não pode cair nela.
+    for (CacheLayout l : CacheLayout.values()) {
+      for (CacheFormat f : CacheFormat.values()) {
+        if (f != cfg.format() || l != cfg.layout()) Files.deleteIfExists(resolvePath(team, f, l));
+      }
+    }
+
+    BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+    manifest.recordWrite(team, cfg.format(), cfg.layout(), bytes, attrs.lastModifiedTime().toMillis());
+    memory.put(team, players, attrs.lastModifiedTime().toMillis(), attrs.size(), weight);
+  }
+
+  private static byte[] full(CacheConfig cfg, byte[] raw) {
+    return cfg.compressed() ? CacheCompression.deflate(raw) : raw;
+  }
+
+  // -------------------------
+  // Deltas entre temporadas
+  // -------------------------
+
+  /** Temporadas do time gravadas como delta contra {@code team.season()}. */
+  private List<CacheManifest.Entry> dependentsOf(TeamIdentity team) throws IOException {
+    manifest.catchUp();
+    List<CacheManifest.Entry> out = new ArrayList<>();
+    for (CacheManifest.Entry e : manifest.entries(team.country(), team.teamId())) {
+      if (e.baseSeason() == team.season() && e.season() != team.season()) out.add(e);
+    }
+    return out;
+  }
+
+  /**
+   * Escrita com deltas (ou de uma temporada que é base de deltas). Ordem
+   * segura contra crash: dependentes inteiros -> a temporada -> dependentes
+   * de volta a delta; em qualquer ponto cada arquivo se reconstrói certo.
+   */
+  private void writeWithDeltas(TeamIdentity team, CacheConfig cfg, JsonArray players, byte[] raw,
+                               List<CacheManifest.Entry> dependents) throws IOException {
+    Map<TeamIdentity, JsonArray> deps = new LinkedHashMap<>();
+    for (CacheManifest.Entry e : dependents) {
+      TeamIdentity dt = seasonOf(team, e.season());
+      deps.put(dt, readLocked(dt));
+    }
+    for (Map.Entry<TeamIdentity, JsonArray> d : deps.entrySet()) {
+      byte[] dr = encodeRaw(d.getValue(), cfg.format());
+      store(d.getKey(), cfg, full(cfg, dr), d.getValue().deepCopy(), dr.length);
+    }
+
+    byte[] fullBytes = full(cfg, raw);
+    int base = deps.isEmpty() && cfg.delta() ? chooseBase(team, cfg) : -1;
+    byte[] bytes = base < 0 ? null : deltaOrNull(team, cfg, base, players, fullBytes);
+    store(team, cfg, bytes != null ? bytes : fullBytes, players, raw.length);
+
+    if (!cfg.delta()) return;
+    for (Map.Entry<TeamIdentity, JsonArray> d : deps.entrySet()) {
+      byte[] dr = encodeRaw(d.getValue(), cfg.format());
+      byte[] db = deltaOrNull(d.getKey(), cfg, team.season(), d.getValue(), full(cfg, dr));
+      if (db != null) store(d.getKey(), cfg, db, d.getValue(), dr.length);
+    }
+  }
+
+  /**
+   * Temporada inteira mais próxima (empate: a mais nova) com menos de
+   * rebaseEvery deltas; -1 se não houver — aí esta vai inteira (rebase).
+   */
+  private int chooseBase(TeamIdentity team, CacheConfig cfg) {
+    List<CacheManifest.Entry> all = manifest.entries(team.country(), team.teamId());
+    int best = -1;
+    for (CacheManifest.Entry e : all) {
+      if (e.season() == team.season() || e.baseSeason() >= 0) continue;
+      int dist = Math.abs(e.season() - team.season());
+      int bestDist = best < 0 ? Integer.MAX_VALUE : Math.abs(best - team.season());
+      if (dist < bestDist || (dist == bestDist && e.season() > best)) best = e.season();
+    }
+    if (best < 0) return -1;
+
+    int deltas = 0;
+    for (CacheManifest.Entry e : all) {
+      if (e.baseSeason() == best && e.season() != team.season()) deltas++;
+    }
+    return deltas < cfg.rebaseEvery() ? best : -1;
+  }
+
+  /** Delta contra a base, se ficar com no máximo metade do arquivo inteiro. */
+  private byte[] deltaOrNull(TeamIdentity team, CacheConfig cfg, int base, JsonArray players, byte[] fullBytes)
+      throws IOException {
+    JsonArray basePlayers;
+    try {
+      basePlayers = readLocked(seasonOf(team, base), true);
+    } catch (IOException e) {
+      return null;                 // base sumiu ou é delta: grava inteira
+    }
+    byte[] bytes = encode(SeasonDelta.diff(base, basePlayers, players), cfg);
+    return bytes.length * 2 <= fullBytes.length ? bytes : null;
+  }
+
+  private static TeamIdentity seasonOf(TeamIdentity team, int season) {
+    return new TeamIdentity(team.country(), team.teamId(), season, team.slug());
+  }
+
+  // -------------------------
+  // Carga (RosterLoader)
+  // -------------------------
+
+  /**
+   * Elenco do cache, carregando pelo RosterLoader se não houver nenhum em
+   * disco. Se houver mas estiver velho (TTL), devolve o velho e agenda uma
+   * atualização em background; falha na atualização só é logada.
+   */
+  public JsonArray getOrLoad(TeamIdentity team) throws IOException {
+    if (loader == null) throw new IllegalStateException("TransfermarktCache sem RosterLoader");
+
+    Path key = entryKey(team).resolve(String.valueOf(team.season()));
+    Path p = locate(team);
+    if (p != null) {
+      try {
+        JsonArray cached = read(team);
+        if (isStale(team, p)) {
+          staleServed.increment();
+          refreshAsync(team, key);
+        }
+        return cached;
+      } catch (NoSuchFileException e) {
+        // apagado entre o locate e a leitura: carrega abaixo
+      }
+    }
+
+    CompletableFuture<JsonArray> mine = new CompletableFuture<>();
+    CompletableFuture<JsonArray> running = inFlight.putIfAbsent(key, mine);
+    if (running == null) {
+      load(team, key, mine);
+      running = mine;
+    } else {
+      coalesced.increment();
+    }
+    return await(running).deepCopy();
+  }
+
+  /**
+   * Para quem não precisa do elenco agora (ex.: resultado já memorizado): se
+   * houver loader e o que está em disco estiver velho, agenda a atualização.
+   */
+  public void refreshIfStale(TeamIdentity team) {
+    if (loader == null) return;
+    Path p = locate(team);
+    if (p != null && isStale(team, p)) {
+      staleServed.increment();
+      refreshAsync(team, entryKey(team).resolve(String.valueOf(team.season())));
+    }
+  }
+
+  public boolean hasLoader() {
+    return loader != null;
+  }
+
+  /**
+   * Para as threads de atualização em background (as já agendadas terminam) e
+   * fecha o manifest. A instância não deve ser usada depois; o cache shared()
+   * vive enquanto o processo.
+   */
+  @Override
+  public void close() throws IOException {
+    if (refresher != null) refresher.shutdown();
+    manifest.close();
+  }
+
+  /** Idade pela hora de escrita do manifest; sem entrada, pelo mtime do arquivo. */
+  private boolean isStale(TeamIdentity team, Path p) {
+    if (ttl.isZero() || ttl.isNegative()) return false;
+    CacheManifest.Entry e = manifest.get(team);
+    try {
+      long written = e != null ? e.writeTime() : Files.getLastModifiedTime(p).toMillis();
+      return System.currentTimeMillis() - written > ttl.toMillis();
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  private void refreshAsync(TeamIdentity team, Path key) {
+    CompletableFuture<JsonArray> mine = new CompletableFuture<>();
+    if (inFlight.putIfAbsent(key, mine) != null) return;   // já tem alguém atualizando
+    try {
+      refresher.execute(() -> load(team, key, mine));
+    } catch (RuntimeException e) {
+      inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+    }
+  }
+
+  /** Roda o loader, grava e libera quem estava esperando o mesmo time. */
+  private void load(TeamIdentity team, Path key, CompletableFuture<JsonArray> result) {
+    try {
+      loads.increment();
+      JsonArray players = loader.load(team);
+      if (players == null) throw new IOException("RosterLoader devolveu null para " + team);
+      write(team, players);
+      result.complete(players);
+    } catch (Throwable t) {
+      loadFailures.increment();
+      System.err.println("[tmCache] falha carregando " + team + ": " + t.getMessage());
+      result.completeExceptionally(t);
+    } finally {
+      inFlight.remove(key, result);
+    }
+  }
+
+  private static JsonArray await(CompletableFuture<JsonArray> f) throws IOException {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("carga do elenco interrompida");
+    } catch (ExecutionException e) {
+      Throwable c = e.getCause();
+      if (c instanceof IOException io) throw io;
+      if (c instanceof RuntimeException re) throw re;
+      if (c instanceof Error err) throw err;
+      throw new IOException(c);
+    }
+  }
+
+  /** Cargas, cargas agrupadas (single-flight), velhos servidos e falhas. */
+  public Map<String, Object> loaderStats() {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("loads", loads.sum());
+    out.put("coalesced", coalesced.sum());
+    out.put("staleServed", staleServed.sum());
+    out.put("failures", loadFailures.sum());
+    out.put("inFlight", inFlight.size());
+    out.put("ttlSeconds", ttl.toSeconds());
+    return out;
+  }
+
+  // -------------------------
+  // Escrita atômica + locks
+  // -------------------------
+
+  /**
+   * Grava num temporário do mesmo diretório, fsync, e troca com ATOMIC_MOVE
+   * (rename: quem lê vê o arquivo antigo inteiro ou o novo inteiro). O fsync
+   * do diretório é best-effort — nem todo sistema de arquivos deixa abrir.
+   */
+  static void writeAtomic(Path target, byte[] bytes) throws IOException {
+    Path dir = target.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path tmp = Files.createTempFile(dir, target.getFileName() + ".", ".tmp");
+    try {
+      try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) ch.write(buf);
+        ch.force(true);
+      }
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+
+    try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+      d.force(true);
+    } catch (IOException ignored) {
+      // rename já feito; só a durabilidade do diretório fica por conta do SO
+    }
+  }
+
+  private Path entryKey(TeamIdentity team) {
+    Objects.requireNonNull(team, "team");
+    return entryKey(baseDir, team.country(), team.teamId());
+  }
+
+  /**
+   * Chave do lock: <country>/<teamId>, a mesma em qualquer temporada, formato
+   * e layout (deltas leem a base; a migração troca formato/layout sob o lock).
+   */
+  static Path entryKey(Path baseDir, String country, int teamId) {
+    return CacheLayout.inside(baseDir, baseDir.resolve(country).resolve(String.valueOf(teamId)));
+  }
+
+  /**
+   * Lock listrado de um time (ver entryKey; CacheMigrator usa o mesmo). Já foi
+   * por <country>/<teamId>/<season>; com deltas uma temporada depende de outra:
+   * ler um delta lê a base, e regravar uma base rematerializa e refaz os deltas
+   * que dependem dela. Com lock por temporada, uma escrita na base podia
+   * correr com a leitura de um delta ou com a escrita de outra temporada que a
+   * escolhe como base. O preço: temporadas do mesmo time não leem enquanto
+   * uma é escrita, e as escritas delas são serializadas. Times diferentes
+   * continuam em paralelo.
+   */
+  static ReentrantReadWriteLock lockFor(Path entryKey) {
+    int h = entryKey.toAbsolutePath().normalize().toString().hashCode();
+    h ^= (h >>> 16);
+    return LOCKS[h & (STRIPES - 1)];
+  }
+
+  /**
+   * Lock do time entre processos: FileChannel.lock exclusivo em
+   * {@code <baseDir>/.locks/<country>/<teamId>.lock}, para o CacheMigrator
+   * rodando à parte não trocar um arquivo que o servidor está regravando (e
+   * vice-versa). Só escritas e a troca da migração passam aqui; a leitura já
+   * tolera o rename. Fechar o canal solta o lock. Pegar já com o lockFor de
+   * escrita: na mesma JVM o FileChannel.lock não é reentrante, e o lock
+   * listrado garante um dono por vez.
+   */
+  static FileChannel lockAcrossProcesses(Path baseDir, String country, int teamId) throws IOException {
+    Path locks = baseDir.resolve(LOCK_DIR);
+    Path f = CacheLayout.inside(locks, locks.resolve(country).resolve(teamId + ".lock"));
+    Files.createDirectories(f.getParent());
+    FileChannel ch = FileChannel.open(f, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      ch.lock();
+      return ch;
+    } catch (IOException | RuntimeException e) {
+      ch.close();
+      throw e;
+    }
+  }
+
+  // -------------------------
+  // Formatos
+  // -------------------------
+
+  /** Caminho registrado no manifest (sem stat) ou, se não houver, procura no disco. */
+  private Path locate(TeamIdentity team) {
+    CacheManifest.Entry e = manifest.get(team);
+    if (e != null) return resolvePath(team, e.format(), e.layout());
+    return locateOnDisk(team);
+  }
+
+  /**
+   * Arquivo do formato configurado ou, na falta dele, de outro formato; no
+   * layout configurado primeiro e depois no outro (árvore em migração).
+   */
+  private Path locateOnDisk(TeamIdentity team) {
+    Path p = resolvePath(team);
+    if (Files.isRegularFile(p)) return p;
+    for (CacheLayout l : CacheLayout.values()) {
+      for (CacheFormat f : CacheFormat.values()) {
+        if (f == config.format() && l == config.layout()) continue;
+        Path alt = resolvePath(team, f, l);
+        if (Files.isRegularFile(alt)) return alt;
+      }
+    }
+    return null;
+  }
+
+  private static BasicFileAttributes statOrNull(Path p) throws IOException {
+    try {
+      return Files.readAttributes(p, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  static CacheFormat formatOf(Path p) {
+    String name = p.getFileName().toString();
+    for (CacheFormat f : CacheFormat.values()) {
+      if (name.endsWith(f.extension())) return f;
+    }
+    throw new IllegalArgumentException("arquivo de cache sem formato conhecido: " + p);
+  }
+
+  static JsonArray decode(Path p) throws IOException {
+    return decode(p, formatOf(p));
+  }
+
+  /** Elenco inteiro do arquivo; um delta não se resolve sem a base (ver readDelta). */
+  static JsonArray decode(Path p, CacheFormat format) throws IOException {
+    Decoded d = decodeStored(p, format);
+    if (d.delta() != null) throw new IOException(p + ": delta contra " + d.delta().baseSeason() + "; leia pelo cache");
+    return d.players();
+  }
+
+  /** Delta gravado no arquivo, ou null se for uma temporada inteira. */
+  static SeasonDelta readDelta(Path p) throws IOException {
+    return readDelta(p, formatOf(p));
+  }
+
+  static SeasonDelta readDelta(Path p, CacheFormat format) throws IOException {
+    return decodeStored(p, format).delta();
+  }
+
+  /** Elenco ou delta + tamanho do payload descomprimido (peso na camada em memória). */
+  private record Decoded(JsonArray players, SeasonDelta delta, long rawBytes) {}
+
+  /**
+   * Arquivo mapeado; delta e compressão detectados pelo magic (independe do
+   * cache.properties, então diretórios mistos continuam legíveis).
+   */
+  private static Decoded decodeStored(Path p, CacheFormat format) throws IOException {
+    try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+      ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+      int base = -1;
+      try {
+        if (SeasonDelta.isDelta(buf)) base = SeasonDelta.readHeader(buf);
+      } catch (IllegalArgumentException e) {
+        throw new IOException(p + ": " + e.getMessage(), e);
+      }
+      if (CacheCompression.isCompressed(buf)) {
+        buf = ByteBuffer.wrap(CacheCompression.inflate(buf));
+      }
+      long raw = buf.remaining();
+
+      JsonArray arr;
+      if (format == CacheFormat.JSON) {
+        arr = GSON.fromJson(StandardCharsets.UTF_8.decode(buf).toString(), JsonArray.class);
+      } else {
+        try {
+          arr = RosterCodec.decode(buf);
+        } catch (IllegalArgumentException e) {
+          throw new IOException(p + ": " + e.getMessage(), e);
+        }
+      }
+      return base < 0 ? new Decoded(arr, null, raw) : new Decoded(null, new SeasonDelta(base, arr), raw);
+    }
+  }
+
+  static boolean isCompressed(Path p) throws IOException {
+    try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+      ByteBuffer head = ByteBuffer.allocate(SeasonDelta.HEADER + CacheCompression.HEADER);
+      while (head.hasRemaining() && ch.read(head) >= 0) {}
+      head.flip();
+      return isCompressed(head);
+    }
+  }
+
+  static boolean isDelta(Path p) throws IOException {
+    try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+      ByteBuffer head = ByteBuffer.allocate(SeasonDelta.HEADER);
+      while (head.hasRemaining() && ch.read(head) >= 0) {}
+      head.flip();
+      return SeasonDelta.isDelta(head);
+    }
+  }
+
+  static boolean isCompressed(byte[] bytes) {
+    return isCompressed(ByteBuffer.wrap(bytes));
+  }
+
+  /** Compressão do payload, depois do cabeçalho de delta se houver. */
+  private static boolean isCompressed(ByteBuffer buf) {
+    if (SeasonDelta.isDelta(buf)) buf = buf.slice(buf.position() + SeasonDelta.HEADER, buf.remaining() - SeasonDelta.HEADER);
+    return CacheCompression.isCompressed(buf);
+  }
+
+  static byte[] encode(JsonArray players, CacheConfig config) {
+    byte[] raw = encodeRaw(players, config.format());
+    return config.compressed() ? CacheCompression.deflate(raw) : raw;
+  }
+
+  static byte[] encode(SeasonDelta delta, CacheConfig config) {
+    byte[] raw;
+    if (config.format() == CacheFormat.BIN) {
+      raw = RosterCodec.encode(delta.ops());
+    } else {
+      raw = DELTA_GSON.toJson(delta.ops()).getBytes(StandardCharsets.UTF_8);
+    }
+    return SeasonDelta.withHeader(delta.baseSeason(), config.compressed() ? CacheCompression.deflate(raw) : raw);
+  }
+
+  private static byte[] encodeRaw(JsonArray players, CacheFormat format) {
+    if (format == CacheFormat.BIN) return RosterCodec.encode(players);
+    StringWriter w = new StringWriter();
+    GSON.toJson(players, w);
+    return w.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Acertos/falhas/evicções e ocupação da camada em memória. */
+  public Map<String, Object> memoryStats() {
+    return memory.stats();
+  }
+
+  // -------------------------
+  // Camada em memória
+  // -------------------------
+
+  /**
+   * LRU por acesso (LinkedHashMap accessOrder) limitada pela soma dos pesos.
+   * As seções críticas só mexem no mapa; parse e I/O ficam fora do lock.
+   */
+  private static final class MemoryTier {
+
+    // size/mtime validam contra o disco; weight é o que conta no orçamento
+    private record Entry(JsonArray players, long mtime, long size, long weight) {}
+
+    private final long maxBytes;
+    // country/teamId/season: o slug não entra no caminho do arquivo, então também não na chave
+    private final LinkedHashMap<String, Entry> lru = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    MemoryTier(long maxBytes) {
+      this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    synchronized JsonArray get(TeamIdentity team, long mtime, long size) {
+      Entry e = lru.get(key(team));
+      if (e == null) {
+        misses.increment();
+        return null;
+      }
+      if (e.mtime() != mtime || e.size() != size) {
+        lru.remove(key(team));
+        bytes -= e.weight();
+        stale.increment();
+        misses.increment();
+        return null;
+      }
+      hits.increment();
+      return e.players();
+    }
+
+    synchronized void put(TeamIdentity team, JsonArray players, long mtime, long size, long weight) {
+      // Um time maior que o orçamento inteiro não entra (evitaria esvaziar a LRU).
+      if (weight > maxBytes) return;
+
+      String k = key(team);
+      Entry prev = lru.put(k, new Entry(players, mtime, size, weight));
+      if (prev != null) bytes -= prev.weight();
+      bytes += weight;
+
+      Iterator<Map.Entry<String, Entry>> it = lru.entrySet().iterator();
+      while (bytes > maxBytes && it.hasNext()) {
+        Map.Entry<String, Entry> eldest = it.next();
+        if (eldest.getKey().equals(k)) continue;
+        bytes -= eldest.getValue().weight();
+        it.remove();
+        evictions.increment();
+      }
+    }
+
+    /** Jogadores do elenco em memória, ou -1. */
+    synchronized int sizeOf(TeamIdentity team) {
+      Entry e = lru.get(key(team));
+      return e == null ? -1 : e.players().size();
+    }
+
+    synchronized long weightOf(TeamIdentity team) {
+      Entry e = lru.get(key(team));
+      return e == null ? 0 : e.weight();
+    }
+
+    synchronized void invalidate(TeamIdentity team) {
+      Entry e = lru.remove(key(team));
+      if (e != null) bytes -= e.weight();
+    }
+
+    private static String key(TeamIdentity team) {
+      return team.country() + "/" + team.teamId() + "/" + team.season();
+    }
+
+    synchronized Map<String, Object> stats() {
+      Map<String, Object> out = new LinkedHashMap<>();
+      out.put("entries", lru.size());
+      out.put("bytes", bytes);
+      out.put("maxBytes", maxBytes);
+      out.put("hits", hits.sum());
+      out.put("misses", misses.sum());
+      out.put("stale", stale.sum());
+      out.put("evictions", evictions.sum());
+      return out;
     }
   }
-}
\ No newline at end of file
+}
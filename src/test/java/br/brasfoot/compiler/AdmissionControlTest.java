@@ -0,0 +1,109 @@
+package br.brasfoot.compiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+  @Test
+  void admit_shouldGrantImmediatelyWithinBudget() {
+    AdmissionControl.Budget b = new AdmissionControl.Budget(4, 100, 1.0, 0);
+    AdmissionControl.Permit p = b.admit(new AdmissionControl.Cost(2, 10));
+    assertNotNull(p);
+    assertEquals(2, b.snapshot().get("cpuUnitsInUse"));
+    assertEquals(10, b.snapshot().get("memoryMbInUse"));
+    assertEquals(0L, b.snapshot().get("queued"));
+
+    p.close();
+    assertEquals(0, b.snapshot().get("cpuUnitsInUse"));
+    assertEquals(0, b.snapshot().get("memoryMbInUse"));
+  }
+
+  @Test
+  void admit_shouldWaitUntilAnotherPermitIsReleased() throws Exception {
+    AdmissionControl.Budget b = new AdmissionControl.Budget(4, 100, 1.0, 10_000);
+    AdmissionControl.Permit full = b.admit(new AdmissionControl.Cost(4, 10));
+    assertNotNull(full);
+
+    CompletableFuture<AdmissionControl.Permit> waiting =
+        CompletableFuture.supplyAsync(() -> b.admit(new AdmissionControl.Cost(1, 1)));
+    Thread.sleep(100);
+    assertFalse(waiting.isDone(), "sem CPU livre a requisição deveria esperar");
+
+    full.close();
+    AdmissionControl.Permit p = waiting.get(5, TimeUnit.SECONDS);
+    assertNotNull(p);
+    assertEquals(1L, b.snapshot().get("queued"));
+    p.close();
+  }
+
+  @Test
+  void admit_shouldReturnNullAfterQueueTimeout() {
+    AdmissionControl.Budget b = new AdmissionControl.Budget(2, 100, 1.0, 50);
+    AdmissionControl.Permit full = b.admit(new AdmissionControl.Cost(2, 1));
+    assertNotNull(full);
+
+    long t0 = System.nanoTime();
+    assertNull(b.admit(new AdmissionControl.Cost(1, 1)));
+    assertTrue(System.nanoTime() - t0 >= TimeUnit.MILLISECONDS.toNanos(50), "deveria esperar o prazo antes de desistir");
+    assertEquals(1L, b.snapshot().get("rejected"));
+    // null vira 503 no CompileController.overloaded(), com este Retry-After
+    assertEquals(1L, b.retryAfterSeconds());
+    assertTrue(AdmissionControl.retryAfterSeconds() >= 1);
+    full.close();
+  }
+
+  @Test
+  void estimate_shouldCapOversizedRequestSoItRunsAloneAndLeavesRoom() {
+    AdmissionControl.Budget b = new AdmissionControl.Budget(8, 100, 0.75, 0);
+    AdmissionControl.Cost huge = b.estimate(512L * 1024 * 1024, 100_000, 1);
+    assertEquals(new AdmissionControl.Cost(6, 75), huge);
+
+    AdmissionControl.Permit big = b.admit(huge);
+    assertNotNull(big, "maior que o orçamento inteiro, mas limitado a maxShare: roda sozinho");
+    assertNull(b.admit(huge), "um segundo upload enorme não cabe ao mesmo tempo");
+
+    AdmissionControl.Permit small = b.admit(b.estimate(0, 40, 1));
+    assertNotNull(small, "um elenco comum ainda cabe no que sobrou");
+    small.close();
+    big.close();
+  }
+
+  @Test
+  void permit_closeTwiceShouldReleaseOnlyOnce() {
+    AdmissionControl.Budget b = new AdmissionControl.Budget(2, 10, 1.0, 0);
+    AdmissionControl.Permit p = b.admit(new AdmissionControl.Cost(1, 1));
+    AdmissionControl.Permit q = b.admit(new AdmissionControl.Cost(1, 1));
+    assertNotNull(p);
+    assertNotNull(q);
+
+    p.close();
+    p.close();
+    assertEquals(1, b.snapshot().get("cpuUnitsInUse"));
+    assertNull(b.admit(new AdmissionControl.Cost(2, 1)), "o segundo close não pode devolver a permissão de q");
+    q.close();
+    assertEquals(0, b.snapshot().get("cpuUnitsInUse"));
+  }
+
+  @Test
+  void countPlayers_shouldCountPositionKeysWithoutParsing() throws Exception {
+    byte[] json;
+    try (InputStream in = AdmissionControlTest.class.getResourceAsStream("/palmeiras.json")) {
+      assertNotNull(in);
+      json = in.readAllBytes();
+    }
+    assertEquals(32, AdmissionControl.countPlayers(json));
+
+    assertEquals(0, AdmissionControl.countPlayers("[]".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(2, AdmissionControl.countPlayers(
+        "[{\"position\":\"Goleiro\"},{\"name\":\"x\",\"position\":7}]".getBytes(StandardCharsets.UTF_8)));
+    // só a chave exata, com aspas: o valor "positions" não conta
+    assertEquals(1, AdmissionControl.countPlayers("{\"position\":\"positions\"}".getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -1,6 +1,8 @@
 package br.brasfoot.compiler;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assumptions;
@@ -11,6 +13,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -98,6 +101,216 @@ public class BanCompilerRegressionTest {
     assertTrue(juniorsSize > 0, "Juniores devem ser preservados do template (não podem ficar vazios)");
   }
 
+  /**
+   * compileVariants: cada variante sai igual à compilação isolada com os mesmos
+   * parâmetros (tamanho dos elencos e titulares marcados), mesmo com os
+   * jogadores compartilhados entre as variantes.
+   */
+  @Test
+  void variants_shouldMatchSingleCompiles() throws Exception {
+    Path templateBan = resolveTemplateBanOrSkip();
+    Path fixtureJson = resolveFixtureJsonOrSkip();
+
+    JsonElement root;
+    try (var r = Files.newBufferedReader(fixtureJson)) {
+      root = JsonParser.parseReader(r);
+    }
+
+    List<BanCompiler.Variant> variants = List.of(
+        new BanCompiler.Variant(tempOutBan("variant-std"), null, null, false),
+        new BanCompiler.Variant(tempOutBan("variant-comp"), null, null, true),
+        new BanCompiler.Variant(tempOutBan("variant-std2"), null, null, false));
+    List<BanCompiler.CompileResult> results = BanCompiler.compileVariants(root, "variants", templateBan, variants);
+    assertEquals(variants.size(), results.size());
+
+    for (int i = 0; i < variants.size(); i++) {
+      BanCompiler.Variant v = variants.get(i);
+      Path single = tempOutBan("single-" + i);
+      BanCompiler.CompileResult expected = BanCompiler.compileTeamJsonToBan(
+          fixtureJson, templateBan, single, null, null, v.competitive());
+      assertEquals(expected, results.get(i), "resultado da variante " + i);
+
+      Object seniorV = getFirstFieldValueByCandidates(readTeamFromBanViaReflection(v.outBan()), "l", "jogadores");
+      Object seniorS = getFirstFieldValueByCandidates(readTeamFromBanViaReflection(single), "l", "jogadores");
+      assertEquals(sizeOfCollectionLike(seniorS), sizeOfCollectionLike(seniorV), "elenco da variante " + i);
+      assertEquals(titulares(seniorS), titulares(seniorV), "titulares da variante " + i);
+    }
+  }
+
+  /**
+   * RosterSessions: depois de um modify, a recompilação só recalcula o jogador
+   * alterado, e o elenco segue o patch (remove/add).
+   */
+  @Test
+  void session_shouldRecomputeOnlyEditedPlayers() throws Exception {
+    Path fixtureJson = resolveFixtureJsonOrSkip();
+
+    JsonElement root;
+    try (var r = Files.newBufferedReader(fixtureJson)) {
+      root = JsonParser.parseReader(r);
+    }
+    JsonArray players = root.getAsJsonArray();
+    JsonObject first = players.get(0).getAsJsonObject();
+    JsonObject last = players.get(players.size() - 1).getAsJsonObject();
+    Assumptions.assumeTrue(first.has("id") && last.has("id"), "fixture sem id de jogador");
+
+    RosterSessions.Session s = RosterSessions.create(root.deepCopy(), null, "session-test");
+    try {
+      s.compileBan(null, null, false);
+      long computed = traitsComputed();
+
+      s.compileBan(null, null, false);
+      assertEquals(computed, traitsComputed(), "recompilação sem edição não deve recalcular ninguém");
+
+      JsonArray ops = JsonParser.parseString("[{\"op\":\"modify\",\"id\":" + first.get("id")
+          + ",\"player\":{\"age\":33}}]").getAsJsonArray();
+      assertEquals(1, s.patch(ops).modified());
+      s.compileBan(null, null, false);
+      assertEquals(computed + 1, traitsComputed(), "só o jogador alterado é recalculado");
+
+      JsonObject added = last.deepCopy();
+      added.addProperty("id", 999999999);
+      ops = JsonParser.parseString("[{\"op\":\"remove\",\"id\":" + last.get("id") + "},"
+          + "{\"op\":\"add\",\"player\":" + added + "}]").getAsJsonArray();
+      RosterSessions.PatchResult r = s.patch(ops);
+      assertEquals(players.size(), r.players());
+
+      Path outBan = tempOutBan("session");
+      Files.write(outBan, s.compileBan(null, null, false));
+      Object senior = getFirstFieldValueByCandidates(readTeamFromBanViaReflection(outBan), "l", "jogadores");
+      assertEquals(players.size(), sizeOfCollectionLike(senior));
+
+      ops = JsonParser.parseString("[{\"op\":\"remove\",\"id\":-1}]").getAsJsonArray();
+      JsonArray badOps = ops;
+      assertThrows(IllegalArgumentException.class, () -> s.patch(badOps));
+      assertEquals(players.size(), s.size(), "patch inválido não altera o elenco");
+    } finally {
+      RosterSessions.remove(s.id());
+    }
+  }
+
+  /**
+   * Seleção preguiçosa: só quem vai para o .ban passa pelo HeuristicsEngine.
+   * A saída tem que ser a mesma de completar todo mundo no laço (como antes),
+   * campo a campo, nos dois modos — com posições genéricas (que só se
+   * resolvem com as características), juniores além do corte de 20 e jogadores
+   * sem pé suficientes para disparar o rebalanceamento de lado, que consulta a
+   * posição final.
+   */
+  @Test
+  void lazyCharacteristics_shouldMatchEagerCompile() throws Exception {
+    JsonArray roster = new JsonArray();
+    String[] neutral = {"Zagueiro", "Volante", "Meia Central", "Centroavante", "Meia Ofensivo"};
+    String[] generic = {"Defensor", "Meio-Campo", "Atacante"};
+    int n = 0;
+    // 50 seniors: 45 destros explícitos (4 goleiros) + 5 genéricos sem pé
+    for (int k = 0; k < 45; k++, n++) {
+      String pos = (k % 11 == 0) ? "Goleiro" : neutral[k % neutral.length];
+      roster.add(syntheticPlayer(n, pos, "direito", 1.70 + (k % 25) / 100.0, 3000 - k * 60, null));
+    }
+    for (int k = 0; k < 5; k++, n++) {
+      // Defensor sem jogos cai no sorteio por altura do HeuristicsEngine: baixo tende a lateral
+      roster.add(k < 3
+          ? syntheticPlayer(n, "Defensor", null, 1.70 + k * 0.02, 0, null)
+          : syntheticPlayer(n, generic[k - 2], null, 1.80, 2500 - k * 400, null));
+    }
+    // 25 juniores (só 20 entram): 22 destros explícitos (2 goleiros com poucos minutos) + 3 genéricos sem pé
+    for (int k = 0; k < 22; k++, n++) {
+      String pos = (k >= 20) ? "Goleiro" : neutral[k % neutral.length];
+      roster.add(syntheticPlayer(n, pos, "direito", 1.75, k >= 20 ? 10 : 2000 - k * 80, "junior"));
+    }
+    for (int k = 0; k < 3; k++, n++) {
+      roster.add(syntheticPlayer(n, generic[k], null, 1.72, k == 0 ? 1900 : 5, "junior"));
+    }
+
+    List<List<String>> eager = compileForComparison(roster, true);
+    List<List<String>> lazy = compileForComparison(roster, false);
+    assertEquals(eager.size(), lazy.size());
+    for (int i = 0; i < eager.size(); i++) {
+      assertEquals(eager.get(i), lazy.get(i), "saída " + i + " (l/m padrão, l/m competitivo)");
+    }
+
+    // o caso coberto de fato: genérico resolvido fora do padrão do mapping, e
+    // todo sem-pé em posição neutra rebalanceado para o esquerdo
+    List<String> seniors = lazy.get(0);
+    assertEquals(50, seniors.size());
+    assertEquals(20, lazy.get(1).size());
+    assertEquals(25, lazy.get(2).size());
+    boolean genericBecameFullback = false;
+    for (int k = 45; k < 50; k++) {
+      String p = seniors.get(k);
+      if (p.contains(" e=1 ")) genericBecameFullback = true;
+      if (p.contains(" e=2 ") || p.contains(" e=3 ") || p.contains(" e=4 ")) {
+        assertTrue(p.contains(" i=1 "), "sem pé em posição neutra deveria ir para o esquerdo: " + p);
+      }
+    }
+    assertTrue(genericBecameFullback, "nenhum Defensor virou lateral; a fixture não cobre a posição final");
+  }
+
+  /** [l padrão, m padrão, l competitivo, m competitivo], cada jogador como "campo=valor ...". */
+  private List<List<String>> compileForComparison(JsonArray roster, boolean eager) throws Exception {
+    List<BanCompiler.Variant> variants = List.of(
+        new BanCompiler.Variant(tempOutBan("lazy-std"), null, null, false),
+        new BanCompiler.Variant(tempOutBan("lazy-comp"), null, null, true));
+    BanCompiler.eagerCharacteristics = eager;
+    BanCompiler.sideSeed = 42L;
+    try {
+      BanCompiler.compileVariants(roster.deepCopy(), "lazy-vs-eager", (Path) null, variants);
+    } finally {
+      BanCompiler.eagerCharacteristics = false;
+      BanCompiler.sideSeed = null;
+    }
+
+    List<List<String>> out = new java.util.ArrayList<>();
+    for (BanCompiler.Variant v : variants) {
+      Object team = readTeamFromBanViaReflection(v.outBan());
+      for (String field : new String[]{"l", "m"}) {
+        List<String> players = new java.util.ArrayList<>();
+        for (Object p : (Collection<?>) getFirstFieldValueByCandidates(team, field)) players.add(describe(p));
+        out.add(players);
+      }
+    }
+    return out;
+  }
+
+  private static String describe(Object player) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (Field f : getAllFieldsRecursive(player.getClass())) {
+      if (java.lang.reflect.Modifier.isStatic(f.getModifiers())) continue;
+      f.setAccessible(true);
+      sb.append(' ').append(f.getName()).append('=').append(f.get(player));
+    }
+    return sb.append(' ').toString();
+  }
+
+  private static JsonObject syntheticPlayer(int id, String position, String foot, double height, int minutes, String category) {
+    JsonObject p = new JsonObject();
+    p.addProperty("id", 900000 + id);
+    p.addProperty("name", "Jogador " + id);
+    p.addProperty("age", category == null ? 20 + id % 14 : 16 + id % 4);
+    p.addProperty("height", Math.round(height * 100) / 100.0);
+    p.addProperty("nationality", "Brasil");
+    if (foot != null) p.addProperty("foot", foot);
+    if (category != null) p.addProperty("category", category);
+    JsonObject pos = new JsonObject();
+    pos.addProperty("primary", position);
+    pos.add("secondary", new JsonArray());
+    p.add("position", pos);
+    JsonObject stats = new JsonObject();
+    stats.addProperty("matchesRelated", minutes / 60);
+    stats.addProperty("matchesPlayed", minutes / 80);
+    stats.addProperty("goals", id % 7);
+    stats.addProperty("assists", id % 5);
+    stats.addProperty("minutesPlayed", minutes * 3);
+    stats.addProperty("minutesPlayedSeason", minutes);
+    p.add("stats", stats);
+    return p;
+  }
+
+  private static long traitsComputed() {
+    return ((Number) RosterSessions.snapshot().get("traitsComputed")).longValue();
+  }
+
   // ----------------------------------------------------------------------
   // Helpers: Fixture / Template / Temp
   // ----------------------------------------------------------------------
@@ -224,6 +437,18 @@ public class BanCompilerRegressionTest {
     return v.getClass().isArray();
   }
 
+  /** Quantos jogadores com f=1 (titular). */
+  private static int titulares(Object players) throws Exception {
+    int n = 0;
+    for (Object p : (Collection<?>) players) {
+      Field f = findFieldRecursive(p.getClass(), "f");
+      assertNotNull(f, "Campo f (titular) ausente em " + p.getClass().getName());
+      f.setAccessible(true);
+      if (Integer.valueOf(1).equals(f.get(p))) n++;
+    }
+    return n;
+  }
+
   private static int sizeOfCollectionLike(Object v) {
     assertNotNull(v, "Campo esperado está null (não deveria)");
     if (v instanceof Collection<?> col) return col.size();
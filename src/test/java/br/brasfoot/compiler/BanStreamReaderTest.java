@@ -0,0 +1,77 @@
+package br.brasfoot.compiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BanStreamReaderTest {
+
+  /**
+   * O leitor streaming deve enxergar exatamente o que a desserialização enxerga
+   * nos templates versionados (campos do time + jogadores na mesma ordem).
+   */
+  @Test
+  void bundledTemplates_shouldMatchObjectInputStream() throws Exception {
+    for (String name : List.of("palmeiras", "gremio", "arsenal")) {
+      byte[] bytes = resource("/templates/" + name + ".ban");
+
+      BanStreamReader.TeamData data = BanStreamReader.readTeam(bytes);
+      e.t team;
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+        team = (e.t) ois.readObject();
+      }
+
+      assertEquals(team.id, data.field("id"), name + ": id");
+      assertEquals(team.vid, data.field("vid"), name + ": vid");
+      assertEquals(team.f, data.field("f"), name + ": estadio");
+      assertEquals(team.l.size(), data.players().size(), name + ": qtd jogadores");
+      for (int i = 0; i < team.l.size(); i++) {
+        e.g p = team.l.get(i);
+        Map<String, Object> row = data.players().get(i);
+        assertEquals(p.a, row.get("a"), name + ": nome #" + i);
+        assertEquals(p.e, row.get("e"), name + ": posicao #" + i);
+        assertEquals(p.g, row.get("g"), name + ": cr1 #" + i);
+        assertEquals(p.h, row.get("h"), name + ": cr2 #" + i);
+      }
+    }
+  }
+
+  @Test
+  void unexpectedClass_shouldBeRejectedBeforeObjectCreation() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(new HashMap<String, Integer>());
+    }
+
+    SafeDeserialization.clearLastRejected();
+    assertThrows(InvalidClassException.class, () -> BanStreamReader.validateTemplate(bos.toByteArray()));
+    assertEquals("java.util.HashMap", SafeDeserialization.getLastRejected());
+  }
+
+  @Test
+  void truncatedStream_shouldBeReportedAsCorrupted() throws Exception {
+    byte[] bytes = resource("/templates/gremio.ban");
+    byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+
+    assertThrows(StreamCorruptedException.class, () -> BanStreamReader.validateTemplate(truncated));
+  }
+
+  private static byte[] resource(String path) throws Exception {
+    try (InputStream in = BanStreamReaderTest.class.getResourceAsStream(path)) {
+      assertNotNull(in, "resource ausente: " + path);
+      return in.readAllBytes();
+    }
+  }
+}
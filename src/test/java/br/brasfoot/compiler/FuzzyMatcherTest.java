@@ -0,0 +1,80 @@
+package br.brasfoot.compiler;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyMatcherTest {
+
+  @Test
+  void countries_shouldResolveTyposAndVariants() {
+    Integer brasil = NationalityUtil.resolveCountryId("Brasil");
+    Integer civ = NationalityUtil.resolveCountryId("Costa do Marfim");
+    assertNotNull(brasil);
+    assertNotNull(civ);
+
+    assertEquals(brasil, NationalityUtil.resolveCountryId("Brazill"));
+    assertEquals(civ, NationalityUtil.resolveCountryId("Costa do Marfin"));
+    assertEquals(civ, NationalityUtil.resolveCountryId("Elfenbeinkuste"));
+    assertEquals(civ, NationalityUtil.resolveCountryId("Cote dIvoire"));
+  }
+
+  @Test
+  void countries_shouldNotGuessOnJunk() {
+    assertNull(NationalityUtil.resolveCountryId("Atlântida"));
+    assertNull(NationalityUtil.resolveCountryId("xyz"));
+    assertTrue(FuzzyMatcher.snapshot().toString().contains("paises:xyz"));
+  }
+
+  @Test
+  void compute_shouldRejectNearTieBetweenDifferentIds() {
+    FuzzyMatcher f = FuzzyMatcher.of("teste", new String[] {"guinea", "guinea bissau"}, new int[] {1, 2}, 0.75);
+    // 0,80 (Guinea-Bissau) contra 0,78 (Guinea): os dois passam do limiar, nenhum com folga
+    assertEquals(Integer.valueOf(-1), f.compute("Guinea Bis"));
+    // 0,89 contra 0,70: vencedor claro
+    assertEquals(Integer.valueOf(2), f.compute("Guinea Bisau"));
+
+    // quase empate entre chaves do mesmo id não é dúvida
+    FuzzyMatcher sameId = FuzzyMatcher.of("teste", new String[] {"guinea", "guinea bissau"}, new int[] {2, 2}, 0.75);
+    assertEquals(Integer.valueOf(2), sameId.compute("Guinea Bis"));
+  }
+
+  @Test
+  void positions_unrecognizedLabelsShouldUseMappingBeforeFallback() {
+    assertEquals(1, PositionUtil.mapPositionFromMapping("Linksverteidiger"));
+    assertEquals(1, PositionUtil.mapPositionFromMapping("Left-Back"));
+    assertEquals(2, PositionUtil.mapPositionFromMapping("Centre-Back"));
+    assertEquals(3, PositionUtil.mapPositionFromMapping("Zentrales Mittelfeld"));
+    assertEquals(3, PositionUtil.mapPositionFromMapping("Defensive Midfeld"));
+    assertEquals(4, PositionUtil.mapPositionFromMapping("Hängende Spitze"));
+    // sem candidato: fallback histórico
+    assertEquals(4, PositionUtil.mapPositionFromMapping("foo"));
+  }
+
+  /**
+   * Benchmark rápido (não roda por padrão):
+   *   mvn test -Dtest=FuzzyMatcherTest -Dbrasfoot.bench=true
+   */
+  @Test
+  void benchmark_uncachedLookup() {
+    Assumptions.assumeTrue(Boolean.getBoolean("brasfoot.bench"), "-Dbrasfoot.bench=true para rodar");
+
+    FuzzyMatcher f = Mappings.get().countries().fuzzyMatcher(0.75);
+    List<String> queries = List.of("Brazill", "Argentinia", "Kolumbien", "Portugall", "Costa do Marfin", "Atlantida");
+    int rounds = 50_000;
+    long sink = 0;
+    for (int w = 0; w < 3; w++) {               // aquecimento do JIT
+      for (int r = 0; r < rounds; r++) for (String q : queries) sink += f.compute(q);
+    }
+
+    long t0 = System.nanoTime();
+    for (int r = 0; r < rounds; r++) for (String q : queries) sink += f.compute(q);
+    long elapsed = System.nanoTime() - t0;
+
+    System.out.printf("fuzzy: %.2f us/consulta sem memo (sink=%d)%n",
+        elapsed / 1000.0 / ((long) rounds * queries.size()), sink);
+  }
+}
@@ -0,0 +1,90 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappingsTest {
+
+  /** MappingTables (gerada no build) precisa bater com o carregamento do mapping.json. */
+  @Test
+  void generatedTables_shouldMatchJson() {
+    Mappings gen = Mappings.fromGeneratedTables();
+    Mappings json = Mappings.fromJson(Mappings.bundledJson(), "test");
+
+    String[][] probes = {
+        MappingTables.POSITION_KEYS, MappingTables.SIDE_KEYS,
+        MappingTables.CHARACTERISTIC_KEYS, MappingTables.COUNTRY_KEYS
+    };
+    for (String[] keys : probes) {
+      for (String k : keys) {
+        assertEquals(json.positionIdByNameOrAlias(k), gen.positionIdByNameOrAlias(k), "pos " + k);
+        assertEquals(json.sideIdByNameOrAlias(k), gen.sideIdByNameOrAlias(k), "side " + k);
+        assertEquals(json.characteristicIdByNameOrAlias(k), gen.characteristicIdByNameOrAlias(k), "car " + k);
+        assertEquals(json.countryIdByNameOrAlias(k), gen.countryIdByNameOrAlias(k), "pais " + k);
+      }
+    }
+    assertEquals(json.countries().size(), gen.countries().size());
+  }
+
+  @Test
+  void lookup_shouldNormalizeCaseSpacesAndAccents() {
+    Mappings m = Mappings.get();
+    assertEquals(m.positionIdByNameOrAlias("goleiro"), m.positionIdByNameOrAlias("  GOLEIRO "));
+    assertEquals(m.countryIdByNameOrAlias("Brasil"), m.countryIdByNameOrAlias(" brasil"));
+    assertEquals(m.countryIdByNameOrAlias("Colombia"), m.countryIdByNameOrAlias("Colômbia"));
+    assertNull(m.positionIdByNameOrAlias("   "));
+    assertNull(m.countryIdByNameOrAlias("Atlântida"));
+  }
+
+  @Test
+  void reload_shouldSwapSnapshotAndChangeCompileDigestOnlyForUsedSections() throws Exception {
+    Mappings before = Mappings.get();
+    Path tmp = Files.createTempFile("mapping-", ".json");
+    try {
+      JsonObject root = Mappings.bundledJson();
+
+      // Conteúdo igual: mantém snapshot e versão
+      Files.writeString(tmp, root.toString(), StandardCharsets.UTF_8);
+      assertSame(before, Mappings.reload(tmp));
+
+      // Alias novo de lado: troca snapshot, mas não afeta a compilação
+      JsonArray sideAliases = root.getAsJsonArray("lados").get(0).getAsJsonObject().getAsJsonArray("aliases");
+      sideAliases.add("lado-teste");
+      Files.writeString(tmp, root.toString(), StandardCharsets.UTF_8);
+      Mappings side = Mappings.reload(tmp);
+      assertNotSame(before, side);
+      assertTrue(side.version() > before.version());
+      assertEquals(before.compileDigest(), side.compileDigest());
+      assertNotNull(Mappings.get().sideIdByNameOrAlias("Lado-Teste"));
+
+      // Alias novo de posição: consultado no fallback do PositionUtil
+      JsonArray posAliases = root.getAsJsonArray("posicoes").get(0).getAsJsonObject().getAsJsonArray("aliases");
+      posAliases.add("arqueiro-teste");
+      Files.writeString(tmp, root.toString(), StandardCharsets.UTF_8);
+      Mappings pos = Mappings.reload(tmp);
+      assertNotEquals(side.compileDigest(), pos.compileDigest());
+      assertEquals(0, PositionUtil.mapPositionFromMapping("Arqueiro-Teste"));
+
+      // Alias novo de país: muda o digest usado nas chaves do cache
+      JsonObject country = root.getAsJsonArray("paises").get(0).getAsJsonObject();
+      country.getAsJsonArray("aliases").add("Terra de Teste");
+      Files.writeString(tmp, root.toString(), StandardCharsets.UTF_8);
+      Mappings nat = Mappings.reload(tmp);
+      assertNotEquals(pos.compileDigest(), nat.compileDigest());
+      assertEquals(Integer.valueOf(country.get("id").getAsInt()), NationalityUtil.resolveCountryId("terra de teste"));
+
+      // Snapshot antigo segue íntegro para quem já o capturou
+      assertNull(before.countryIdByNameOrAlias("Terra de Teste"));
+    } finally {
+      Mappings.install(Mappings.fromGeneratedTables());
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionClassifierTest {
+
+  /** Rótulos do Transfermarkt (pt/en/de) que o scraper entrega, além dos aliases do mapping.json. */
+  private static final List<String> TRANSFERMARKT_LABELS = List.of(
+      "Goleiro", "Lateral Esq.", "Lateral Dir.", "Zagueiro", "Volante", "Meia Central",
+      "Meia Ofensivo", "Meia Atacante", "Meia-Atacante", "Meia Esquerda", "Meia Direita",
+      "Ponta Esquerda", "Ponta Direita", "Centroavante", "Segundo Atacante", "Atacante Recuado",
+      "Defensor", "Defensores", "Meio-Campo", "Meio Campo", "Atacante", "Ala Esquerdo", "Ala Direito",
+      "Extremo Esquerdo", "Extremo Direito", "Lateral Defensivo", "Volante Defensivo",
+      "Goalkeeper", "Left-Back", "Right-Back", "Centre-Back", "Defender", "Defenders", "Midfield",
+      "Defensive Midfield", "Central Midfield", "Attacking Midfield", "Left Midfield", "Right Midfield",
+      "Left Winger", "Right Winger", "Left Wing", "Right Wing", "Centre-Forward", "Second Striker",
+      "Forward", "Forwards", "LW", "RW", "Wing Back", "CB",
+      "Torwart", "Abwehr", "Verteidiger", "Innenverteidiger", "Außenverteidiger", "Linker Verteidiger",
+      "Mittelfeld", "Defensives Mittelfeld", "Mittelstürmer", "Stürmer", "Sturmer", "Linksaußen",
+      "Camisa 9", "", " ");
+
+  /**
+   * Cada campo da Classification contra o código que ele substituiu
+   * (PositionUtil, SideResolver, BanCompiler.positionImpliesSide e os
+   * detectores de perfil do HeuristicsEngine, copiados em {@link Legacy}),
+   * para todos os rótulos conhecidos e variações de caixa, espaços e acentos.
+   */
+  @Test
+  void classify_shouldMatchLegacyChecksForEveryKnownLabel() throws Exception {
+    Set<String> labels = new LinkedHashSet<>(TRANSFERMARKT_LABELS);
+    labels.addAll(mappingPositionAliases());
+
+    int checked = 0;
+    for (String label : labels) {
+      for (String v : variants(label)) {
+        PositionClassifier.Classification c = PositionClassifier.classify(v);
+        String ctx = "\"" + v + "\"";
+        assertEquals(Legacy.mapPosition(v), c.group(), ctx + " group");
+        assertEquals(Legacy.detectGenericCategory(v), c.genericCategory(), ctx + " genericCategory");
+        assertEquals(Legacy.positionImpliesSide(v), c.impliesSide(), ctx + " impliesSide");
+        assertEquals(Legacy.inferSideHint(v), c.sideHint(), ctx + " sideHint (PositionUtil)");
+        assertEquals(Legacy.sideResolverSide(v), sideOf(c.sideHint()), ctx + " lado (SideResolver)");
+
+        String low = v.toLowerCase(Locale.ROOT);
+        assertEquals(low.contains("volante"), c.volante(), ctx + " volante");
+        assertEquals(low.contains("zagueiro"), c.zagueiro(), ctx + " zagueiro");
+        assertEquals(low.contains("meia"), c.meia(), ctx + " meia");
+        assertEquals(low.contains("meia atacante"), c.meiaAtacante(), ctx + " meiaAtacante");
+        assertEquals(low.contains("meia ofensivo") || low.contains("meia atacante"), c.meiaOfensivo(), ctx + " meiaOfensivo");
+        assertEquals(low.contains("meia central"), c.meiaCentral(), ctx + " meiaCentral");
+        assertEquals(Legacy.isMeiaEsquerdaDireita(v), c.meiaLateral(), ctx + " meiaLateral");
+        assertEquals(low.contains("centroavante") || low.contains("9"), c.centroavante(), ctx + " centroavante");
+        assertEquals(low.contains("ponta"), c.ponta(), ctx + " ponta");
+        assertEquals(low.contains("extremo"), c.extremo(), ctx + " extremo");
+        assertEquals(low.contains("atacante"), c.atacante(), ctx + " atacante");
+        assertEquals(low.contains("segundo"), c.segundo(), ctx + " segundo");
+        assertEquals(low.contains("segundo atacante") || low.contains("recu"), c.segundoAtacante(), ctx + " segundoAtacante");
+        assertEquals(low.contains("ala"), c.ala(), ctx + " ala");
+
+        // o fallback pelo mapping.json só vale para o que os tokens não reconhecem
+        if (!c.unrecognized()) assertEquals(Legacy.mapPosition(v), PositionUtil.mapPositionFromMapping(v), ctx);
+        checked++;
+      }
+    }
+    assertTrue(checked > 500, "poucos rótulos verificados: " + checked);
+  }
+
+  @Test
+  void classify_shouldReturnSameInstanceForRepeatedLabel() {
+    PositionClassifier.Classification a = PositionClassifier.classify("Lateral Esq.");
+    assertSame(a, PositionClassifier.classify("Lateral Esq."));
+    // rótulos diferentes com a mesma classificação compartilham o objeto internado
+    assertSame(PositionClassifier.classify("Volante"), PositionClassifier.classify("VOLANTE"));
+    assertSame(PositionClassifier.classify(null), PositionClassifier.classify(""));
+  }
+
+  private static Set<String> mappingPositionAliases() throws Exception {
+    Set<String> out = new LinkedHashSet<>();
+    try (InputStream in = PositionClassifierTest.class.getResourceAsStream("/mapping.json")) {
+      assertNotNull(in, "mapping.json fora do classpath de teste");
+      JsonObject root = JsonParser.parseReader(new InputStreamReader(in, StandardCharsets.UTF_8)).getAsJsonObject();
+      for (JsonElement pos : root.getAsJsonArray("posicoes")) {
+        for (JsonElement alias : pos.getAsJsonObject().getAsJsonArray("aliases")) out.add(alias.getAsString());
+      }
+    }
+    assertFalse(out.isEmpty(), "mapping.json sem aliases de posição");
+    return out;
+  }
+
+  /** O rótulo, caixa alta/baixa/título, com espaços nas pontas e com/sem acentos. */
+  private static Set<String> variants(String label) {
+    Set<String> out = new LinkedHashSet<>();
+    for (String base : List.of(label, TextUtil.deaccent(label))) {
+      out.add(base);
+      out.add(base.toLowerCase(Locale.ROOT));
+      out.add(base.toUpperCase(Locale.ROOT));
+      out.add(title(base));
+      out.add(" " + base);
+      out.add(base + " ");
+      out.add("  " + base.toLowerCase(Locale.ROOT) + "\t");
+    }
+    return out;
+  }
+
+  private static String title(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    boolean start = true;
+    for (char ch : s.toCharArray()) {
+      sb.append(start ? Character.toUpperCase(ch) : Character.toLowerCase(ch));
+      start = ch == ' ' || ch == '-';
+    }
+    return sb.toString();
+  }
+
+  private static int sideOf(String hint) {
+    return "L".equals(hint) ? 1 : "R".equals(hint) ? 0 : -1;
+  }
+
+  /** Verificações como estavam antes do PositionClassifier. */
+  private static final class Legacy {
+
+    /** PositionUtil.mapPositionFromMapping (só tokens; fallback 4). */
+    static int mapPosition(String posText) {
+      String t = posText == null ? "" : posText.toLowerCase(Locale.ROOT);
+      if (t.contains("gole") || t.contains("goalkeeper") || t.contains("torwart")) return 0;
+      if (t.contains("zague") || t.contains("innenverteidiger") || t.equals("cb")) return 2;
+      if (t.contains("lateral") || t.contains("ala") || t.contains("außenverteidiger") || t.contains("wing back")) return 1;
+      if (t.contains("volante")) return 3;
+      if (t.contains("meia")) return 3;
+      if (t.contains("ponta")) return 4;
+      if (t.contains("centroavante")) return 4;
+      if (t.contains("mittelstürmer")) return 4;
+      if (t.contains("centre-forward")) return 4;
+      if (t.contains("seg") && t.contains("atac")) return 4;
+      if (t.contains("atac")) return 4;
+      if (t.equals("defensor") || t.equals("defensores") || t.equals("defender")
+          || t.equals("defenders") || t.equals("abwehr") || t.equals("verteidiger")) return 2;
+      if (t.equals("meio-campo") || t.equals("meio campo") || t.equals("midfield") || t.equals("mittelfeld")) return 3;
+      if (t.equals("forward") || t.equals("forwards") || t.equals("stürmer") || t.equals("sturmer")) return 4;
+      return 4;
+    }
+
+    /** PositionUtil.inferSideHint. */
+    static String inferSideHint(String pos) {
+      String t = pos == null ? "" : pos.toLowerCase(Locale.ROOT);
+      if (t.contains("esq")) return "L";
+      if (t.contains("dir")) return "R";
+      return null;
+    }
+
+    /** SideResolver, passo do posText: 1 esquerdo, 0 direito, -1 segue adiante. */
+    static int sideResolverSide(String posText) {
+      String p = posText == null ? "" : posText.toLowerCase(Locale.ROOT).trim();
+      if (p.contains("esq")) return 1;
+      if (p.contains("dir")) return 0;
+      return -1;
+    }
+
+    /** BanCompiler.positionImpliesSide. */
+    static boolean positionImpliesSide(String posText) {
+      if (posText == null || posText.isBlank()) return false;
+      String norm = java.text.Normalizer.normalize(posText, java.text.Normalizer.Form.NFD);
+      StringBuilder sb = new StringBuilder();
+      for (char c : norm.toCharArray()) {
+        int type = Character.getType(c);
+        if (type != Character.NON_SPACING_MARK
+            && type != Character.COMBINING_SPACING_MARK
+            && type != Character.ENCLOSING_MARK) {
+          sb.append(c);
+        }
+      }
+      String p = sb.toString().toLowerCase(Locale.ROOT);
+      if (p.contains("lateral esq") || p.contains("lateral dir")) return true;
+      if (p.contains("ponta esq") || p.contains("ponta dir")) return true;
+      if (p.contains("left wing") || p.contains("right wing")) return true;
+      if (p.contains("meia esq") || p.contains("meia dir")) return true;
+      if (p.contains("ala esq") || p.contains("ala dir")) return true;
+      if (p.contains("extremo esq") || p.contains("extremo dir")) return true;
+      if (p.equals("lw") || p.equals("rw")) return true;
+      if (p.startsWith("lw ") || p.startsWith("rw ")) return true;
+      if (p.endsWith(" lw") || p.endsWith(" rw")) return true;
+      return false;
+    }
+
+    /** HeuristicsEngine.detectGenericCategory. */
+    static String detectGenericCategory(String posText) {
+      if (posText == null || posText.isBlank()) return null;
+      String p = posText.toLowerCase(Locale.ROOT).trim();
+
+      boolean isDefToken = p.equals("defensor") || p.equals("defensores")
+          || p.equals("defender") || p.equals("defenders")
+          || p.equals("abwehr") || p.equals("verteidiger");
+      boolean hasSpecificDef = p.contains("lateral") || p.contains("zagueiro")
+          || p.contains("ala") || p.contains("back") || p.contains("cb")
+          || p.contains("innenverteidiger") || p.contains("außenverteidiger");
+      if (isDefToken && !hasSpecificDef) return "GENERIC_DEF";
+
+      boolean isMidToken = p.equals("meio-campo") || p.equals("meio campo")
+          || p.equals("midfield") || p.equals("mittelfeld");
+      boolean hasSpecificMid = p.contains("volante") || p.contains("central")
+          || p.contains("ofensivo") || p.contains("esquerda") || p.contains("direita")
+          || p.contains("defensivo") || p.contains("attacking") || p.contains("defensive");
+      if (isMidToken && !hasSpecificMid) return "GENERIC_MID";
+
+      boolean isAtkToken = p.equals("atacante") || p.equals("forward")
+          || p.equals("stürmer") || p.equals("sturmer") || p.equals("forwards");
+      boolean hasSpecificAtk = p.contains("ponta") || p.contains("centroavante")
+          || p.contains("segundo") || p.contains("extremo") || p.contains("winger")
+          || p.contains("centre-forward") || p.contains("mittelstürmer");
+      if (isAtkToken && !hasSpecificAtk) return "GENERIC_ATK";
+
+      return null;
+    }
+
+    /** HeuristicsEngine.isMeiaEsquerdaDireita (sobre o posText). */
+    static boolean isMeiaEsquerdaDireita(String posText) {
+      String p = posText.toLowerCase(Locale.ROOT);
+      return p.contains("meia esquerda")
+          || p.contains("meia direita")
+          || p.contains("left mid")
+          || p.contains("right mid")
+          || p.contains("left midfielder")
+          || p.contains("right midfielder")
+          || p.equals("meia esq")
+          || p.equals("meia dir");
+    }
+  }
+}
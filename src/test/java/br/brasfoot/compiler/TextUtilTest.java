@@ -0,0 +1,78 @@
+package br.brasfoot.compiler;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextUtilTest {
+
+  private static final List<String> SAMPLES = List.of(
+      "Brasil", "Argentina", "Inglaterra", "Estados Unidos",
+      "Colômbia", "Côte d'Ivoire", "São Tomé e Príncipe", "Curaçao",
+      "Türkiye", "Österreich", "España", "Perú", "Islândia", "Polônia",
+      "Lateral Esq.", "Meia-atacante", "Centroavante", "Goleiro"
+  );
+
+  /** A tabela precisa reproduzir o caminho Normalizer+regex caractere a caractere. */
+  @Test
+  void deaccent_shouldMatchNormalizerForEveryLatinChar() {
+    for (char c = 0; c <= 0x24F; c++) {
+      String s = "a" + c + "b";
+      assertEquals(TextUtil.deaccentSlow(s), TextUtil.deaccent(s), "U+" + Integer.toHexString(c));
+    }
+  }
+
+  @Test
+  void deaccent_shouldFallBackOutsideTable() {
+    // marca combinante solta (U+0301) e alfabeto fora da tabela
+    for (String s : List.of("José", "Ελλάδα", "Россия", "日本", "Ça̧")) {
+      assertEquals(TextUtil.deaccentSlow(s), TextUtil.deaccent(s), s);
+    }
+  }
+
+  @Test
+  void deaccent_asciiShouldReturnSameInstance() {
+    String s = "Estados Unidos";
+    assertSame(s, TextUtil.deaccent(s));
+  }
+
+  /**
+   * Benchmark rápido (não roda por padrão):
+   *   mvn test -Dtest=TextUtilTest -Dbrasfoot.bench=true
+   */
+  @Test
+  void benchmark_tableVsNormalizer() {
+    Assumptions.assumeTrue(Boolean.getBoolean("brasfoot.bench"), "-Dbrasfoot.bench=true para rodar");
+
+    int rounds = 200_000;
+    long sink = 0;
+    for (int w = 0; w < 3; w++) {               // aquecimento do JIT
+      sink += run(rounds, false) + run(rounds, true);
+    }
+
+    long t0 = System.nanoTime();
+    sink += run(rounds, true);
+    long slow = System.nanoTime() - t0;
+
+    t0 = System.nanoTime();
+    sink += run(rounds, false);
+    long fast = System.nanoTime() - t0;
+
+    long calls = (long) rounds * SAMPLES.size();
+    System.out.printf("deaccent: normalizer=%.1f ns/op table=%.1f ns/op speedup=%.1fx (sink=%d)%n",
+        (double) slow / calls, (double) fast / calls, (double) slow / fast, sink);
+  }
+
+  private static long run(int rounds, boolean slow) {
+    long acc = 0;
+    for (int r = 0; r < rounds; r++) {
+      for (String s : SAMPLES) {
+        acc += (slow ? TextUtil.deaccentSlow(s) : TextUtil.deaccent(s)).length();
+      }
+    }
+    return acc;
+  }
+}
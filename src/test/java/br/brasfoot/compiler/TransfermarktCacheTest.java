@@ -0,0 +1,615 @@
+package br.brasfoot.compiler;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransfermarktCacheTest {
+
+  private static final TeamIdentity PALMEIRAS = new TeamIdentity("br", 1023, 2025, "se-palmeiras-sao-paulo");
+  private static final TeamIdentity SANTOS = new TeamIdentity("br", 221, 2025, "fc-santos");
+
+  @Test
+  void repeatedReads_shouldComeFromMemory() throws Exception {
+    TransfermarktCache cache = new TransfermarktCache(Files.createTempDirectory("tm-"));
+    cache.write(PALMEIRAS, roster("Weverton", "Gustavo Gómez"));
+
+    JsonArray a = cache.read(PALMEIRAS);
+    a.remove(0);                                  // cópia: não afeta a memória
+    JsonArray b = cache.read(PALMEIRAS);
+
+    assertEquals(2, b.size());
+    Map<String, Object> s = cache.memoryStats();
+    assertEquals(2L, s.get("hits"));
+    assertEquals(0L, s.get("misses"));
+  }
+
+  @Test
+  void memoryTier_shouldHitRegardlessOfSlug() throws Exception {
+    TransfermarktCache cache = new TransfermarktCache(Files.createTempDirectory("tm-"));
+    cache.write(PALMEIRAS, roster("Weverton"));
+    cache.read(PALMEIRAS);
+
+    // mesmo arquivo (country/teamId/season), slug de outra URL do Transfermarkt
+    cache.read(new TeamIdentity("br", 1023, 2025, "palmeiras"));
+    Map<String, Object> s = cache.memoryStats();
+    assertEquals(1, s.get("entries"));
+    assertEquals(2L, s.get("hits"));
+    assertEquals(0L, s.get("misses"));
+  }
+
+  @Test
+  void externalEdit_shouldBeSeenOnNextRead() throws Exception {
+    TransfermarktCache cache = new TransfermarktCache(Files.createTempDirectory("tm-"));
+    cache.write(PALMEIRAS, roster("Weverton"));
+    assertEquals(1, cache.read(PALMEIRAS).size());
+
+    Path p = cache.resolveJsonPath(PALMEIRAS);
+    Files.writeString(p, roster("Weverton", "Raphael Veiga").toString(), StandardCharsets.UTF_8);
+    Files.setLastModifiedTime(p, FileTime.fromMillis(Files.getLastModifiedTime(p).toMillis() + 2000));
+
+    assertEquals(2, cache.read(PALMEIRAS).size());
+    assertEquals(1L, cache.memoryStats().get("stale"));
+  }
+
+  @Test
+  void budget_shouldEvictLeastRecentlyUsed() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache writer = new TransfermarktCache(dir, 0);
+    writer.write(PALMEIRAS, roster("Weverton", "Gustavo Gómez", "Raphael Veiga"));
+    writer.write(SANTOS, roster("Neymar", "Gabriel Brazão", "Zé Rafael"));
+    long one = Files.size(writer.resolveJsonPath(PALMEIRAS));
+
+    TransfermarktCache cache = new TransfermarktCache(dir, one + one / 2);
+    cache.read(PALMEIRAS);
+    cache.read(SANTOS);                           // não cabem os dois: sai Palmeiras
+    cache.read(PALMEIRAS);
+
+    Map<String, Object> s = cache.memoryStats();
+    assertEquals(1, s.get("entries"));
+    assertEquals(3L, s.get("misses"));
+    assertTrue((Long) s.get("evictions") >= 2);
+  }
+
+  @Test
+  void country_shouldNeverLeaveCacheRoot() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    Path outside = Files.createTempDirectory("tm-outside-");
+    for (String bad : List.of("../secret", "..", ".", "br/../..", "br/x", "br\\x", outside.toString(), "/etc", "a..b", "BR", "")) {
+      assertThrows(IllegalArgumentException.class, () -> new TeamIdentity(bad, 7, 2020, "team"), bad);
+    }
+    assertEquals("www.transfermarkt.co.uk",
+        TeamIdentity.fromTeamUrl("https://www.transfermarkt.co.uk/x/startseite/verein/7/saison_id/2020").country());
+
+    // quem monta o caminho sem TeamIdentity também não sai da raiz
+    for (String bad : List.of("../secret", outside.toString())) {
+      assertThrows(IllegalArgumentException.class,
+          () -> CacheLayout.FLAT.resolve(dir, bad, 7, 2020, CacheFormat.JSON), bad);
+      assertThrows(IllegalArgumentException.class,
+          () -> CacheLayout.SHARDED.resolve(dir, bad, 7, 2020, CacheFormat.JSON), bad);
+      assertThrows(IllegalArgumentException.class, () -> TransfermarktCache.entryKey(dir, bad, 7), bad);
+      assertThrows(IllegalArgumentException.class, () -> TransfermarktCache.lockAcrossProcesses(dir, bad, 7), bad);
+    }
+    assertFalse(Files.exists(outside.resolve(TransfermarktCache.LOCK_DIR)));
+
+    // diretório com nome que não é country não entra no índice nem na migração
+    assertNull(CacheLayout.parse(Path.of("..", "7", "2020.json")));
+    assertNull(CacheLayout.parse(Path.of("BR", "7", "2020.json")));
+    assertNotNull(CacheLayout.parse(Path.of("br", "7", "2020.json")));
+  }
+
+  @Test
+  void binaryFormat_shouldRoundTripRealRoster() throws Exception {
+    JsonArray real = palmeiras();
+    Path dir = Files.createTempDirectory("tm-");
+    new CacheConfig(CacheFormat.BIN, CacheCompression.Mode.NONE).store(dir);
+
+    TransfermarktCache cache = new TransfermarktCache(dir, 0);
+    cache.write(PALMEIRAS, real);
+
+    Path bin = cache.resolvePath(PALMEIRAS);
+    assertTrue(bin.toString().endsWith(".bin"));
+    assertEquals(real, cache.read(PALMEIRAS));
+    // "2.04" continua "2.04" (números não inteiros guardam o texto original)
+    assertEquals(real.toString(), cache.read(PALMEIRAS).toString());
+  }
+
+  @Test
+  void binaryFormat_shouldKeepDecimalsExact() {
+    JsonArray in = JsonParser.parseString(
+        "[{\"height\":1.85,\"minutesPerGoal\":123.456789012345678901,\"fee\":12345678901234567890.5}]")
+        .getAsJsonArray();
+    JsonArray back = RosterCodec.decode(ByteBuffer.wrap(RosterCodec.encode(in)));
+    JsonObject out = back.get(0).getAsJsonObject();
+
+    assertEquals(in, back);
+    assertEquals("1.85", out.get("height").getAsString());
+    assertEquals(new BigDecimal("123.456789012345678901"), out.get("minutesPerGoal").getAsBigDecimal());
+    assertEquals(new BigDecimal("12345678901234567890.5"), out.get("fee").getAsBigDecimal());
+  }
+
+  @Test
+  void migrate_shouldConvertTreeBothWays() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache json = new TransfermarktCache(dir, 0);
+    json.write(PALMEIRAS, palmeiras());
+    json.write(SANTOS, roster("Neymar"));
+    JsonArray real = json.read(PALMEIRAS);        // como ficou no JSON (sem campos null)
+    long jsonBytes = Files.size(json.resolveJsonPath(PALMEIRAS));
+
+    CacheMigrator.Summary toBin = CacheMigrator.migrate(dir, CacheFormat.BIN);
+    assertEquals(2, toBin.converted());
+    assertEquals(0, toBin.failed());
+    assertFalse(Files.exists(json.resolveJsonPath(PALMEIRAS)));
+
+    TransfermarktCache bin = new TransfermarktCache(dir, 0);
+    assertEquals(CacheFormat.BIN, bin.config().format());
+    assertTrue(Files.size(bin.resolvePath(PALMEIRAS)) * 3 < jsonBytes);
+    assertEquals(real, bin.read(PALMEIRAS));
+
+    CacheMigrator.Summary back = CacheMigrator.migrate(dir, CacheFormat.JSON);
+    assertEquals(2, back.converted());
+    assertEquals(real, new TransfermarktCache(dir, 0).read(PALMEIRAS));
+  }
+
+  @Test
+  void migrate_shouldBeFollowedByRunningServer() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache server = new TransfermarktCache(dir, 0);
+    server.write(PALMEIRAS, roster("Weverton"));
+    server.write(SANTOS, roster("Neymar"));
+
+    CacheMigrator.Summary s = CacheMigrator.migrate(dir, CacheFormat.BIN);   // outro processo, servidor no ar
+    assertEquals(2, s.converted());
+    CacheManifest.Entry migrated = CacheManifest.open(dir).get(PALMEIRAS);
+    assertEquals(CacheFormat.BIN, migrated.format(), "troca registrada no manifest sem rebuild");
+
+    server.write(SANTOS, roster("Neymar", "Zé Rafael"));   // escrita seguinte relê cache.properties
+    assertEquals(CacheFormat.BIN, server.config().format());
+    assertTrue(Files.isRegularFile(server.resolvePath(SANTOS)));
+    assertFalse(Files.exists(server.resolveJsonPath(SANTOS)), "escrita voltou ao formato antigo");
+    assertEquals(CacheFormat.BIN, CacheManifest.open(dir).get(SANTOS).format());
+    assertEquals(2, new TransfermarktCache(dir, 0).read(SANTOS).size());
+    server.close();
+  }
+
+  @Test
+  void deflate_shouldRoundTripWithDictionaryVersionInHeader() throws Exception {
+    JsonArray real = palmeiras();
+    for (CacheFormat f : CacheFormat.values()) {
+      Path dir = Files.createTempDirectory("tm-");
+      new CacheConfig(f, CacheCompression.Mode.DEFLATE).store(dir);
+      TransfermarktCache cache = new TransfermarktCache(dir, 0);
+      cache.write(SANTOS, roster("Neymar"));
+      cache.write(PALMEIRAS, f == CacheFormat.BIN ? real : roundTripJson(real));
+
+      byte[] file = Files.readAllBytes(cache.resolvePath(PALMEIRAS));
+      assertEquals('B', file[0]);
+      assertEquals('Z', file[3]);
+      assertEquals(CacheCompression.CURRENT_DICT, file[4]);
+
+      JsonArray expected = f == CacheFormat.BIN ? real : roundTripJson(real);
+      assertEquals(expected, cache.read(PALMEIRAS));
+      assertEquals(1, cache.read(SANTOS).size());
+    }
+  }
+
+  @Test
+  void concurrentWritesAndReads_shouldNeverSeePartialFile() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    JsonArray small = roster("Weverton");
+    JsonArray big = palmeiras();
+    new TransfermarktCache(dir, 0).write(PALMEIRAS, small);
+
+    ExecutorService pool = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<?>> jobs = new ArrayList<>();
+      for (int t = 0; t < 2; t++) {
+        jobs.add(pool.submit(() -> {
+          TransfermarktCache w = new TransfermarktCache(dir, 0);
+          for (int i = 0; i < 40; i++) w.write(PALMEIRAS, i % 2 == 0 ? big : small);
+          return null;
+        }));
+      }
+      for (int t = 0; t < 4; t++) {
+        jobs.add(pool.submit(() -> {
+          TransfermarktCache r = new TransfermarktCache(dir, 0);
+          for (int i = 0; i < 200; i++) {
+            int n = r.read(PALMEIRAS).size();
+            assertTrue(n == small.size() || n == big.size(), "leitura parcial: " + n);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> f : jobs) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // nenhum temporário sobrando ao lado do arquivo
+    try (Stream<Path> files = Files.list(cacheDirOf(dir))) {
+      assertEquals(1L, files.count());
+    }
+  }
+
+  @Test
+  void getOrLoad_shouldCollapseConcurrentLoadsOfSameTeam() throws Exception {
+    Path source = Files.createTempDirectory("tm-src-");
+    DirectoryRosterLoader dirLoader = new DirectoryRosterLoader(source);
+    Files.createDirectories(dirLoader.pathOf(PALMEIRAS).getParent());
+    Files.writeString(dirLoader.pathOf(PALMEIRAS), roster("Weverton", "Raphael Veiga").toString());
+
+    AtomicInteger calls = new AtomicInteger();
+    RosterLoader slow = team -> {
+      calls.incrementAndGet();
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return dirLoader.load(team);
+    };
+    try (TransfermarktCache cache = new TransfermarktCache(Files.createTempDirectory("tm-"), 0, slow, Duration.ZERO)) {
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      try {
+        List<Future<JsonArray>> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) jobs.add(pool.submit(() -> cache.getOrLoad(PALMEIRAS)));
+        for (Future<JsonArray> f : jobs) assertEquals(2, f.get().size());
+      } finally {
+        pool.shutdownNow();
+      }
+      assertEquals(1, calls.get());
+      assertTrue(cache.exists(PALMEIRAS));
+      assertThrows(NoSuchFileException.class, () -> cache.getOrLoad(SANTOS));
+    }
+  }
+
+  @Test
+  void getOrLoad_shouldServeStaleAndRefreshInBackground() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    RosterLoader upstream = team -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return roster("Weverton", "Raphael Veiga", "Estêvão");
+    };
+    Path dir = Files.createTempDirectory("tm-");
+    try (TransfermarktCache cache = new TransfermarktCache(dir, 0, upstream, Duration.ofMillis(300))) {
+      cache.write(PALMEIRAS, roster("Weverton"));
+      Thread.sleep(400);
+
+      assertEquals(1, cache.getOrLoad(PALMEIRAS).size());   // não espera o upstream
+      assertEquals(1, cache.getOrLoad(PALMEIRAS).size());
+      release.countDown();
+
+      long deadline = System.currentTimeMillis() + 5000;
+      while (cache.read(PALMEIRAS).size() != 3 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+      assertEquals(3, cache.getOrLoad(PALMEIRAS).size());
+
+      Map<String, Object> s = cache.loaderStats();
+      assertEquals(1L, s.get("loads"));
+      assertEquals(2L, s.get("staleServed"));
+    }
+    // close() para o pool: as threads de refresh terminam
+    long deadline = System.currentTimeMillis() + 5000;
+    while (refreshThreads() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertEquals(0, refreshThreads(), "threads de refresh vazando");
+  }
+
+  private static long refreshThreads() {
+    return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals("tm-refresh")).count();
+  }
+
+  @Test
+  void manifest_shouldAnswerExistsAndListingsWithoutTree() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache cache = new TransfermarktCache(dir, 0);
+    cache.write(PALMEIRAS, roster("Weverton"));
+    cache.write(new TeamIdentity("br", 1023, 2024, "se-palmeiras-sao-paulo"), roster("Dudu"));
+    cache.write(SANTOS, roster("Neymar"));
+
+    assertEquals(List.of(2024, 2025), cache.seasons("br", 1023));
+    assertEquals(List.of(221, 1023), cache.teams("br"));
+    assertEquals("fc-santos", cache.manifestEntry(SANTOS).slug());
+
+    // outra instância (outro processo) enxerga pelo arquivo, inclusive escritas posteriores
+    TransfermarktCache other = new TransfermarktCache(dir, 0);
+    assertTrue(other.exists(PALMEIRAS));
+    TeamIdentity flamengo = new TeamIdentity("br", 614, 2025, "flamengo-rio-de-janeiro");
+    assertFalse(other.exists(flamengo));
+    cache.write(flamengo, roster("Arrascaeta"));
+    assertTrue(other.exists(flamengo));
+
+    // append cortado no meio (crash): o resto continua valendo
+    Path idx = dir.resolve(CacheManifest.FILE);
+    Files.write(idx, new byte[] {0, 40, 1, 2}, StandardOpenOption.APPEND);
+    TransfermarktCache reopened = new TransfermarktCache(dir, 0);
+    assertEquals(List.of(221, 614, 1023), reopened.teams("br"));
+    reopened.write(SANTOS, roster("Neymar", "Zé Rafael"));
+    assertEquals(4, CacheManifest.open(dir).size());
+
+    // cache antigo sem manifest: índice em memória pela árvore, sem gravar nada
+    Files.delete(idx);
+    TransfermarktCache noIndex = new TransfermarktCache(dir, 0);
+    assertFalse(Files.exists(idx));
+    assertEquals(List.of(2024, 2025), noIndex.seasons("br", 1023));
+    assertTrue(noIndex.exists(SANTOS));
+    noIndex.write(PALMEIRAS, roster("Weverton", "Gómez"));
+    assertFalse(Files.exists(idx));
+    assertEquals(2, noIndex.read(PALMEIRAS).size());
+
+    // --cacheManifest cria o arquivo; a instância em memória passa a usá-lo
+    CacheManifest.rebuild(dir).close();
+    cache.write(new TeamIdentity("br", 1, 2025, "x"), roster("A"));
+    assertTrue(noIndex.exists(new TeamIdentity("br", 1, 2025, "x")));
+  }
+
+  @Test
+  void manifest_recordWriteShouldFollowCompactionByOtherProcess() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    new TransfermarktCache(dir, 0).write(PALMEIRAS, roster("Weverton"));
+    CacheManifest m = CacheManifest.open(dir);
+
+    CacheManifest.rebuild(dir).close();          // outro processo regrava (novo inode)
+    byte[] bytes = "[]".getBytes(StandardCharsets.UTF_8);
+    m.recordWrite(SANTOS, CacheFormat.JSON, CacheLayout.FLAT, bytes, 0);
+    assertNotNull(CacheManifest.open(dir).get(SANTOS), "registro foi para o arquivo substituído");
+    m.close();
+  }
+
+  @Test
+  void manifest_catchUpShouldWaitForAppendInProgressElsewhere() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    new TransfermarktCache(dir, 0).write(PALMEIRAS, roster("Weverton"));
+    Path idx = dir.resolve(CacheManifest.FILE);
+    long before = Files.size(idx);
+    CacheManifest reader = CacheManifest.open(dir);
+
+    // registro completo de outro processo, reaproveitado aos pedaços
+    CacheManifest writer = CacheManifest.open(dir);
+    writer.recordWrite(SANTOS, CacheFormat.JSON, CacheLayout.FLAT, "[]".getBytes(StandardCharsets.UTF_8), 0);
+    writer.close();
+    byte[] all = Files.readAllBytes(idx);
+    byte[] rec = Arrays.copyOfRange(all, (int) before, all.length);
+    try (FileChannel ch = FileChannel.open(idx, StandardOpenOption.WRITE)) {
+      ch.truncate(before);
+    }
+
+    Files.write(idx, Arrays.copyOf(rec, rec.length / 2), StandardOpenOption.APPEND);
+    assertFalse(reader.catchUp());
+    assertEquals(before + rec.length / 2, Files.size(idx), "append alheio em curso não pode ser cortado");
+
+    Files.write(idx, Arrays.copyOfRange(rec, rec.length / 2, rec.length), StandardOpenOption.APPEND);
+    assertTrue(reader.catchUp());
+    assertNotNull(reader.get(SANTOS));
+    assertEquals(2, CacheManifest.open(dir).size());
+    reader.close();
+  }
+
+  @Test
+  void shardedLayout_shouldMigrateOnlineAndReadLegacyPaths() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache flat = new TransfermarktCache(dir, 0);
+    flat.write(PALMEIRAS, roster("Weverton"));
+    flat.write(SANTOS, roster("Neymar"));
+    Path legacy = flat.resolvePath(PALMEIRAS);
+
+    new CacheConfig(CacheFormat.JSON, CacheCompression.Mode.NONE, CacheLayout.SHARDED).store(dir);
+    TransfermarktCache sharded = new TransfermarktCache(dir, 0);
+    Path target = sharded.resolvePath(PALMEIRAS);
+    assertEquals(5, dir.relativize(target).getNameCount());
+    assertEquals(1, sharded.read(PALMEIRAS).size());      // ainda no layout antigo
+
+    sharded.write(SANTOS, roster("Neymar", "Zé Rafael"));  // escrita nova já sai shardada
+    assertFalse(Files.exists(flat.resolvePath(SANTOS)));
+
+    CacheMigrator.Summary s = CacheMigrator.migrate(dir, CacheConfig.load(dir));
+    assertEquals(1, s.converted());
+    assertEquals(1, s.skipped());
+    assertFalse(Files.exists(legacy));
+    assertFalse(Files.exists(legacy.getParent()));         // diretório do time antigo removido
+    assertTrue(Files.isRegularFile(target));
+    assertEquals(1, new TransfermarktCache(dir, 0).read(PALMEIRAS).size());
+    assertEquals(CacheLayout.SHARDED, CacheManifest.open(dir).get(PALMEIRAS).layout());
+  }
+
+  @Test
+  void deltaMode_shouldReconstructSeasonsAndShrinkHistory() throws Exception {
+    JsonArray real = palmeiras();
+    Path deltaDir = Files.createTempDirectory("tm-");
+    Path fullDir = Files.createTempDirectory("tm-");
+    new CacheConfig(CacheFormat.BIN, CacheCompression.Mode.DEFLATE, CacheLayout.FLAT, true, 4).store(deltaDir);
+    new CacheConfig(CacheFormat.BIN, CacheCompression.Mode.DEFLATE).store(fullDir);
+    TransfermarktCache delta = new TransfermarktCache(deltaDir, 0);
+    TransfermarktCache full = new TransfermarktCache(fullDir, 0);
+
+    JsonArray[] history = new JsonArray[10];
+    for (int i = 0; i < history.length; i++) {
+      history[i] = season(real, i);
+      TeamIdentity t = new TeamIdentity("br", 1023, 2016 + i, "se-palmeiras-sao-paulo");
+      delta.write(t, history[i]);
+      full.write(t, history[i]);
+    }
+
+    TransfermarktCache fresh = new TransfermarktCache(deltaDir, 0);
+    long deltaBytes = 0, fullBytes = 0;
+    int bases = 0;
+    for (int i = 0; i < history.length; i++) {
+      TeamIdentity t = new TeamIdentity("br", 1023, 2016 + i, "se-palmeiras-sao-paulo");
+      assertEquals(history[i], fresh.read(t), "temporada " + t.season());
+      deltaBytes += Files.size(fresh.resolvePath(t));
+      fullBytes += Files.size(full.resolvePath(t));
+      if (fresh.manifestEntry(t).baseSeason() < 0) bases++;
+    }
+    assertEquals(2, bases);                       // 1 base + 4 deltas, rebase, 1 base + 4 deltas
+    assertTrue(deltaBytes * 3 < fullBytes * 2, deltaBytes + " vs " + fullBytes);
+
+    // reescrever uma base refaz os dependentes: todos continuam se reconstruindo
+    TeamIdentity base = new TeamIdentity("br", 1023, 2016, "se-palmeiras-sao-paulo");
+    JsonArray changed = history[0].deepCopy();
+    changed.remove(0);
+    fresh.write(base, changed);
+    TransfermarktCache again = new TransfermarktCache(deltaDir, 0);
+    assertEquals(changed, again.read(base));
+    for (int i = 1; i < history.length; i++) {
+      assertEquals(history[i], again.read(new TeamIdentity("br", 1023, 2016 + i, "x")), "temporada " + (2016 + i));
+    }
+
+    // sem manifest.idx a base dos deltas é lida do cabeçalho antes de reescrever
+    Files.delete(deltaDir.resolve(CacheManifest.FILE));
+    TransfermarktCache noIndex = new TransfermarktCache(deltaDir, 0);
+    noIndex.write(base, history[0]);
+    assertFalse(Files.exists(deltaDir.resolve(CacheManifest.FILE)));
+    TransfermarktCache reread = new TransfermarktCache(deltaDir, 0);
+    for (int i = 0; i < history.length; i++) {
+      assertEquals(history[i], reread.read(new TeamIdentity("br", 1023, 2016 + i, "x")), "temporada " + (2016 + i));
+    }
+
+    // formato muda, delta continua delta
+    CacheMigrator.Summary s = CacheMigrator.migrate(deltaDir, CacheConfig.load(deltaDir).withFormat(CacheFormat.JSON));
+    assertEquals(0, s.failed());
+    TransfermarktCache json = new TransfermarktCache(deltaDir, 0);
+    // (base agora em JSON, que não grava campos null)
+    assertEquals(withoutNulls(history[4]), withoutNulls(json.read(new TeamIdentity("br", 1023, 2020, "x"))));
+    assertTrue(json.manifestEntry(new TeamIdentity("br", 1023, 2020, "x")).baseSeason() > 0);
+  }
+
+  @Test
+  void version_shouldChangeOnlyWhenRosterChanges() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    new CacheConfig(CacheFormat.BIN, CacheCompression.Mode.NONE, CacheLayout.FLAT, true, 4).store(dir);
+    TransfermarktCache cache = new TransfermarktCache(dir, 0);
+    JsonArray real = palmeiras();
+    TeamIdentity y16 = new TeamIdentity("br", 1023, 2016, "se-palmeiras-sao-paulo");
+    TeamIdentity y17 = new TeamIdentity("br", 1023, 2017, "se-palmeiras-sao-paulo");
+    assertEquals(-1, cache.version(y16));
+
+    cache.write(y16, season(real, 0));
+    cache.write(y17, season(real, 1));
+    long v16 = cache.version(y16);
+    long v17 = cache.version(y17);
+    assertEquals(2016, cache.manifestEntry(y17).baseSeason());
+    cache.read(y17);
+    assertEquals(v17, new TransfermarktCache(dir, 0).version(y17));
+
+    cache.write(y16, season(real, 2));
+    assertNotEquals(v16, cache.version(y16));
+    assertNotEquals(v17, cache.version(y17));
+    assertEquals(season(real, 1), cache.read(y17));
+  }
+
+  @Test
+  void warmup_shouldLoadLatestSeasonOfEachTeamIntoMemory() throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache writer = new TransfermarktCache(dir, 0);
+    for (int teamId : new int[]{1023, 210, 614}) {
+      writer.write(new TeamIdentity("br", teamId, 2024, "t" + teamId), roster("A" + teamId));
+      writer.write(new TeamIdentity("br", teamId, 2025, "t" + teamId), roster("B" + teamId));
+    }
+    writer.write(new TeamIdentity("de", 27, 2025, "fc-bayern-munchen"), roster("Neuer"));
+
+    TransfermarktCache cache = new TransfermarktCache(dir);
+    CacheWarmup.Plan plan = new CacheWarmup.Plan(List.of("br"),
+        List.of(CacheWarmup.parseTeam("de/27/2025"), CacheWarmup.parseTeam("br/1023/2025")), 0, 2);
+    CacheWarmup.Summary s = CacheWarmup.run(cache, plan);
+
+    assertEquals(4, s.teams());                      // br/1023/2025 pedido duas vezes
+    assertEquals(4, s.loaded());
+    assertEquals(0, s.failed());
+    assertEquals(4, cache.memoryStats().get("entries"));
+    cache.read(new TeamIdentity("br", 210, 2025, "x"));
+    assertEquals(1L, cache.memoryStats().get("hits"));
+  }
+
+  private static JsonElement withoutNulls(JsonElement el) {
+    if (el.isJsonArray()) {
+      JsonArray out = new JsonArray();
+      for (JsonElement e : el.getAsJsonArray()) out.add(withoutNulls(e));
+      return out;
+    }
+    if (!el.isJsonObject()) return el;
+    JsonObject out = new JsonObject();
+    for (Map.Entry<String, JsonElement> e : el.getAsJsonObject().entrySet()) {
+      if (!e.getValue().isJsonNull()) out.add(e.getKey(), withoutNulls(e.getValue()));
+    }
+    return out;
+  }
+
+  /** Temporada sintética: estatísticas mudam, idade sobe, alguns entram e saem. */
+  private static JsonArray season(JsonArray base, int i) {
+    JsonArray out = new JsonArray();
+    for (int k = 0; k < base.size(); k++) {
+      if ((k + i) % 11 == 0) continue;                  // saiu
+      JsonObject p = base.get(k).getAsJsonObject().deepCopy();
+      p.addProperty("age", p.get("age").getAsInt() + i);
+      JsonObject st = p.getAsJsonObject("stats");
+      st.addProperty("matchesPlayed", (k * 7 + i * 13) % 60);
+      st.addProperty("goals", (k + i * 3) % 9);
+      st.addProperty("minutesPlayed", (k * 131 + i * 977) % 5000);
+      st.addProperty("yellow", (k + i) % 6);
+      out.add(p);
+    }
+    JsonObject youth = new JsonObject();
+    youth.addProperty("id", 9_000_000 + i);
+    youth.addProperty("name", "Base " + i);
+    youth.addProperty("position", "Atacante");
+    out.add(youth);
+    return out;
+  }
+
+  private static Path cacheDirOf(Path dir) {
+    return new TransfermarktCache(dir, 0).resolvePath(PALMEIRAS).getParent();
+  }
+
+  private static JsonArray roundTripJson(JsonArray a) throws Exception {
+    Path dir = Files.createTempDirectory("tm-");
+    TransfermarktCache json = new TransfermarktCache(dir, 0);
+    json.write(PALMEIRAS, a);
+    return json.read(PALMEIRAS);
+  }
+
+  private static JsonArray palmeiras() throws Exception {
+    try (InputStream in = TransfermarktCacheTest.class.getResourceAsStream("/palmeiras.json")) {
+      return JsonParser.parseString(new String(in.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonArray();
+    }
+  }
+
+  private static JsonArray roster(String... names) {
+    JsonArray arr = new JsonArray();
+    for (String n : names) {
+      JsonObject o = new JsonObject();
+      o.addProperty("name", n);
+      o.addProperty("position", "Atacante");
+      arr.add(o);
+    }
+    return arr;
+  }
+}